@@ -54,15 +54,18 @@ public class Main {
         System.out.println("Обучающая выборка: " + trainSet.size() + " примеров");
         System.out.println("Тестовая выборка: " + testSet.size() + " примеров");
 
-        // 4. Инициализируем сеть
-        NeuralNetwork network = new NeuralNetwork();
-        network.addLayer(8, activationFunction);
-        network.addLayer(3, activationFunction);
-        network.setOptimizer(optimizer);
-        network.setLearningRate(learningRate);
-
-        // 5. Параметры обучения
+        // 4. Параметры обучения
         int epochs = 500;
+        int batchSize = 8;
+
+        // 5. Инициализируем сеть: размеры слоёв выводятся из числа признаков
+        NeuralNetwork network = NeuralNetwork.builder(trainSet.getFirst().features.length)
+                .layer(8, activationFunction)
+                .layer(3, activationFunction)
+                .optimizer(optimizer)
+                .learningRate(learningRate)
+                .batchSize(batchSize)
+                .build();
         Random random = new Random();
 
         for (int epoch = 1; epoch <= epochs; epoch++) {
@@ -71,19 +74,28 @@ public class Main {
             double totalLoss = 0.0;
             int correct = 0;
 
-            for (Iris sample : trainSet) {
-                network.train(sample.features, sample.label);
+            for (int from = 0; from < trainSet.size(); from += batchSize) {
+                List<Iris> batch = trainSet.subList(from, Math.min(trainSet.size(), from + batchSize));
+                double[][] inputs = new double[batch.size()][];
+                double[][] targets = new double[batch.size()][];
+                for (int b = 0; b < batch.size(); b++) {
+                    inputs[b] = batch.get(b).features;
+                    targets[b] = batch.get(b).label;
+                }
 
-                double[] prediction = network.predict(sample.features);
+                network.trainBatch(inputs, targets);
 
-                // Вычисляем ошибку
-                for (int i = 0; i < prediction.length; i++) {
-                    totalLoss += Math.pow(sample.label[i] - prediction[i], 2);
-                }
+                double[][] predictions = network.predictBatch(inputs);
+                for (int b = 0; b < predictions.length; b++) {
+                    // Вычисляем ошибку
+                    for (int i = 0; i < predictions[b].length; i++) {
+                        totalLoss += Math.pow(targets[b][i] - predictions[b][i], 2);
+                    }
 
-                // Подсчёт правильных предсказаний на обучении
-                if (argMax(prediction) == argMax(sample.label)) {
-                    correct++;
+                    // Подсчёт правильных предсказаний на обучении
+                    if (argMax(predictions[b]) == argMax(targets[b])) {
+                        correct++;
+                    }
                 }
             }
 
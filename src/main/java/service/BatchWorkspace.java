@@ -0,0 +1,164 @@
+package service;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Буферы пакетного прохода для {@link NeuralNetwork}: суммы, выходы и дельты каждого слоя
+ * для всех примеров пакета (построчно, пример за примером) и накопленные градиенты.
+ * Модель при этом не изменяется, поэтому несколько рабочих областей могут считать
+ * градиенты по одним и тем же весам независимо.
+ */
+@Getter
+public class BatchWorkspace {
+
+    private final int inputSize;
+    private final int[] layerSizes;
+    private int capacity;
+
+    private double[] inputs;
+    private double[] targets;
+    private final double[][] sums;
+    private final double[][] activations;
+    private final double[][] deltas;
+
+    private final double[][] weightGradients;
+    private final double[][] biasGradients;
+
+    // буферы для смешанной точности, выделяются при первом обращении (см. ensureFloatCapacity)
+    private int floatCapacity;
+    private float[] floatInputs;
+    private float[] floatTargets;
+    private final float[][] floatSums;
+    private final float[][] floatActivations;
+    private final float[][] floatDeltas;
+    // градиент весов одного пакета в float, по одному на слой
+    private final float[][] floatWeightGradients;
+
+    public BatchWorkspace(List<DenseLayer> layers, int capacity) {
+        this(layers, capacity, true);
+    }
+
+    /**
+     * @param withGradients false для рабочих областей только под вывод: буферы градиентов не выделяются
+     */
+    public BatchWorkspace(List<DenseLayer> layers, int capacity, boolean withGradients) {
+        int layerCount = layers.size();
+        this.inputSize = layers.getFirst().getInputSize();
+        this.layerSizes = new int[layerCount];
+        this.sums = new double[layerCount][];
+        this.activations = new double[layerCount][];
+        this.deltas = new double[layerCount][];
+        this.weightGradients = new double[layerCount][];
+        this.biasGradients = new double[layerCount][];
+        this.floatSums = new float[layerCount][];
+        this.floatActivations = new float[layerCount][];
+        this.floatDeltas = new float[layerCount][];
+        this.floatWeightGradients = new float[layerCount][];
+
+        for (int l = 0; l < layerCount; l++) {
+            DenseLayer layer = layers.get(l);
+            layerSizes[l] = layer.getOutputSize();
+            if (withGradients) {
+                weightGradients[l] = new double[layer.getWeights().length];
+                biasGradients[l] = new double[layer.getOutputSize()];
+            }
+        }
+        allocate(capacity);
+    }
+
+    public void ensureCapacity(int batchSize) {
+        if (batchSize > capacity) {
+            allocate(batchSize);
+        }
+    }
+
+    public void ensureFloatCapacity(int batchSize) {
+        if (batchSize <= floatCapacity) {
+            return;
+        }
+        floatCapacity = batchSize;
+        floatInputs = new float[batchSize * inputSize];
+        floatTargets = new float[batchSize * layerSizes[layerSizes.length - 1]];
+        for (int l = 0; l < layerSizes.length; l++) {
+            floatSums[l] = new float[batchSize * layerSizes[l]];
+            floatActivations[l] = new float[batchSize * layerSizes[l]];
+            floatDeltas[l] = new float[batchSize * layerSizes[l]];
+            if (weightGradients[l] != null && floatWeightGradients[l] == null) {
+                floatWeightGradients[l] = new float[weightGradients[l].length];
+            }
+        }
+    }
+
+    // рабочая область подходит сети, если совпадают размеры всех слоёв
+    public boolean matches(List<DenseLayer> layers) {
+        if (layers.size() != layerSizes.length || layers.getFirst().getInputSize() != inputSize) {
+            return false;
+        }
+        for (int l = 0; l < layerSizes.length; l++) {
+            if (layers.get(l).getOutputSize() != layerSizes[l]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clearGradients() {
+        for (int l = 0; l < layerSizes.length; l++) {
+            Arrays.fill(weightGradients[l], 0.0);
+            Arrays.fill(biasGradients[l], 0.0);
+        }
+    }
+
+    public void scaleGradients(double scale) {
+        for (int l = 0; l < layerSizes.length; l++) {
+            double[] w = weightGradients[l];
+            for (int i = 0; i < w.length; i++) {
+                w[i] *= scale;
+            }
+            double[] b = biasGradients[l];
+            for (int i = 0; i < b.length; i++) {
+                b[i] *= scale;
+            }
+        }
+    }
+
+    // копирует примеры [from, to) в непрерывные буферы входов и целей
+    void load(double[][] batchInputs, double[][] batchTargets, int from, int to) {
+        int outputSize = layerSizes[layerSizes.length - 1];
+        for (int b = from; b < to; b++) {
+            System.arraycopy(batchInputs[b], 0, inputs, (b - from) * inputSize, inputSize);
+            if (batchTargets != null) {
+                System.arraycopy(batchTargets[b], 0, targets, (b - from) * outputSize, outputSize);
+            }
+        }
+    }
+
+    // то же в float-буферы
+    void loadFloat(double[][] batchInputs, double[][] batchTargets, int from, int to) {
+        int outputSize = layerSizes[layerSizes.length - 1];
+        for (int b = from; b < to; b++) {
+            int row = (b - from) * inputSize;
+            for (int i = 0; i < inputSize; i++) {
+                floatInputs[row + i] = (float) batchInputs[b][i];
+            }
+            row = (b - from) * outputSize;
+            for (int j = 0; j < outputSize; j++) {
+                floatTargets[row + j] = (float) batchTargets[b][j];
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        this.capacity = newCapacity;
+        this.inputs = new double[newCapacity * inputSize];
+        this.targets = new double[newCapacity * layerSizes[layerSizes.length - 1]];
+        for (int l = 0; l < layerSizes.length; l++) {
+            sums[l] = new double[newCapacity * layerSizes[l]];
+            activations[l] = new double[newCapacity * layerSizes[l]];
+            deltas[l] = new double[newCapacity * layerSizes[l]];
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package service;
+
+import lombok.Getter;
+
+/**
+ * Буферы вывода {@link ConvolutionalNeuralNetwork}, выделяемые один раз по размерам входа и слоёв.
+ * Прямой проход через {@link ConvolutionalNeuralNetwork#forward(double[][], CnnWorkspace)} пишет только сюда
+ * и не выделяет память. Экземпляр не потокобезопасен: у каждого потока должен быть свой.
+ */
+@Getter
+public class CnnWorkspace {
+
+    private final Tensor input;
+    // рабочий буфер свёртки: im2col-развёртка или буфер движка (см. ConvLayer#scratchSize)
+    private final double[] convColumns;
+    private final Tensor convOutput;
+    private final Tensor pooledOutput;
+    // представление pooledOutput формы [1, numKernels * pooledWidth * pooledHeight]
+    private final Tensor flattened;
+    private final Tensor fcOutput;
+    private final double[] probabilities;
+
+    public CnnWorkspace(int inputWidth, int inputHeight, int numKernels, int convScratch,
+                        int convWidth, int convHeight, int pooledWidth, int pooledHeight, int outputSize) {
+        this.input = new Tensor(1, 1, inputWidth, inputHeight);
+        this.convColumns = new double[convScratch];
+        this.convOutput = new Tensor(1, numKernels, convWidth, convHeight);
+        this.pooledOutput = new Tensor(1, numKernels, pooledWidth, pooledHeight);
+        this.flattened = pooledOutput.reshape(1, -1);
+        this.fcOutput = new Tensor(1, outputSize);
+        this.probabilities = new double[outputSize];
+    }
+}
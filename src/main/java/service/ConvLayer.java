@@ -1,10 +1,18 @@
 package service;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import utility.ActivationFunctions;
-import utility.MatrixUtils;
+import service.convolution.ConvolutionAlgorithm;
+import service.convolution.ConvolutionEngine;
+import service.optimizer.Optimizer;
+import service.optimizer.impl.SGDOptimizer;
+import service.regularizer.Regularizer;
+import utility.linalg.LinAlg;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 @Getter
@@ -15,21 +23,74 @@ public class ConvLayer {
     private final int stride;
     private final double learningRate;
     private final List<double[][]> kernels;
-    private List<double[][]> lastOutputs;
-    private double[][] lastInput;
+    // строки всех ядер подряд (те же массивы, без копирования): строка k * kernelSize + i — строка i ядра k
+    @Getter(AccessLevel.NONE)
+    private final double[][] kernelRows;
+    // вход и выход последнего обучающего прохода, [N, 1, H, W] и [N, numKernels, outH, outW]
+    private Tensor lastInput;
+    private Tensor lastOutput;
+
+    // ядра плоской матрицей [numKernels x kernelSize^2] для GEMM, строится заново после изменения ядер
+    @Getter(AccessLevel.NONE)
+    private final VersionedCopy<double[]> kernelMatrix = new VersionedCopy<>(this::copyKernelMatrix);
+    // float-копия kernelMatrix для вывода в Precision.FLOAT, создаётся при первом обращении
+    @Getter(AccessLevel.NONE)
+    private final VersionedCopy<float[]> floatKernelMatrix = new VersionedCopy<>(this::copyToFloat);
+
+    // буферы обучения, переиспользуются между пакетами одной формы:
+    // развёрнутый вход (im2col) [kernelSize^2 x P] каждого примера подряд, P = outH * outW
+    @Getter(AccessLevel.NONE)
+    private double[] columns;
+    @Getter(AccessLevel.NONE)
+    private double[] deltas;
+    @Getter(AccessLevel.NONE)
+    private Tensor inputGradient;
+    @Getter(AccessLevel.NONE)
+    private double[] columnGradient;
+    @Getter(AccessLevel.NONE)
+    private final double[] kernelGradient;
 
     private final Random rnd = new Random();
 
+    // по умолчанию обычный SGD; состояние ядра k адресуется как k * kernelSize^2 + i * kernelSize + j
+    private Optimizer optimizer = new SGDOptimizer();
+    // живые веса: строка k * kernelSize + i маски — строка i ядра k; до прунинга все веса живые
+    private SparsityMask sparsityMask;
+
+    // алгоритм прямого прохода; обратный проход всегда идёт через im2col и GEMM
+    private ConvolutionAlgorithm algorithm = ConvolutionAlgorithm.AUTO;
+    // движок под последний размер входа, подготовленный под матрицу ядер kernels; engine == null — свёртка через GEMM.
+    // Подготовленный движок не меняется: после изменения ядер публикуется новый
+    private record PreparedEngine(ConvolutionEngine engine, double[] kernels, ConvolutionAlgorithm algorithm,
+                                  int height, int width) {
+    }
+
+    @Getter(AccessLevel.NONE)
+    private volatile PreparedEngine preparedEngine;
+    // columns содержит развёртку lastInput; после прохода движком её строит backward
+    @Getter(AccessLevel.NONE)
+    private boolean columnsReady;
+
+    // пул для параллельного обучающего прохода; null — всё считается в вызывающем потоке
+    private ForkJoinPool pool;
+    private int parallelism = 1;
+
     public ConvLayer(int kernelSize, int numKernels, double learningRate, int stride) {
         this.kernelSize = kernelSize;
         this.numKernels = numKernels;
         this.learningRate = learningRate;
         this.stride = stride;
+        this.kernelGradient = new double[numKernels * kernelSize * kernelSize];
 
         this.kernels = new ArrayList<>();
         for (int i = 0; i < numKernels; i++) {
             this.kernels.add(initKernel(kernelSize));
         }
+        this.kernelRows = new double[numKernels * kernelSize][];
+        for (int k = 0; k < numKernels; k++) {
+            System.arraycopy(kernels.get(k), 0, kernelRows, k * kernelSize, kernelSize);
+        }
+        this.sparsityMask = SparsityMask.dense(numKernels * kernelSize, kernelSize);
     }
 
     private double[][] initKernel(int size) {
@@ -41,68 +102,437 @@ public class ConvLayer {
         return kernel;
     }
 
-    public List<double[][]> forward(double[][] input) {
+    /**
+     * Прямой проход по пакету [N, 1, H, W] с сохранением состояния для {@link #backward}.
+     * Возвращаемый тензор [N, numKernels, outH, outW] переиспользуется следующим вызовом.
+     */
+    public Tensor forward(Tensor input) {
+        checkInput(input);
+        int batch = input.dim(0);
+        int outH = outputSize(input.dim(2));
+        int outW = outputSize(input.dim(3));
+        int area = kernelSize * kernelSize;
+        int scratch = scratchSize(input.dim(2), input.dim(3));
+        if (lastOutput == null || !lastOutput.hasShape(batch, numKernels, outH, outW) || columns.length < batch * scratch) {
+            lastOutput = new Tensor(batch, numKernels, outH, outW);
+            columns = new double[batch * scratch];
+            deltas = new double[batch * numKernels * outH * outW];
+            columnGradient = new double[batch * area * outH * outW];
+        }
         this.lastInput = input;
-        this.lastOutputs = new ArrayList<>();
 
-        for (double[][] kernel : kernels) {
-            double[][] convolved = MatrixUtils.convolve(input, kernel, stride);
-            double[][] activated = ActivationFunctions.relu(convolved, 1e-7);
-            lastOutputs.add(activated);
+        int positions = outH * outW;
+        double[] output = lastOutput.getData();
+        double[] matrix = kernelMatrix.get();
+        ConvolutionEngine engine = engineFor(input, matrix);
+        if (engine != null) {
+            // по примеру на задачу, рабочий буфер примера — его участок columns
+            run(batch, n -> {
+                engine.convolve(input.getData(), input.getOffset() + n * input.stride(0),
+                        output, n * numKernels * positions, columns, n * scratch);
+                LinAlg.relu(output, n * numKernels * positions, numKernels * positions, 1e-7);
+            });
+            columnsReady = false;
+            return lastOutput;
+        }
+
+        // сначала развёртка по блокам строк выхода, затем GEMM по блокам ядер и строк
+        int rowBlocks = blocks(outH, batch);
+        int kernelBlocks = blocks(numKernels, batch * rowBlocks);
+        unfold(input, batch, outH, outW);
+        run(batch * rowBlocks * kernelBlocks, task -> {
+            int n = task / (rowBlocks * kernelBlocks);
+            int block = task / kernelBlocks % rowBlocks;
+            int kernelBlock = task % kernelBlocks;
+            int from = blockStart(block, rowBlocks, outH) * outW;
+            int to = blockStart(block + 1, rowBlocks, outH) * outW;
+            int k0 = blockStart(kernelBlock, kernelBlocks, numKernels);
+            int k1 = blockStart(kernelBlock + 1, kernelBlocks, numKernels);
+            int outputOffset = n * numKernels * positions;
+            LinAlg.gemm(false, false, k1 - k0, to - from, area,
+                    1.0, matrix, k0 * area, area, columns, n * area * positions + from, positions,
+                    0.0, output, outputOffset + k0 * positions + from, positions);
+            for (int k = k0; k < k1; k++) {
+                LinAlg.relu(output, outputOffset + k * positions + from, to - from, 1e-7);
+            }
+        });
+        return lastOutput;
+    }
+
+    // im2col всего пакета в columns по блокам строк выхода
+    private void unfold(Tensor input, int batch, int outH, int outW) {
+        int positions = outH * outW;
+        int area = kernelSize * kernelSize;
+        int rowBlocks = blocks(outH, batch);
+        run(batch * rowBlocks, task -> {
+            int n = task / rowBlocks;
+            int block = task % rowBlocks;
+            im2col(input, n, blockStart(block, rowBlocks, outH), blockStart(block + 1, rowBlocks, outH),
+                    outH, outW, columns, n * area * positions);
+        });
+        columnsReady = true;
+    }
+
+    /**
+     * Выбор алгоритма прямого прохода. WINOGRAD допустим только для ядер 3x3 с шагом 1, FFT — только с шагом 1.
+     * AUTO выбирает по размеру ядра и входа (см. {@link ConvolutionAlgorithm#resolve}).
+     */
+    public synchronized void setAlgorithm(ConvolutionAlgorithm algorithm) {
+        if (!algorithm.supports(kernelSize, stride)) {
+            throw new IllegalArgumentException(algorithm + " does not support kernel " + kernelSize + " with stride " + stride);
+        }
+        this.algorithm = algorithm;
+        this.preparedEngine = null;
+    }
+
+    /**
+     * Размер буфера {@code columns} прямого прохода без состояния для входа height x width:
+     * развёртка im2col или рабочий буфер выбранного движка, что больше.
+     */
+    public int scratchSize(int height, int width) {
+        int gemm = kernelSize * kernelSize * outputSize(height) * outputSize(width);
+        ConvolutionEngine engine = engineFor(height, width, kernelMatrix.get());
+        return engine == null ? gemm : Math.max(gemm, engine.scratchSize());
+    }
+
+    // движок для входа; строки карты должны идти подряд, иначе свёртка через GEMM
+    private ConvolutionEngine engineFor(Tensor input, double[] kernels) {
+        int width = input.dim(3);
+        if (input.stride(3) != 1 || input.stride(2) != width) {
+            return null;
+        }
+        return engineFor(input.dim(2), width, kernels);
+    }
+
+    // движок, подготовленный именно под kernels: снимок матрицы ядер и движок всегда берутся согласованно
+    private ConvolutionEngine engineFor(int height, int width, double[] kernels) {
+        PreparedEngine prepared = preparedEngine;
+        if (prepared != null && prepared.kernels() == kernels && prepared.algorithm() == algorithm
+                && prepared.height() == height && prepared.width() == width) {
+            return prepared.engine();
+        }
+        return prepareEngine(height, width, kernels);
+    }
+
+    private synchronized ConvolutionEngine prepareEngine(int height, int width, double[] kernels) {
+        ConvolutionEngine engine = null;
+        if (height >= kernelSize && width >= kernelSize) {
+            ConvolutionAlgorithm resolved = algorithm.resolve(kernelSize, stride, numKernels, height, width);
+            if (resolved != ConvolutionAlgorithm.GEMM) {
+                engine = resolved.createEngine(kernelSize, height, width);
+                engine.prepare(kernels, numKernels);
+            }
+        }
+        preparedEngine = new PreparedEngine(engine, kernels, algorithm, height, width);
+        return engine;
+    }
+
+    /**
+     * Включает параллельный обучающий проход: развёртка и свёртка делятся по примерам, блокам строк выхода и ядрам,
+     * градиент ядер — по ядрам, градиент входа — по строкам входа, так что каждая задача пишет только в свои элементы.
+     * Разбиение зависит только от {@code parallelism}, поэтому результат не зависит от планирования потоков.
+     * Проход без состояния ({@link #forward(Tensor, Tensor, double[])}) остаётся однопоточным.
+     *
+     * @param pool пул задач; null — последовательный режим
+     */
+    public void setParallelism(ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
         }
+        this.pool = pool;
+        this.parallelism = pool == null ? 1 : parallelism;
+    }
 
-        return lastOutputs;
+    public void setParallelism(ForkJoinPool pool) {
+        setParallelism(pool, pool == null ? 1 : pool.getParallelism());
     }
 
-    public double[][] backward(List<double[][]> gradient) {
-        int width = lastInput.length;
-        int height = lastInput[0].length;
-        double[][] inputGradient = new double[width][height];
+    // число блоков измерения size, чтобы вместе с уже имеющимися tasks задачами занять parallelism потоков
+    private int blocks(int size, int tasks) {
+        return Math.max(1, Math.min(size, (parallelism + tasks - 1) / tasks));
+    }
+
+    private static int blockStart(int block, int blocks, int size) {
+        return (int) ((long) block * size / blocks);
+    }
 
-        for (int k = 0; k < kernels.size(); k++) {
-            double[][] kernel = kernels.get(k);
-            double[][] grad = gradient.get(k);
-            double[][] output = lastOutputs.get(k);
+    // body(0 .. count - 1): без пула — в вызывающем потоке, иначе задачами в пуле
+    private void run(int count, IntConsumer body) {
+        if (pool == null || count == 1) {
+            for (int task = 0; task < count; task++) {
+                body.accept(task);
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (int task = 0; task < count; task++) {
+            int index = task;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(index)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
 
-            for (int x = 0; x < grad.length; x++) {
-                for (int y = 0; y < grad[0].length; y++) {
-                    double deriv = grad[x][y] * (output[x][y] > 0 ? 1 : 0);
+    /**
+     * Прямой проход без сохранения состояния в заранее выделенный непрерывный тензор [N, numKernels, outH, outW].
+     * {@code columns} — рабочий буфер на {@link #scratchSize} элементов, общий для всех примеров.
+     * Память не выделяется, если размер входа не меняется.
+     */
+    public Tensor forward(Tensor input, Tensor output, double[] columns) {
+        checkInput(input);
+        int outH = output.dim(2);
+        int outW = output.dim(3);
+        double[] matrix = kernelMatrix.get();
+        ConvolutionEngine engine = engineFor(input, matrix);
+        for (int n = 0; n < input.dim(0); n++) {
+            int outputOffset = output.getOffset() + n * output.stride(0);
+            if (engine != null) {
+                engine.convolve(input.getData(), input.getOffset() + n * input.stride(0), output.getData(), outputOffset, columns, 0);
+                LinAlg.relu(output.getData(), outputOffset, numKernels * outH * outW, 1e-7);
+            } else {
+                convolve(input, n, outH, outW, matrix, columns, 0, output.getData(), outputOffset);
+            }
+        }
+        return output;
+    }
 
-                    for (int i = 0; i < kernel.length; i++) {
-                        for (int j = 0; j < kernel[0].length; j++) {
-                            int inputX = x * stride + i;
-                            int inputY = y * stride + j;
-                            if (inputX < width && inputY < height) {
-                                inputGradient[inputX][inputY] += deriv * kernel[i][j];
-                            }
+    /**
+     * Прямой проход одной карты [height x width] в float без сохранения состояния, выход [numKernels x outH x outW].
+     * {@code patches} — буфер на {@code outH * outW * kernelSize^2} элементов: окна входа подряд по позициям выхода,
+     * так что выход — произведение ядер на транспонированную матрицу окон. При {@link Precision#FLOAT_DOUBLE_ACCUMULATION}
+     * скалярные произведения накапливаются в double, а результат округляется до float.
+     */
+    public float[] forward(float[] input, int height, int width, float[] output, float[] patches, Precision precision) {
+        float[] floatKernels = floatKernelMatrix.get();
+        int outH = outputSize(height);
+        int outW = outputSize(width);
+        int positions = outH * outW;
+        int area = kernelSize * kernelSize;
+        for (int x = 0; x < outH; x++) {
+            for (int y = 0; y < outW; y++) {
+                int patch = (x * outW + y) * area;
+                for (int i = 0; i < kernelSize; i++) {
+                    System.arraycopy(input, (x * stride + i) * width + y * stride, patches, patch + i * kernelSize, kernelSize);
+                }
+            }
+        }
+        if (precision == Precision.FLOAT_DOUBLE_ACCUMULATION) {
+            for (int k = 0; k < numKernels; k++) {
+                for (int p = 0; p < positions; p++) {
+                    output[k * positions + p] = (float) LinAlg.dsdot(floatKernels, k * area, patches, p * area, area);
+                }
+            }
+        } else {
+            LinAlg.gemm(false, true, numKernels, positions, area,
+                    1f, floatKernels, 0, area, patches, 0, area, 0f, output, 0, positions);
+        }
+        for (int i = 0; i < numKernels * positions; i++) {
+            output[i] = Math.max(1e-7f, output[i]);
+        }
+        return output;
+    }
+
+    private static void checkInput(Tensor input) {
+        if (input.rank() != 4 || input.dim(1) != 1) {
+            throw new IllegalArgumentException("ConvLayer expects [N, 1, H, W] input, got " + Arrays.toString(input.shape()));
+        }
+    }
+
+    // свёртка примера n всеми ядрами сразу: im2col и одно умножение [numKernels x ks^2] * [ks^2 x P], затем ReLU
+    private void convolve(Tensor input, int n, int outH, int outW, double[] matrix,
+                          double[] columns, int columnsOffset, double[] output, int outputOffset) {
+        int positions = outH * outW;
+        int area = kernelSize * kernelSize;
+        im2col(input, n, 0, outH, outH, outW, columns, columnsOffset);
+        LinAlg.gemm(false, false, numKernels, positions, area,
+                1.0, matrix, 0, area, columns, columnsOffset, positions, 0.0, output, outputOffset, positions);
+        LinAlg.relu(output, outputOffset, numKernels * positions, 1e-7);
+    }
+
+    // строка i * kernelSize + j матрицы — значения входа под весом (i, j) ядра в позициях x * outW + y, x из [fromRow, toRow)
+    private void im2col(Tensor input, int n, int fromRow, int toRow, int outH, int outW, double[] columns, int columnsOffset) {
+        int positions = outH * outW;
+        double[] data = input.getData();
+        int rowStride = input.stride(2);
+        int colStride = input.stride(3);
+        int base = input.getOffset() + n * input.stride(0);
+        for (int i = 0; i < kernelSize; i++) {
+            for (int j = 0; j < kernelSize; j++) {
+                int row = columnsOffset + (i * kernelSize + j) * positions;
+                for (int x = fromRow; x < toRow; x++) {
+                    int from = base + (x * stride + i) * rowStride + j * colStride;
+                    int to = row + x * outW;
+                    if (stride == 1 && colStride == 1) {
+                        System.arraycopy(data, from, columns, to, outW);
+                    } else {
+                        for (int y = 0; y < outW; y++) {
+                            columns[to + y] = data[from + y * stride * colStride];
                         }
                     }
                 }
             }
+        }
+    }
 
-            // Обновление весов ядра
-            for (int i = 0; i < kernel.length; i++) {
-                for (int j = 0; j < kernel[0].length; j++) {
-                    double gradSum = 0;
-                    for (int x = 0; x < grad.length; x++) {
-                        for (int y = 0; y < grad[0].length; y++) {
-                            int inputX = x * stride + i;
-                            int inputY = y * stride + j;
-                            if (inputX < width && inputY < height) {
-                                gradSum += grad[x][y] * lastInput[inputX][inputY];
-                            }
+    // обратная операция для строк входа [fromRow, toRow) примера n: каждая строка собирает вклады всех позиций,
+    // которые её покрывают, в порядке (i, j) — как при последовательной раскладке
+    private void col2im(double[] columns, int columnsOffset, int outH, int outW, Tensor gradient, int n,
+                        int fromRow, int toRow) {
+        int positions = outH * outW;
+        double[] data = gradient.getData();
+        int width = gradient.dim(3);
+        int base = gradient.getOffset() + n * gradient.stride(0);
+        for (int r = fromRow; r < toRow; r++) {
+            for (int i = 0; i < kernelSize; i++) {
+                int x = (r - i) / stride;
+                if (r < i || (r - i) % stride != 0 || x >= outH) {
+                    continue;
+                }
+                for (int j = 0; j < kernelSize; j++) {
+                    int from = columnsOffset + (i * kernelSize + j) * positions + x * outW;
+                    int to = base + r * width + j;
+                    if (stride == 1) {
+                        LinAlg.axpy(outW, 1.0, columns, from, data, to);
+                    } else {
+                        for (int y = 0; y < outW; y++) {
+                            data[to + y * stride] += columns[from + y];
                         }
                     }
-                    if (kernel[i][j] != 0) {
-                        kernel[i][j] -= learningRate * gradSum;
+                }
+            }
+        }
+    }
+
+    // Вызывать после изменения ядер напрямую через getKernels()
+    public void markKernelsModified() {
+        kernelMatrix.invalidate();
+        floatKernelMatrix.invalidate();
+    }
+
+    private double[] copyKernelMatrix() {
+        double[] matrix = new double[numKernels * kernelSize * kernelSize];
+        for (int row = 0; row < kernelRows.length; row++) {
+            System.arraycopy(kernelRows[row], 0, matrix, row * kernelSize, kernelSize);
+        }
+        return matrix;
+    }
+
+    private float[] copyToFloat() {
+        double[] matrix = kernelMatrix.get();
+        float[] floatKernels = new float[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            floatKernels[i] = (float) matrix[i];
+        }
+        return floatKernels;
+    }
+
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+        optimizer.bind(numKernels * kernelSize * kernelSize);
+    }
+
+    public int outputSize(int inputSize) {
+        return inputSize < kernelSize ? 0 : (inputSize - kernelSize) / stride + 1;
+    }
+
+    /**
+     * Обратный проход по градиенту выхода [N, numKernels, outH, outW] последнего {@link #forward(Tensor)}.
+     * Градиенты ядер суммируются по пакету и применяются одним шагом оптимизатора.
+     * Возвращает градиент входа [N, 1, H, W]; тензор переиспользуется следующим вызовом.
+     */
+    public Tensor backward(Tensor gradient) {
+        int batch = lastOutput.dim(0);
+        int outH = lastOutput.dim(2);
+        int outW = lastOutput.dim(3);
+        int positions = outH * outW;
+        int area = kernelSize * kernelSize;
+        if (!gradient.hasShape(lastOutput.shape())) {
+            throw new IllegalArgumentException("Gradient shape " + Arrays.toString(gradient.shape())
+                    + " does not match output " + Arrays.toString(lastOutput.shape()));
+        }
+        if (inputGradient == null || !inputGradient.hasShape(lastInput.shape())) {
+            inputGradient = new Tensor(lastInput.shape());
+        } else {
+            inputGradient.fill(0.0);
+        }
+
+        // градиент по выходу до ReLU
+        double[] product = lastOutput.getData();
+        double[] grad = gradient.getData();
+        for (int n = 0; n < batch; n++) {
+            for (int k = 0; k < numKernels; k++) {
+                for (int x = 0; x < outH; x++) {
+                    int to = (n * numKernels + k) * positions + x * outW;
+                    int from = gradient.getOffset() + n * gradient.stride(0) + k * gradient.stride(1) + x * gradient.stride(2);
+                    for (int y = 0; y < outW; y++) {
+                        deltas[to + y] = product[to + y] > 0 ? grad[from + y * gradient.stride(3)] : 0.0;
                     }
                 }
             }
         }
 
+        double[] matrix = kernelMatrix.get();
+        if (!columnsReady) {
+            unfold(lastInput, batch, outH, outW);
+        }
+        // направление спуска по ядрам: -[numKernels x P] * [P x ks^2], по блокам ядер с накоплением по пакету
+        int kernelBlocks = blocks(numKernels, 1);
+        run(kernelBlocks, block -> {
+            int k0 = blockStart(block, kernelBlocks, numKernels);
+            int k1 = blockStart(block + 1, kernelBlocks, numKernels);
+            for (int n = 0; n < batch; n++) {
+                LinAlg.gemm(false, true, k1 - k0, area, positions,
+                        -1.0, deltas, n * numKernels * positions + k0 * positions, positions,
+                        columns, n * area * positions, positions,
+                        n == 0 ? 0.0 : 1.0, kernelGradient, k0 * area, area);
+            }
+        });
+
+        // градиент входа: [ks^2 x numKernels] * [numKernels x P] по блокам позиций, затем col2im по блокам строк входа
+        int rowBlocks = blocks(outH, batch);
+        run(batch * rowBlocks, task -> {
+            int n = task / rowBlocks;
+            int block = task % rowBlocks;
+            int from = blockStart(block, rowBlocks, outH) * outW;
+            int to = blockStart(block + 1, rowBlocks, outH) * outW;
+            LinAlg.gemm(true, false, area, to - from, numKernels,
+                    1.0, matrix, 0, area, deltas, n * numKernels * positions + from, positions,
+                    0.0, columnGradient, n * area * positions + from, positions);
+        });
+        int height = inputGradient.dim(2);
+        int inputBlocks = blocks(height, batch);
+        run(batch * inputBlocks, task -> {
+            int n = task / inputBlocks;
+            int block = task % inputBlocks;
+            col2im(columnGradient, n * area * positions, outH, outW, inputGradient, n,
+                    blockStart(block, inputBlocks, height), blockStart(block + 1, inputBlocks, height));
+        });
+
+        // Обновление весов ядра: шаг оптимизатора по живым весам каждой строки ядра
+        int[] rowPointers = sparsityMask.getRowPointers();
+        int[] columnIndices = sparsityMask.getColumnIndices();
+        for (int row = 0; row < kernelRows.length; row++) {
+            optimizer.step(kernelRows[row], 0, kernelGradient, row * kernelSize, columnIndices,
+                    rowPointers[row], rowPointers[row + 1], row * kernelSize, learningRate);
+        }
+
+        regularize();
+        markKernelsModified();
         return inputGradient;
     }
 
+    // проксимальный шаг регуляризатора: группа — ядро или весь слой
+    private void regularize() {
+        Regularizer regularizer = optimizer.getRegularizer();
+        if (regularizer == null) {
+            return;
+        }
+        int total = kernelRows.length;
+        int rows = regularizer.getScope().groupLength(kernelSize, total);
+        for (int from = 0; from < total; from += rows) {
+            optimizer.proximalStep(kernelRows, from, from + rows, from * kernelSize, learningRate);
+        }
+    }
+
     public void pruneKernels(double sparsity) {
         if (sparsity <= 0 || sparsity >= 1)
             throw new IllegalArgumentException("Sparsity must be in (0, 1)");
@@ -141,6 +571,8 @@ public class ConvLayer {
                 }
             }
         }
+        sparsityMask = SparsityMask.fromNonZero(kernelRows);
+        markKernelsModified();
 
         System.out.printf("Прунинг сверточного слоя: обнулено %d из %d весов (%.2f%%).\n",
                 pruned, total, pruned * 100.0 / total);
@@ -169,6 +601,7 @@ public class ConvLayer {
                 }
             }
         }
+        markKernelsModified();
         System.out.println("Квантизация Conv: завершена");
     }
 }
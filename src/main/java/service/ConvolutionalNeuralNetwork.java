@@ -2,7 +2,6 @@ package service;
 
 import utility.KnowledgeDistiller;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -13,6 +12,10 @@ public class ConvolutionalNeuralNetwork {
     public FullyConnectedLayer fcLayer;
     private SoftmaxLayer softmaxLayer;
     public int kernelSize;
+    private final int inputWidth;
+    private final int inputHeight;
+    // вход обучающего прохода [N, 1, inputWidth, inputHeight], переиспользуется между пакетами одного размера
+    private Tensor input;
     public KnowledgeDistiller distiller = new KnowledgeDistiller();
 
     public boolean enablePruning;
@@ -30,14 +33,22 @@ public class ConvolutionalNeuralNetwork {
         this.enableQuantization = enableQuantization;
         this.enableDistillation = enableDistillation;
         this.kernelSize = kernelSize;
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.input = new Tensor(1, 1, inputWidth, inputHeight);
 
         convLayer = new ConvLayer(kernelSize, numKernels, learningRate, 1);
         poolingLayer = new PoolingLayer(2, 2);
 
-        int convOutputWidth = inputWidth - kernelSize + 1;
-        int convOutputHeight = inputHeight - kernelSize + 1;
-        int pooledWidth = convOutputWidth / 2;
-        int pooledHeight = convOutputHeight / 2;
+        // размеры выводятся из самих слоёв, чтобы не расходиться с их прямым проходом
+        int convOutputWidth = convLayer.outputSize(inputWidth);
+        int convOutputHeight = convLayer.outputSize(inputHeight);
+        int pooledWidth = poolingLayer.outputSize(convOutputWidth);
+        int pooledHeight = poolingLayer.outputSize(convOutputHeight);
+        if (pooledWidth <= 0 || pooledHeight <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Input %dx%d is too small for kernel %d and 2x2 pooling", inputWidth, inputHeight, kernelSize));
+        }
 
         int flattenedSize = numKernels * pooledWidth * pooledHeight;
 
@@ -47,13 +58,56 @@ public class ConvolutionalNeuralNetwork {
     }
 
     public void train(double[][] input, double[] target, ConvolutionalNeuralNetwork teacherModel) {
-        List<double[][]> convOutput = convLayer.forward(input);
-        double[][][] convOutput3D = convertTo3DArray(convOutput);
-        double[][][] pooledOutput = poolingLayer.forward(convOutput3D);
-        double[] flattened = flattenLayer.forward(pooledOutput);
-        double[] fcOutput = fcLayer.forward(flattened);
-        double[] studentOutput = softmaxLayer.forward(fcOutput);
+        double[] studentOutput = forward(input);
+        double[] lossGradient = lossGradient(studentOutput, input, target, teacherModel);
+        backward(Tensor.wrap(lossGradient, 1, lossGradient.length));
+        checkWeights();
+    }
+
+    public double trainBatch(List<Pair<double[][], double[]>> batch) {
+        return trainBatch(batch, null);
+    }
+
+    /**
+     * Шаг обучения на мини-пакете: один прямой проход по всем примерам, градиенты слоёв усредняются по пакету
+     * и применяются одним шагом оптимизатора каждого слоя. Возвращает средний loss пакета до обновления весов.
+     * Пакет из одного примера обучает так же, как {@link #train}; пустой пакет — {@link IllegalArgumentException}.
+     */
+    public double trainBatch(List<Pair<double[][], double[]>> batch, ConvolutionalNeuralNetwork teacherModel) {
+        int size = batch.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("Batch must not be empty");
+        }
+        if (input.dim(0) != size) {
+            input = new Tensor(size, 1, inputWidth, inputHeight);
+        }
+        for (int n = 0; n < size; n++) {
+            load(batch.get(n).first(), input.slice(n));
+        }
+        Tensor fcOutput = fcLayer.forward(flattenLayer.forward(poolingLayer.forward(convLayer.forward(input))));
+
+        int classes = fcOutput.dim(1);
+        double[] gradient = new double[size * classes];
+        double[] studentOutput = new double[classes];
+        double loss = 0;
+        for (int n = 0; n < size; n++) {
+            Pair<double[][], double[]> sample = batch.get(n);
+            softmaxLayer.forward(fcOutput.getData(), fcOutput.getOffset() + n * classes, studentOutput);
+            loss += calculateLoss(studentOutput, sample.second());
+            double[] lossGradient = lossGradient(studentOutput, sample.first(), sample.second(), teacherModel);
+            for (int i = 0; i < classes; i++) {
+                gradient[n * classes + i] = lossGradient[i] / size;
+            }
+        }
 
+        backward(Tensor.wrap(gradient, size, classes));
+        checkWeights();
+        return loss / size;
+    }
+
+    // градиент loss по выходу FC для одного примера, обрезанный в [-1, 1]
+    private double[] lossGradient(double[] studentOutput, double[][] input, double[] target,
+                                  ConvolutionalNeuralNetwork teacherModel) {
         if (Arrays.stream(studentOutput).anyMatch(x -> Double.isNaN(x) || Double.isInfinite(x))) {
             throw new RuntimeException("Numerical instability in forward pass");
         }
@@ -72,17 +126,17 @@ public class ConvolutionalNeuralNetwork {
         for (int i = 0; i < lossGradient.length; i++) {
             lossGradient[i] = Math.max(-1.0, Math.min(1.0, lossGradient[i]));
         }
+        return lossGradient;
+    }
 
+    private void backward(Tensor lossGradient) {
         try {
-            double[] fcGrad = fcLayer.backward(lossGradient);
-            double[][][] flattenGrad = flattenLayer.backward(fcGrad);
-            double[][][] poolGrad = poolingLayer.backward(flattenGrad);
-            convLayer.backward(convertTo2DList(poolGrad));
+            Tensor fcGrad = fcLayer.backward(lossGradient);
+            Tensor poolGrad = poolingLayer.backward(flattenLayer.backward(fcGrad));
+            convLayer.backward(poolGrad);
         } catch (Exception ex) {
             throw new RuntimeException("Backpropagation failed: " + ex.getMessage());
         }
-
-        checkWeights();
     }
 
     private void checkWeights() {
@@ -96,42 +150,51 @@ public class ConvolutionalNeuralNetwork {
             }
         }
 
-        for (double[] row : fcLayer.getWeights()) {
-            for (double w : row) {
-                if (Double.isNaN(w) || Double.isInfinite(w)) {
-                    throw new RuntimeException("Invalid values in FC weights");
-                }
+        for (double w : fcLayer.getWeights()) {
+            if (Double.isNaN(w) || Double.isInfinite(w)) {
+                throw new RuntimeException("Invalid values in FC weights");
             }
         }
     }
 
-    public double[][][] convertTo3DArray(List<double[][]> convOutput) {
-        int depth = convOutput.size();
-        int width = convOutput.getFirst().length;
-        int height = convOutput.getFirst()[0].length;
-
-        double[][][] result = new double[depth][width][height];
-        for (int d = 0; d < depth; d++) {
-            double[][] matrix = convOutput.get(d);
-            for (int i = 0; i < width; i++) {
-                System.arraycopy(matrix[i], 0, result[d][i], 0, height);
-            }
+    public double[] forward(double[][] input) {
+        if (this.input.dim(0) != 1) {
+            this.input = new Tensor(1, 1, inputWidth, inputHeight);
         }
+        load(input, this.input);
+        Tensor convOutput = convLayer.forward(this.input);
+        Tensor pooledOutput = poolingLayer.forward(convOutput);
+        Tensor flattened = flattenLayer.forward(pooledOutput);
+        Tensor fcOutput = fcLayer.forward(flattened);
+        return softmaxLayer.forward(fcOutput.getData());
+    }
 
-        return result;
+    /**
+     * Прямой проход без выделения памяти: все промежуточные результаты пишутся в рабочую область,
+     * возвращается её массив вероятностей.
+     */
+    public double[] forward(double[][] input, CnnWorkspace ws) {
+        load(input, ws.getInput());
+        convLayer.forward(ws.getInput(), ws.getConvOutput(), ws.getConvColumns());
+        poolingLayer.forward(ws.getConvOutput(), ws.getPooledOutput());
+        fcLayer.forward(ws.getFlattened(), ws.getFcOutput());
+        return softmaxLayer.forward(ws.getFcOutput().getData(), ws.getProbabilities());
     }
 
-    public List<double[][]> convertTo2DList(double[][][] input) {
-        return new ArrayList<>(Arrays.asList(input));
+    // копирует изображение в непрерывный тензор, последнее измерение которого — строка изображения
+    private static void load(double[][] image, Tensor target) {
+        int height = target.dim(target.rank() - 1);
+        for (int i = 0; i < image.length; i++) {
+            System.arraycopy(image[i], 0, target.getData(), target.getOffset() + i * height, height);
+        }
     }
 
-    public double[] forward(double[][] input) {
-        List<double[][]> convOutput = convLayer.forward(input);
-        double[][][] convOutput3D = convertTo3DArray(convOutput);
-        double[][][] pooledOutput = poolingLayer.forward(convOutput3D);
-        double[] flattened = flattenLayer.forward(pooledOutput);
-        double[] fcOutput = fcLayer.forward(flattened);
-        return softmaxLayer.forward(fcOutput);
+    public CnnWorkspace createWorkspace() {
+        int convWidth = convLayer.outputSize(inputWidth);
+        int convHeight = convLayer.outputSize(inputHeight);
+        return new CnnWorkspace(inputWidth, inputHeight, convLayer.getNumKernels(),
+                convLayer.scratchSize(inputWidth, inputHeight), convWidth, convHeight,
+                poolingLayer.outputSize(convWidth), poolingLayer.outputSize(convHeight), fcLayer.getOutputSize());
     }
 
     public double calculateLoss(double[] predicted, double[] target) {
@@ -144,8 +207,9 @@ public class ConvolutionalNeuralNetwork {
 
     public double evaluate(List<Pair<double[][], double[]>> testSet) {
         int correct = 0;
+        CnnWorkspace ws = createWorkspace();
         for (Pair<double[][], double[]> sample : testSet) {
-            double[] output = forward(sample.first());
+            double[] output = forward(sample.first(), ws);
             int predicted = argMax(output);
             int actual = argMax(sample.second());
             if (predicted == actual) {
@@ -176,8 +240,7 @@ public class ConvolutionalNeuralNetwork {
             int convZero = convLayer.getKernels().stream()
                     .mapToInt(k -> Arrays.stream(k).mapToInt(row -> (int) Arrays.stream(row).filter(w -> w == 0).count()).sum())
                     .sum();
-            int fcZero = Arrays.stream(fcLayer.getWeights())
-                    .mapToInt(row -> (int) Arrays.stream(row).filter(w -> w == 0).count()).sum();
+            int fcZero = (int) Arrays.stream(fcLayer.getWeights()).filter(w -> w == 0).count();
 
             System.out.printf("Итог: обнулено %d весов\nConv: %d | FC: %d\n", convZero + fcZero, convZero, fcZero);
         }
@@ -0,0 +1,397 @@
+package service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import service.activationfunction.ActivationFunction;
+import service.optimizer.Optimizer;
+import service.regularizer.Regularizer;
+import utility.linalg.LinAlg;
+
+import java.util.Random;
+
+/**
+ * Полносвязный слой с непрерывным хранением параметров.
+ * Веса лежат в одном массиве построчно: строка {@code j} (нейрон {@code j}) занимает
+ * диапазон {@code [j * inputSize, (j + 1) * inputSize)}.
+ * Для вывода в {@link Precision#FLOAT} слой держит float-копию параметров, которая обновляется
+ * при первом проходе после изменения весов. Шаг оптимизатора всегда идёт по double-параметрам: при обучении
+ * в смешанной точности они служат мастер-копией, а прямой и обратный проходы по пакету читают float-копию.
+ */
+@Getter
+public class DenseLayer {
+
+    private final int inputSize;
+    private final int outputSize;
+    private final ActivationFunction activationFunction;
+
+    private final double[] weights; // [outputSize * inputSize], row-major
+    private final double[] biases;
+    private final double[] inputSums;
+    private final double[] outputs;
+    private final double[] deltas;
+
+    // начало параметров слоя в плоской раскладке модели: сначала все веса построчно, затем все bias
+    private int parameterOffset;
+
+    // счётчик прямых изменений весов, по нему представления нейронов обновляют свои копии строк
+    private int version;
+
+    private final Neuron[] neurons;
+
+    // float-копия параметров для вывода, создаётся при первом обращении
+    private record FloatParameters(float[] weights, float[] biases) {
+    }
+
+    @Getter(AccessLevel.NONE)
+    private final VersionedCopy<FloatParameters> floatParameters = new VersionedCopy<>(this::copyToFloat);
+
+    public DenseLayer(int numberOfNeurons, int inputSize, ActivationFunction activationFunction, Random random) {
+        this.inputSize = inputSize;
+        this.outputSize = numberOfNeurons;
+        this.activationFunction = activationFunction;
+
+        this.weights = new double[numberOfNeurons * inputSize];
+        this.biases = new double[numberOfNeurons];
+        this.inputSums = new double[numberOfNeurons];
+        this.outputs = new double[numberOfNeurons];
+        this.deltas = new double[numberOfNeurons];
+
+        // тот же порядок инициализации, что и у Neuron: сначала bias, затем веса
+        for (int j = 0; j < numberOfNeurons; j++) {
+            biases[j] = random.nextDouble() - 0.5;
+            int row = j * inputSize;
+            for (int i = 0; i < inputSize; i++) {
+                weights[row + i] = random.nextDouble() - 0.5;
+            }
+        }
+
+        this.neurons = new Neuron[numberOfNeurons];
+        for (int j = 0; j < numberOfNeurons; j++) {
+            neurons[j] = new NeuronView(j);
+        }
+    }
+
+    public double[] forward(double[] input) {
+        LinAlg.gemv(outputSize, inputSize, weights, 0, inputSize, input, 0, 0.0, inputSums, 0);
+        LinAlg.axpy(outputSize, 1.0, biases, inputSums);
+        System.arraycopy(inputSums, 0, outputs, 0, outputSize);
+        activationFunction.activateInPlace(outputs, 0, outputSize);
+        return outputs;
+    }
+
+    /**
+     * Прямой проход без побочных эффектов: результат пишется в {@code output}, буферы слоя не меняются.
+     * Можно вызывать из нескольких потоков одновременно, если у каждого свой {@code output}.
+     */
+    public double[] forward(double[] input, double[] output) {
+        LinAlg.gemv(outputSize, inputSize, weights, 0, inputSize, input, 0, 0.0, output, 0);
+        LinAlg.axpy(outputSize, 1.0, biases, output);
+        activationFunction.activateInPlace(output, 0, outputSize);
+        return output;
+    }
+
+    /**
+     * Прямой проход в float без побочных эффектов. При {@link Precision#FLOAT_DOUBLE_ACCUMULATION}
+     * скалярные произведения накапливаются в double, а результат округляется до float.
+     */
+    public float[] forward(float[] input, float[] output, Precision precision) {
+        FloatParameters parameters = floatParameters.get();
+        float[] floatWeights = parameters.weights();
+        float[] floatBiases = parameters.biases();
+        if (precision == Precision.FLOAT_DOUBLE_ACCUMULATION) {
+            for (int j = 0; j < outputSize; j++) {
+                output[j] = (float) (LinAlg.dsdot(floatWeights, j * inputSize, input, 0, inputSize) + floatBiases[j]);
+            }
+        } else {
+            LinAlg.gemv(outputSize, inputSize, floatWeights, 0, inputSize, input, 0, 0f, output, 0);
+            for (int j = 0; j < outputSize; j++) {
+                output[j] += floatBiases[j];
+            }
+        }
+        activationFunction.activateInPlace(output, 0, outputSize);
+        return output;
+    }
+
+    /**
+     * Дельты выходного слоя: (target - output) * f'(net), производная берётся по сохранённым выходам.
+     */
+    public void computeOutputDeltas(double[] target) {
+        for (int j = 0; j < outputSize; j++) {
+            deltas[j] = target[j] - outputs[j];
+        }
+        activationFunction.derivativeFromOutput(outputs, 0, deltas, 0, outputSize);
+    }
+
+    /**
+     * Дельты скрытого слоя по дельтам следующего слоя: W_next^T * delta_next, умноженное на f'(net).
+     * Матрица следующего слоя обходится построчно, без обращения к отдельным нейронам.
+     */
+    public void computeHiddenDeltas(DenseLayer next) {
+        LinAlg.gemvT(next.outputSize, outputSize, next.weights, 0, next.inputSize, next.deltas, 0, 0.0, deltas, 0);
+        activationFunction.derivativeFromOutput(outputs, 0, deltas, 0, outputSize);
+    }
+
+    /**
+     * Прямой проход по пакету: Z = X * W^T + b, Y = f(Z).
+     * Входы и результаты хранятся построчно ({@code batchSize} строк), состояние слоя не меняется.
+     * Каждая строка весов читается один раз на весь пакет.
+     */
+    public void forwardBatch(double[] input, int batchSize, double[] sums, double[] activations) {
+        LinAlg.gemm(false, true, batchSize, outputSize, inputSize,
+                1.0, input, 0, inputSize, weights, 0, inputSize, 0.0, sums, 0, outputSize);
+        for (int b = 0; b < batchSize; b++) {
+            LinAlg.axpy(outputSize, 1.0, biases, 0, sums, b * outputSize);
+        }
+        int size = batchSize * outputSize;
+        System.arraycopy(sums, 0, activations, 0, size);
+        activationFunction.activateInPlace(activations, 0, size);
+    }
+
+    public void outputDeltasBatch(double[] targets, double[] activations, int batchSize, double[] deltas) {
+        int size = batchSize * outputSize;
+        for (int k = 0; k < size; k++) {
+            deltas[k] = targets[k] - activations[k];
+        }
+        activationFunction.derivativeFromOutput(activations, 0, deltas, 0, size);
+    }
+
+    /**
+     * Дельты скрытого слоя по пакету: D = (D_next * W_next) ⊙ f'(Z), f' считается по выходам слоя Y = f(Z).
+     */
+    public void hiddenDeltasBatch(DenseLayer next, double[] nextDeltas, double[] activations, int batchSize, double[] deltas) {
+        LinAlg.gemm(false, false, batchSize, outputSize, next.outputSize,
+                1.0, nextDeltas, 0, next.outputSize, next.weights, 0, next.inputSize, 0.0, deltas, 0, outputSize);
+        activationFunction.derivativeFromOutput(activations, 0, deltas, 0, batchSize * outputSize);
+    }
+
+    /**
+     * Накопление градиентов по пакету: G_W += D^T * X, G_b += сумма дельт по примерам.
+     */
+    public void accumulateGradients(double[] input, double[] deltas, int batchSize,
+                                    double[] weightGradients, double[] biasGradients) {
+        LinAlg.gemm(true, false, outputSize, inputSize, batchSize,
+                1.0, deltas, 0, outputSize, input, 0, inputSize, 1.0, weightGradients, 0, inputSize);
+        for (int b = 0; b < batchSize; b++) {
+            LinAlg.axpy(outputSize, 1.0, deltas, b * outputSize, biasGradients, 0);
+        }
+    }
+
+    /**
+     * Прямой проход по пакету в float по float-копии параметров (смешанная точность).
+     */
+    public void forwardBatch(float[] input, int batchSize, float[] sums, float[] activations) {
+        FloatParameters parameters = floatParameters.get();
+        LinAlg.gemm(false, true, batchSize, outputSize, inputSize,
+                1f, input, 0, inputSize, parameters.weights(), 0, inputSize, 0f, sums, 0, outputSize);
+        for (int b = 0; b < batchSize; b++) {
+            LinAlg.axpy(outputSize, 1f, parameters.biases(), 0, sums, b * outputSize);
+        }
+        int size = batchSize * outputSize;
+        System.arraycopy(sums, 0, activations, 0, size);
+        activationFunction.activateInPlace(activations, 0, size);
+    }
+
+    public void outputDeltasBatch(float[] targets, float[] activations, int batchSize, float[] deltas) {
+        int size = batchSize * outputSize;
+        for (int k = 0; k < size; k++) {
+            deltas[k] = targets[k] - activations[k];
+        }
+        activationFunction.derivativeFromOutput(activations, 0, deltas, 0, size);
+    }
+
+    // float-копия следующего слоя уже синхронизирована его прямым проходом
+    public void hiddenDeltasBatch(DenseLayer next, float[] nextDeltas, float[] activations, int batchSize, float[] deltas) {
+        LinAlg.gemm(false, false, batchSize, outputSize, next.outputSize,
+                1f, nextDeltas, 0, next.outputSize, next.floatParameters.get().weights(), 0, next.inputSize,
+                0f, deltas, 0, outputSize);
+        activationFunction.derivativeFromOutput(activations, 0, deltas, 0, batchSize * outputSize);
+    }
+
+    /**
+     * Градиенты пакета считаются в float в {@code scratch} и добавляются к double-градиентам,
+     * так что накопление между пакетами и шаг оптимизатора идут в double.
+     */
+    public void accumulateGradients(float[] input, float[] deltas, int batchSize, float[] scratch,
+                                    double[] weightGradients, double[] biasGradients) {
+        LinAlg.gemm(true, false, outputSize, inputSize, batchSize,
+                1f, deltas, 0, outputSize, input, 0, inputSize, 0f, scratch, 0, inputSize);
+        for (int i = 0; i < weightGradients.length; i++) {
+            weightGradients[i] += scratch[i];
+        }
+        for (int b = 0; b < batchSize; b++) {
+            int row = b * outputSize;
+            for (int j = 0; j < outputSize; j++) {
+                biasGradients[j] += deltas[row + j];
+            }
+        }
+    }
+
+    /**
+     * Применение готовых градиентов через оптимизатор: по одному блочному шагу на матрицу весов и на bias.
+     * После шага регуляризатор оптимизатора делает проксимальный шаг по группам из {@link Regularizer#getScope()}.
+     */
+    public void applyGradients(Optimizer optimizer, double[] weightGradients, double[] biasGradients, double learningRate) {
+        int weightCount = outputSize * inputSize;
+        optimizer.step(weights, 0, weightGradients, 0, weightCount, parameterOffset, learningRate);
+        optimizer.step(biases, 0, biasGradients, 0, outputSize, parameterOffset + weightCount, learningRate);
+
+        // проксимальный шаг регуляризатора раз на шаг оптимизатора, по группам весов
+        Regularizer regularizer = optimizer.getRegularizer();
+        if (regularizer != null) {
+            int group = regularizer.getScope().groupLength(inputSize, weightCount);
+            for (int g = 0; g < weightCount; g += group) {
+                optimizer.proximalStep(weights, g, group, parameterOffset, learningRate);
+            }
+        }
+        markWeightsModified();
+    }
+
+    // число параметров слоя: веса и bias
+    public int getParameterCount() {
+        return outputSize * inputSize + outputSize;
+    }
+
+    void setParameterOffset(int parameterOffset) {
+        this.parameterOffset = parameterOffset;
+    }
+
+    /**
+     * Отмечает, что веса были изменены напрямую через {@link #getWeights()}.
+     */
+    public void markWeightsModified() {
+        version++;
+        invalidateFloatParameters();
+    }
+
+    private void invalidateFloatParameters() {
+        floatParameters.invalidate();
+    }
+
+    void syncFloatParameters() {
+        floatParameters.get();
+    }
+
+    private FloatParameters copyToFloat() {
+        float[] floatWeights = new float[weights.length];
+        float[] floatBiases = new float[outputSize];
+        for (int i = 0; i < weights.length; i++) {
+            floatWeights[i] = (float) weights[i];
+        }
+        for (int j = 0; j < outputSize; j++) {
+            floatBiases[j] = (float) biases[j];
+        }
+        return new FloatParameters(floatWeights, floatBiases);
+    }
+
+    // float-копия строки row после записи в общие массивы в обход markWeightsModified (Hogwild):
+    // строка пишется на месте в уже опубликованную копию, вся копия к этому моменту синхронизирована
+    void refreshFloatRow(int row) {
+        FloatParameters parameters = floatParameters.current();
+        int from = row * inputSize;
+        for (int i = from; i < from + inputSize; i++) {
+            parameters.weights()[i] = (float) weights[i];
+        }
+        parameters.biases()[row] = (float) biases[row];
+    }
+
+    /**
+     * Представление строки матрицы весов в виде {@link Neuron} для кода, который работает с нейронами
+     * (оптимизаторы, {@link RecurrentNeuralNetwork}). Все записи идут напрямую в массивы слоя.
+     * Массив из {@link #getWeights()} — копия строки только для чтения, изменять веса нужно через
+     * {@link #setWeight(int, double)}.
+     */
+    private final class NeuronView extends Neuron {
+
+        private final int index;
+        private final double[] row;
+        private int rowVersion = -1;
+
+        private NeuronView(int index) {
+            super(activationFunction);
+            this.index = index;
+            this.row = new double[inputSize];
+        }
+
+        @Override
+        public double[] getWeights() {
+            if (rowVersion != version) {
+                System.arraycopy(weights, index * inputSize, row, 0, inputSize);
+                rowVersion = version;
+            }
+            return row;
+        }
+
+        @Override
+        public void setWeights(double[] values) {
+            System.arraycopy(values, 0, weights, index * inputSize, inputSize);
+            version++;
+            invalidateFloatParameters();
+        }
+
+        @Override
+        public void setWeight(int i, double value) {
+            getWeights()[i] = value;
+            weights[index * inputSize + i] = value;
+            invalidateFloatParameters();
+        }
+
+        @Override
+        public double getBias() {
+            return biases[index];
+        }
+
+        @Override
+        public void setBias(double bias) {
+            biases[index] = bias;
+            invalidateFloatParameters();
+        }
+
+        @Override
+        public double getOutput() {
+            return outputs[index];
+        }
+
+        @Override
+        public void setOutput(double output) {
+            outputs[index] = output;
+        }
+
+        @Override
+        public double getInputSum() {
+            return inputSums[index];
+        }
+
+        @Override
+        public void setInputSum(double inputSum) {
+            inputSums[index] = inputSum;
+        }
+
+        @Override
+        public double getDelta() {
+            return deltas[index];
+        }
+
+        @Override
+        public void setDelta(double delta) {
+            deltas[index] = delta;
+        }
+
+        @Override
+        public int getParameterIndex() {
+            return parameterOffset + index * inputSize;
+        }
+
+        @Override
+        public int getBiasIndex() {
+            return parameterOffset + outputSize * inputSize + index;
+        }
+
+        @Override
+        public double forward(double[] inputs) {
+            double sum = biases[index] + LinAlg.dot(weights, index * inputSize, inputs, 0, inputSize);
+            inputSums[index] = sum;
+            outputs[index] = activationFunction.activate(sum);
+            return outputs[index];
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package service;
 
+import utility.linalg.FastActivations;
+import utility.linalg.LinAlg;
+
 import java.util.Random;
 
 public class ElmanRNN {
@@ -13,6 +16,9 @@ public class ElmanRNN {
 
     float[] context; // предыдущие скрытые состояния
 
+    // tanh и сигмоида по таблице (FastActivations), ошибка не больше 1.5e-6
+    boolean fastMath;
+
     Random random = new Random();
 
     public ElmanRNN(int inputSize, int hiddenSize, int outputSize) {
@@ -44,27 +50,21 @@ public class ElmanRNN {
 
         // Вход + контекст
         for (int i = 0; i < hiddenSize; i++) {
-            float sum = 0.0f;
-            for (int j = 0; j < inputSize; j++) {
-                sum += input[j] * wInputHidden[i][j];
-            }
-            for (int j = 0; j < hiddenSize; j++) {
-                sum += context[j] * wContextHidden[i][j];
-            }
-            hidden[i] = (float) Math.tanh(sum);
+            float sum = LinAlg.dot(input, wInputHidden[i], inputSize)
+                    + LinAlg.dot(context, wContextHidden[i], hiddenSize);
+            hidden[i] = sum;
         }
+        activateHidden(hidden);
 
         // Копируем hidden в context на следующий шаг
         System.arraycopy(hidden, 0, context, 0, hiddenSize);
 
         float[] output = new float[outputSize];
         for (int i = 0; i < outputSize; i++) {
-            float sum = 0.0f;
-            for (int j = 0; j < hiddenSize; j++) {
-                sum += hidden[j] * wHiddenOutput[i][j];
-            }
-            output[i] = sigmoid(sum); // бинарный выход
+            float sum = LinAlg.dot(hidden, wHiddenOutput[i], hiddenSize);
+            output[i] = sum;
         }
+        activateOutput(output); // бинарный выход
 
         return output;
     }
@@ -80,27 +80,21 @@ public class ElmanRNN {
                 // --- FORWARD ---
                 float[] hidden = new float[hiddenSize];
                 for (int i = 0; i < hiddenSize; i++) {
-                    float sum = 0.0f;
-                    for (int j = 0; j < inputSize; j++) {
-                        sum += input[j] * wInputHidden[i][j];
-                    }
-                    for (int j = 0; j < hiddenSize; j++) {
-                        sum += context[j] * wContextHidden[i][j];
-                    }
-                    hidden[i] = (float) Math.tanh(sum);
+                    float sum = LinAlg.dot(input, wInputHidden[i], inputSize)
+                            + LinAlg.dot(context, wContextHidden[i], hiddenSize);
+                    hidden[i] = sum;
                 }
+                activateHidden(hidden);
 
                 // Копируем hidden в context на следующий шаг
                 System.arraycopy(hidden, 0, context, 0, hiddenSize);
 
                 float[] output = new float[outputSize];
                 for (int i = 0; i < outputSize; i++) {
-                    float sum = 0.0f;
-                    for (int j = 0; j < hiddenSize; j++) {
-                        sum += hidden[j] * wHiddenOutput[i][j];
-                    }
-                    output[i] = sigmoid(sum);
+                    float sum = LinAlg.dot(hidden, wHiddenOutput[i], hiddenSize);
+                    output[i] = sum;
                 }
+                activateOutput(output);
 
                 // --- BACKWARD ---
                 float[] outputErrors = new float[outputSize];
@@ -110,28 +104,21 @@ public class ElmanRNN {
                 }
 
                 float[] hiddenErrors = new float[hiddenSize];
+                for (int j = 0; j < outputSize; j++) {
+                    LinAlg.axpy(hiddenSize, outputErrors[j], wHiddenOutput[j], hiddenErrors);
+                }
                 for (int i = 0; i < hiddenSize; i++) {
-                    float sum = 0.0f;
-                    for (int j = 0; j < outputSize; j++) {
-                        sum += outputErrors[j] * wHiddenOutput[j][i];
-                    }
-                    hiddenErrors[i] = (1 - hidden[i] * hidden[i]) * sum; // tanh' = 1 - x²
+                    hiddenErrors[i] *= (1 - hidden[i] * hidden[i]); // tanh' = 1 - x²
                 }
 
                 // --- UPDATE WEIGHTS ---
                 for (int i = 0; i < outputSize; i++) {
-                    for (int j = 0; j < hiddenSize; j++) {
-                        wHiddenOutput[i][j] += learningRate * outputErrors[i] * hidden[j];
-                    }
+                    LinAlg.axpy(hiddenSize, learningRate * outputErrors[i], hidden, wHiddenOutput[i]);
                 }
 
                 for (int i = 0; i < hiddenSize; i++) {
-                    for (int j = 0; j < inputSize; j++) {
-                        wInputHidden[i][j] += learningRate * hiddenErrors[i] * input[j];
-                    }
-                    for (int j = 0; j < hiddenSize; j++) {
-                        wContextHidden[i][j] += learningRate * hiddenErrors[i] * context[j];
-                    }
+                    LinAlg.axpy(inputSize, learningRate * hiddenErrors[i], input, wInputHidden[i]);
+                    LinAlg.axpy(hiddenSize, learningRate * hiddenErrors[i], context, wContextHidden[i]);
                 }
             }
 
@@ -141,8 +128,24 @@ public class ElmanRNN {
         }
     }
 
-    private float sigmoid(float x) {
-        return (float)(1.0 / (1.0 + Math.exp(-x)));
+    public void setFastMath(boolean fastMath) {
+        this.fastMath = fastMath;
+    }
+
+    private void activateHidden(float[] hidden) {
+        if (fastMath) {
+            FastActivations.tanh(hidden, 0, hiddenSize);
+        } else {
+            LinAlg.tanh(hidden, 0, hiddenSize);
+        }
+    }
+
+    private void activateOutput(float[] output) {
+        if (fastMath) {
+            FastActivations.sigmoid(output, 0, outputSize);
+        } else {
+            LinAlg.sigmoid(output, 0, outputSize);
+        }
     }
 
     public void resetContext() {
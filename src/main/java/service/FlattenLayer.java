@@ -2,43 +2,16 @@ package service;
 
 public class FlattenLayer {
 
-    private int depth;
-    private int width;
-    private int height;
+    private int[] inputShape;
 
-    // Прямой проход: свёртка 3D-массива в 1D
-    public double[] forward(double[][][] input) {
-        depth = input.length;
-        width = input[0].length;
-        height = input[0][0].length;
-
-        double[] output = new double[depth * width * height];
-        int index = 0;
-
-        for (int d = 0; d < depth; d++) {
-            for (int i = 0; i < width; i++) {
-                for (int j = 0; j < height; j++) {
-                    output[index++] = input[d][i][j];
-                }
-            }
-        }
-
-        return output;
+    // Прямой проход: [N, C, H, W] -> [N, C * H * W] представлением над теми же данными
+    public Tensor forward(Tensor input) {
+        inputShape = input.shape();
+        return input.contiguous().reshape(input.dim(0), -1);
     }
 
-    // Обратный проход: разворачиваем 1D обратно в 3D
-    public double[][][] backward(double[] dOut) {
-        double[][][] output = new double[depth][width][height];
-        int index = 0;
-
-        for (int d = 0; d < depth; d++) {
-            for (int i = 0; i < width; i++) {
-                for (int j = 0; j < height; j++) {
-                    output[d][i][j] = dOut[index++];
-                }
-            }
-        }
-
-        return output;
+    // Обратный проход: градиент возвращается к форме входа, тоже без копирования
+    public Tensor backward(Tensor dOut) {
+        return dOut.contiguous().reshape(inputShape);
     }
 }
@@ -1,7 +1,12 @@
 package service;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import service.optimizer.Optimizer;
+import service.optimizer.impl.SGDOptimizer;
+import service.regularizer.Regularizer;
 import utility.ActivationFunctions;
+import utility.linalg.LinAlg;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -11,96 +16,252 @@ public class FullyConnectedLayer {
 
     private final int inputSize;
     private final int outputSize;
-    private final double[][] weights;
+    // веса построчно [outputSize x inputSize]: вес (i, j) лежит в weights[i * inputSize + j]
+    private final double[] weights;
     private final double[] biases;
     private final Random rand = new Random();
     private final double learningRate;
 
-    private double[] lastInput;
+    // последний обучающий пакет [N, inputSize], суммы до активации и выход [N, outputSize];
+    // буферы переиспользуются, пока не изменится размер пакета
+    private Tensor lastInput;
     private double[] lastPreActivation;
-    private double[] lastOutput;
+    private Tensor lastOutput;
+    @Getter(AccessLevel.NONE)
+    private double[] activationGradient;
+    @Getter(AccessLevel.NONE)
+    private Tensor inputGradient;
+
+    // по умолчанию обычный SGD; состояние адресуется как i * inputSize + j
+    private Optimizer optimizer = new SGDOptimizer();
+    // направление спуска по весам [outputSize x inputSize] последнего пакета
+    @Getter(AccessLevel.NONE)
+    private final double[] weightGradient;
+    // живые веса после прунинга; null — слой плотный
+    private SparsityMask sparsityMask;
+
+    // float-копия весов построчно для вывода в Precision.FLOAT, обновляется после изменения весов
+    private record FloatWeights(float[] weights, float[] biases) {
+    }
+
+    @Getter(AccessLevel.NONE)
+    private final VersionedCopy<FloatWeights> floatWeights = new VersionedCopy<>(this::copyToFloat);
 
     public FullyConnectedLayer(int inputSize, int outputSize, double learningRate) {
         this.inputSize = inputSize;
         this.outputSize = outputSize;
         this.learningRate = learningRate;
 
-        this.weights = new double[outputSize][inputSize];
+        this.weights = new double[outputSize * inputSize];
         this.biases = new double[outputSize];
+        this.weightGradient = new double[outputSize * inputSize];
 
         // Xavier/Glorot initialization
         double scale = Math.sqrt(2.0 / (inputSize + outputSize));
         for (int i = 0; i < outputSize; i++) {
             for (int j = 0; j < inputSize; j++) {
-                weights[i][j] = rand.nextDouble() * scale * 2 - scale;
+                weights[i * inputSize + j] = rand.nextDouble() * scale * 2 - scale;
             }
             biases[i] = 0;
         }
     }
 
+    // Прямой проход одного примера с сохранением состояния; возвращает копию, буферы переиспользует только Tensor-API
     public double[] forward(double[] input) {
         if (input.length != inputSize) {
             throw new IllegalArgumentException("Input size mismatch");
         }
+        return forward(Tensor.wrap(input, 1, inputSize)).getData().clone();
+    }
 
-        lastInput = input;
-        lastPreActivation = new double[outputSize];
-        double[] output = new double[outputSize];
+    // Прямой проход по пакету [N, inputSize] с сохранением состояния для backward; выход переиспользуется следующим вызовом
+    public Tensor forward(Tensor input) {
+        Tensor rows = checkInput(input);
+        int batch = rows.dim(0);
+        lastInput = rows;
+        if (lastOutput == null || !lastOutput.hasShape(batch, outputSize)) {
+            lastPreActivation = new double[batch * outputSize];
+            lastOutput = new Tensor(batch, outputSize);
+        }
+        affine(rows.getData(), rows.getOffset(), batch, lastPreActivation, lastOutput.getData(), 0);
+        return lastOutput;
+    }
 
-        for (int i = 0; i < outputSize; i++) {
-            double sum = biases[i];
-            for (int j = 0; j < inputSize; j++) {
-                sum += weights[i][j] * input[j];
-            }
-            lastPreActivation[i] = sum;
-            output[i] = ActivationFunctions.leakyReLU(sum);
+    // Прямой проход без сохранения состояния, в заранее выделенный массив
+    public double[] forward(double[] input, double[] output) {
+        if (input.length != inputSize) {
+            throw new IllegalArgumentException("Input size mismatch");
         }
+        affine(input, 0, 1, null, output, 0);
+        return output;
+    }
 
-        lastOutput = output;
+    // то же для пакета, в заранее выделенный непрерывный тензор [N, outputSize]
+    public Tensor forward(Tensor input, Tensor output) {
+        Tensor rows = checkInput(input);
+        affine(rows.getData(), rows.getOffset(), rows.dim(0), null, output.getData(), output.getOffset());
         return output;
     }
 
-    public double[] backward(double[] gradient) {
-        double[] inputGradient = new double[inputSize];
-        double[][] weightGradients = new double[outputSize][inputSize];
-        double[] biasGradients = new double[outputSize];
+    private Tensor checkInput(Tensor input) {
+        if (input.rank() != 2 || input.dim(1) != inputSize) {
+            throw new IllegalArgumentException("Input size mismatch");
+        }
+        return input.contiguous();
+    }
+
+    // leakyReLU(X * W^T + b) для пакета X [N x inputSize] одним умножением; preActivation может быть null
+    private void affine(double[] input, int inputOffset, int batch, double[] preActivation, double[] output, int outputOffset) {
+        LinAlg.gemm(false, true, batch, outputSize, inputSize,
+                1.0, input, inputOffset, inputSize, weights, 0, inputSize, 0.0, output, outputOffset, outputSize);
+        for (int n = 0; n < batch; n++) {
+            for (int i = 0; i < outputSize; i++) {
+                int k = outputOffset + n * outputSize + i;
+                double sum = output[k] + biases[i];
+                if (preActivation != null) {
+                    preActivation[n * outputSize + i] = sum;
+                }
+                output[k] = ActivationFunctions.leakyReLU(sum);
+            }
+        }
+    }
+
+    // Прямой проход в float без сохранения состояния
+    public float[] forward(float[] input, float[] output, Precision precision) {
+        if (input.length != inputSize) {
+            throw new IllegalArgumentException("Input size mismatch");
+        }
+        FloatWeights parameters = floatWeights.get();
 
-        double[] activationGradient = new double[outputSize];
         for (int i = 0; i < outputSize; i++) {
-            activationGradient[i] = gradient[i] * (lastPreActivation[i] > 0 ? 1 : 0);
+            double sum = precision == Precision.FLOAT_DOUBLE_ACCUMULATION
+                    ? LinAlg.dsdot(parameters.weights(), i * inputSize, input, 0, inputSize)
+                    : LinAlg.dot(parameters.weights(), i * inputSize, input, 0, inputSize);
+            output[i] = (float) ActivationFunctions.leakyReLU(sum + parameters.biases()[i]);
         }
+        return output;
+    }
+
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+        optimizer.bind(outputSize * inputSize);
+    }
+
+    // Вызывать после изменения весов напрямую через getWeights()
+    public void markWeightsModified() {
+        floatWeights.invalidate();
+    }
 
+    private FloatWeights copyToFloat() {
+        float[] floatWeights = new float[outputSize * inputSize];
+        float[] floatBiases = new float[outputSize];
         for (int i = 0; i < outputSize; i++) {
-            biasGradients[i] = activationGradient[i];
             for (int j = 0; j < inputSize; j++) {
-                weightGradients[i][j] = activationGradient[i] * lastInput[j];
+                floatWeights[i * inputSize + j] = (float) weights[i * inputSize + j];
             }
+            floatBiases[i] = (float) biases[i];
         }
+        return new FloatWeights(floatWeights, floatBiases);
+    }
 
-        for (int j = 0; j < inputSize; j++) {
-            for (int i = 0; i < outputSize; i++) {
-                inputGradient[j] += weights[i][j] * activationGradient[i];
-            }
+    // градиент входа одного примера, копией
+    public double[] backward(double[] gradient) {
+        return backward(Tensor.wrap(gradient, 1, outputSize)).getData().clone();
+    }
+
+    /**
+     * Обратный проход по градиенту выхода [N, outputSize] последнего {@link #forward(Tensor)}.
+     * Градиенты весов суммируются по пакету и применяются одним шагом оптимизатора.
+     * Возвращает градиент входа [N, inputSize]; тензор переиспользуется следующим вызовом.
+     */
+    public Tensor backward(Tensor gradient) {
+        int batch = lastInput.dim(0);
+        if (!gradient.hasShape(lastOutput.shape())) {
+            throw new IllegalArgumentException("Gradient shape " + Arrays.toString(gradient.shape())
+                    + " does not match output " + Arrays.toString(lastOutput.shape()));
+        }
+        Tensor grad = gradient.contiguous();
+        double[] g = grad.getData();
+        double[] input = lastInput.getData();
+        int inputOffset = lastInput.getOffset();
+        if (inputGradient == null || !inputGradient.hasShape(batch, inputSize)) {
+            inputGradient = new Tensor(batch, inputSize);
+            activationGradient = new double[batch * outputSize];
+        } else {
+            inputGradient.fill(0.0);
+        }
+        double[] dx = inputGradient.getData();
+
+        for (int k = 0; k < activationGradient.length; k++) {
+            activationGradient[k] = g[grad.getOffset() + k] * (lastPreActivation[k] > 0 ? 1 : 0);
         }
 
+        if (sparsityMask != null) {
+            backwardSparse(activationGradient, batch, input, inputOffset, dx);
+            regularize();
+            markWeightsModified();
+            return inputGradient;
+        }
+
+        // dX = dA * W: [N x outputSize] * [outputSize x inputSize]
+        LinAlg.gemm(false, false, batch, inputSize, outputSize,
+                1.0, activationGradient, 0, outputSize, weights, 0, inputSize, 0.0, dx, 0, inputSize);
+
+        // направление спуска -dA^T * X: [outputSize x N] * [N x inputSize], затем шаг оптимизатора по строке
+        LinAlg.gemm(true, false, outputSize, inputSize, batch,
+                -1.0, activationGradient, 0, outputSize, input, inputOffset, inputSize, 0.0, weightGradient, 0, inputSize);
         for (int i = 0; i < outputSize; i++) {
-            for (int j = 0; j < inputSize; j++) {
-                if (weights[i][j] != 0) {
-                    weights[i][j] -= learningRate * weightGradients[i][j];
-                }
-            }
+            int row = i * inputSize;
+            optimizer.step(weights, row, weightGradient, row, inputSize, row, learningRate);
         }
 
+        regularize();
+        markWeightsModified();
         return inputGradient;
     }
 
+    // проксимальный шаг регуляризатора: группа — строка весов нейрона или весь слой
+    private void regularize() {
+        Regularizer regularizer = optimizer.getRegularizer();
+        if (regularizer == null) {
+            return;
+        }
+        int rows = regularizer.getScope().groupLength(1, outputSize);
+        for (int from = 0; from < outputSize; from += rows) {
+            optimizer.proximalStep(weights, from * inputSize, rows * inputSize, from * inputSize, learningRate);
+        }
+    }
+
+    // то же по живым весам маски: обрезанные веса не читаются и не обновляются
+    private void backwardSparse(double[] activationGradient, int batch, double[] input, int inputOffset, double[] dx) {
+        int[] rowPointers = sparsityMask.getRowPointers();
+        int[] columns = sparsityMask.getColumnIndices();
+        for (int i = 0; i < outputSize; i++) {
+            int row = i * inputSize;
+            int from = rowPointers[i];
+            int to = rowPointers[i + 1];
+            for (int p = from; p < to; p++) {
+                weightGradient[row + columns[p]] = 0.0;
+            }
+            for (int n = 0; n < batch; n++) {
+                double scale = activationGradient[n * outputSize + i];
+                int x = inputOffset + n * inputSize;
+                for (int p = from; p < to; p++) {
+                    int j = columns[p];
+                    dx[n * inputSize + j] += scale * weights[row + j];
+                    weightGradient[row + j] -= scale * input[x + j];
+                }
+            }
+            optimizer.step(weights, row, weightGradient, row, columns, from, to, row, learningRate);
+        }
+    }
+
     public void pruneWeights(double sparsity) {
         if (sparsity <= 0 || sparsity >= 1) {
             throw new IllegalArgumentException("Sparsity must be in (0, 1)");
         }
 
         List<Double> absWeights = Arrays.stream(weights)
-                .flatMapToDouble(Arrays::stream)
                 .filter(w -> w != 0)
                 .map(Math::abs)
                 .boxed()
@@ -115,36 +276,35 @@ public class FullyConnectedLayer {
         int thresholdIndex = (int) (sparsity * (absWeights.size() - 1));
         double threshold = absWeights.get(thresholdIndex);
 
-        int nonZeroBefore = (int) Arrays.stream(weights).flatMapToDouble(Arrays::stream).filter(w -> w != 0).count();
+        int nonZeroBefore = (int) Arrays.stream(weights).filter(w -> w != 0).count();
 
-        for (int i = 0; i < outputSize; i++) {
-            for (int j = 0; j < inputSize; j++) {
-                if (Math.abs(weights[i][j]) < threshold) {
-                    weights[i][j] = 0;
-                }
+        for (int k = 0; k < weights.length; k++) {
+            if (Math.abs(weights[k]) < threshold) {
+                weights[k] = 0;
             }
         }
 
-        int nonZeroAfter = (int) Arrays.stream(weights).flatMapToDouble(Arrays::stream).filter(w -> w != 0).count();
+        sparsityMask = SparsityMask.fromNonZero(weights, outputSize, inputSize);
+        markWeightsModified();
+
+        int nonZeroAfter = (int) Arrays.stream(weights).filter(w -> w != 0).count();
         System.out.printf("Прунинг полносвязного слоя: было %d, стало %d, удалено %d весов.\n",
                 nonZeroBefore, nonZeroAfter, nonZeroBefore - nonZeroAfter);
     }
 
     public void quantizeWeights() {
-        double[] flatWeights = Arrays.stream(weights).flatMapToDouble(Arrays::stream).toArray();
-        double min = Arrays.stream(flatWeights).min().orElse(0);
-        double max = Arrays.stream(flatWeights).max().orElse(1);
+        double min = Arrays.stream(weights).min().orElse(0);
+        double max = Arrays.stream(weights).max().orElse(1);
         double scale = (max - min) / 255.0;
 
-        for (int i = 0; i < outputSize; i++) {
-            for (int j = 0; j < inputSize; j++) {
-                if (weights[i][j] != 0) {
-                    int quantized = (int) ((weights[i][j] - min) / scale);
-                    weights[i][j] = min + quantized * scale;
-                }
+        for (int k = 0; k < weights.length; k++) {
+            if (weights[k] != 0) {
+                int quantized = (int) ((weights[k] - min) / scale);
+                weights[k] = min + quantized * scale;
             }
         }
 
+        markWeightsModified();
         System.out.printf("Квантизация FC: [%.6f, %.6f] -> 256 уровней\n", min, max);
     }
 }
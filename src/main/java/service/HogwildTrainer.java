@@ -0,0 +1,133 @@
+package service;
+
+import lombok.Getter;
+import service.optimizer.impl.SGDOptimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронное обучение {@link NeuralNetwork} в стиле Hogwild.
+ * Потоки берут номера примеров из общего перемешанного потока индексов, считают градиент по текущим
+ * (возможно, частично обновлённым) весам и сразу записывают шаг SGD в общие массивы слоёв без блокировок
+ * и без барьера между примерами.
+ * <p>
+ * Поддерживается только {@link SGDOptimizer}: моменты оптимизаторов с состоянием при таких гонках
+ * теряют смысл. Режим записи задаётся {@link UpdateMode}, подробности гонок описаны
+ * в {@link SGDOptimizer#updateShared}.
+ * <p>
+ * {@link UpdateMode#ATOMIC} сделан через compareAndSet по отдельной ячейке, а не через блокировки по полосам строк:
+ * шаг Hogwild пишет только ненулевые компоненты градиента, так что CAS по ячейке не сериализует потоки,
+ * которые обновляют разные веса одной строки, и не требует массива замков рядом с весами.
+ * <p>
+ * В смешанной точности ({@link NeuralNetwork#isMixedPrecision()}) потоки читают float-копию весов, поэтому
+ * после записи строки её float-копия обновляется сразу, а не в конце эпохи.
+ */
+@Getter
+public class HogwildTrainer {
+
+    public enum UpdateMode {
+        // обычная запись: возможны потерянные шаги, но нет никаких синхронизаций
+        RACY,
+        // compareAndSet по каждой ячейке: шаги не теряются
+        ATOMIC
+    }
+
+    private final NeuralNetwork network;
+    private final SGDOptimizer optimizer;
+    private final ForkJoinPool pool;
+    private final int threads;
+    private final UpdateMode updateMode;
+    private final Random random;
+
+    public HogwildTrainer(NeuralNetwork network, ForkJoinPool pool, int threads, UpdateMode updateMode, Random random) {
+        if (!(network.getOptimizer() instanceof SGDOptimizer sgd)) {
+            throw new IllegalArgumentException("Hogwild training supports only SGDOptimizer");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads count must be positive");
+        }
+        this.network = network;
+        this.optimizer = sgd;
+        this.pool = pool;
+        this.threads = threads;
+        this.updateMode = updateMode;
+        this.random = random;
+    }
+
+    public HogwildTrainer(NeuralNetwork network, ForkJoinPool pool, UpdateMode updateMode) {
+        this(network, pool, pool.getParallelism(), updateMode, new Random());
+    }
+
+    /**
+     * Одна эпоха: каждый пример обрабатывается ровно один раз в случайном порядке.
+     */
+    public void trainEpoch(double[][] inputs, double[][] targets) {
+        int[] order = shuffledIndices(inputs.length);
+        AtomicInteger cursor = new AtomicInteger();
+        if (network.isMixedPrecision()) {
+            // дальше строки float-копии обновляются по одной после каждой записи
+            for (DenseLayer layer : network.getLayers()) {
+                layer.syncFloatParameters();
+            }
+        }
+
+        List<ForkJoinTask<?>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(ForkJoinTask.adapt(() -> runWorker(inputs, targets, order, cursor)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(workers)));
+
+        // копии строк у представлений нейронов нужно перечитать после прямых записей
+        for (DenseLayer layer : network.getLayers()) {
+            layer.markWeightsModified();
+        }
+    }
+
+    private void runWorker(double[][] inputs, double[][] targets, int[] order, AtomicInteger cursor) {
+        List<DenseLayer> layers = network.getLayers();
+        BatchWorkspace ws = network.createWorkspace(1);
+        boolean atomic = updateMode == UpdateMode.ATOMIC;
+        boolean mixedPrecision = network.isMixedPrecision();
+        double learningRate = network.getLearningRate();
+
+        int position;
+        while ((position = cursor.getAndIncrement()) < order.length) {
+            int sample = order[position];
+            ws.clearGradients();
+            network.computeGradients(ws, inputs, targets, sample, sample + 1);
+
+            for (int l = 0; l < layers.size(); l++) {
+                DenseLayer layer = layers.get(l);
+                int inputSize = layer.getInputSize();
+                double[] weightGradients = ws.getWeightGradients()[l];
+                double[] biasGradients = ws.getBiasGradients()[l];
+                for (int j = 0; j < layer.getOutputSize(); j++) {
+                    optimizer.updateShared(layer.getWeights(), j * inputSize, weightGradients, j * inputSize, inputSize,
+                            layer.getBiases(), j, biasGradients[j], learningRate, atomic);
+                    if (mixedPrecision) {
+                        layer.refreshFloatRow(j);
+                    }
+                }
+            }
+        }
+    }
+
+    private int[] shuffledIndices(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
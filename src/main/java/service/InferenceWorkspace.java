@@ -0,0 +1,48 @@
+package service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Буферы вывода {@link NeuralNetwork}, выделяемые один раз по топологии сети.
+ * Прямой проход через {@link NeuralNetwork#predict(double[], InferenceWorkspace)} пишет только сюда
+ * и не выделяет память. Экземпляр не потокобезопасен: у каждого потока должен быть свой.
+ * Float-буферы используются при выводе с точностью {@link Precision#FLOAT}.
+ */
+@Getter
+public class InferenceWorkspace {
+
+    private final double[][] layerOutputs;
+    private final float[] floatInput;
+    private final float[][] floatLayerOutputs;
+
+    public InferenceWorkspace(List<DenseLayer> layers) {
+        this.layerOutputs = new double[layers.size()][];
+        this.floatLayerOutputs = new float[layers.size()][];
+        for (int l = 0; l < layers.size(); l++) {
+            layerOutputs[l] = new double[layers.get(l).getOutputSize()];
+            floatLayerOutputs[l] = new float[layers.get(l).getOutputSize()];
+        }
+        this.floatInput = new float[layers.isEmpty() ? 0 : layers.getFirst().getInputSize()];
+    }
+
+    public double[] getOutput() {
+        return layerOutputs[layerOutputs.length - 1];
+    }
+
+    public boolean matches(List<DenseLayer> layers) {
+        if (layers.size() != layerOutputs.length) {
+            return false;
+        }
+        if (!layers.isEmpty() && layers.getFirst().getInputSize() != floatInput.length) {
+            return false;
+        }
+        for (int l = 0; l < layerOutputs.length; l++) {
+            if (layerOutputs[l].length != layers.get(l).getOutputSize()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
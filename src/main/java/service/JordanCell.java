@@ -1,6 +1,8 @@
 package service;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import utility.linalg.LinAlg;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,6 +29,14 @@ public class JordanCell {
 
     private final Random random = new Random();
 
+    // float-копия параметров для вывода в Precision.FLOAT, построчно; создаётся при первом обращении
+    private record FloatParameters(float[] inputHidden, float[] contextHidden, float[] hiddenOutput,
+                                   float[] biasHidden, float[] biasOutput) {
+    }
+
+    @Getter(AccessLevel.NONE)
+    private final VersionedCopy<FloatParameters> floatParameters = new VersionedCopy<>(this::copyToFloat);
+
     public JordanCell(int inputSize, int hiddenSize, int outputSize) {
         this.inputSize = inputSize;
         this.hiddenSize = hiddenSize;
@@ -47,22 +57,15 @@ public class JordanCell {
         double[] hiddenInput = new double[hiddenSize];
 
         for (int i = 0; i < hiddenSize; i++) {
-            hiddenInput[i] = biasHidden[i];
-            for (int j = 0; j < inputSize; j++) {
-                hiddenInput[i] += weightsInputHidden[i][j] * input[j];
-            }
-            for (int j = 0; j < contextSize; j++) {
-                hiddenInput[i] += weightsContextHidden[i][j] * contextState[j];
-            }
+            hiddenInput[i] = biasHidden[i]
+                    + LinAlg.dot(weightsInputHidden[i], input, inputSize)
+                    + LinAlg.dot(weightsContextHidden[i], contextState, contextSize);
             hiddenInput[i] = sigmoid(hiddenInput[i]);
         }
 
         double[] output = new double[outputSize];
         for (int i = 0; i < outputSize; i++) {
-            output[i] = biasOutput[i];
-            for (int j = 0; j < hiddenSize; j++) {
-                output[i] += weightsHiddenOutput[i][j] * hiddenInput[j];
-            }
+            output[i] = biasOutput[i] + LinAlg.dot(weightsHiddenOutput[i], hiddenInput, hiddenSize);
             output[i] = sigmoid(output[i]);
         }
 
@@ -76,6 +79,72 @@ public class JordanCell {
         return output;
     }
 
+    /**
+     * Шаг вывода в float без сохранения истории и без изменения {@link #getContextState()}:
+     * {@code context} — выход предыдущего шага, {@code hidden} — буфер на hiddenSize элементов.
+     * Выход пишется в {@code output}, на следующем шаге его передают как context.
+     * При {@link Precision#FLOAT_DOUBLE_ACCUMULATION} скалярные произведения накапливаются в double.
+     */
+    public float[] forward(float[] input, float[] context, float[] hidden, float[] output, Precision precision) {
+        FloatParameters parameters = floatParameters.get();
+        float[] floatInputHidden = parameters.inputHidden();
+        float[] floatContextHidden = parameters.contextHidden();
+        float[] floatHiddenOutput = parameters.hiddenOutput();
+        float[] floatBiasHidden = parameters.biasHidden();
+        float[] floatBiasOutput = parameters.biasOutput();
+        if (precision == Precision.FLOAT_DOUBLE_ACCUMULATION) {
+            for (int i = 0; i < hiddenSize; i++) {
+                hidden[i] = (float) (floatBiasHidden[i]
+                        + LinAlg.dsdot(floatInputHidden, i * inputSize, input, 0, inputSize)
+                        + LinAlg.dsdot(floatContextHidden, i * contextSize, context, 0, contextSize));
+            }
+        } else {
+            LinAlg.gemv(hiddenSize, inputSize, floatInputHidden, 0, inputSize, input, 0, 0f, hidden, 0);
+            LinAlg.gemv(hiddenSize, contextSize, floatContextHidden, 0, contextSize, context, 0, 1f, hidden, 0);
+            LinAlg.axpy(hiddenSize, 1f, floatBiasHidden, 0, hidden, 0);
+        }
+        LinAlg.sigmoid(hidden, 0, hiddenSize);
+
+        if (precision == Precision.FLOAT_DOUBLE_ACCUMULATION) {
+            for (int i = 0; i < outputSize; i++) {
+                output[i] = (float) (floatBiasOutput[i] + LinAlg.dsdot(floatHiddenOutput, i * hiddenSize, hidden, 0, hiddenSize));
+            }
+        } else {
+            LinAlg.gemv(outputSize, hiddenSize, floatHiddenOutput, 0, hiddenSize, hidden, 0, 0f, output, 0);
+            LinAlg.axpy(outputSize, 1f, floatBiasOutput, 0, output, 0);
+        }
+        LinAlg.sigmoid(output, 0, outputSize);
+        return output;
+    }
+
+    /**
+     * Отмечает, что веса были изменены напрямую через геттеры.
+     */
+    public void markWeightsModified() {
+        floatParameters.invalidate();
+    }
+
+    private FloatParameters copyToFloat() {
+        FloatParameters parameters = new FloatParameters(new float[hiddenSize * inputSize],
+                new float[hiddenSize * contextSize], new float[outputSize * hiddenSize],
+                new float[hiddenSize], new float[outputSize]);
+        copyRows(weightsInputHidden, parameters.inputHidden());
+        copyRows(weightsContextHidden, parameters.contextHidden());
+        copyRows(weightsHiddenOutput, parameters.hiddenOutput());
+        copyRows(new double[][]{biasHidden}, parameters.biasHidden());
+        copyRows(new double[][]{biasOutput}, parameters.biasOutput());
+        return parameters;
+    }
+
+    private static void copyRows(double[][] rows, float[] target) {
+        int index = 0;
+        for (double[] row : rows) {
+            for (double value : row) {
+                target[index++] = (float) value;
+            }
+        }
+    }
+
     public void backward(List<double[]> inputs, List<double[]> targets, double learningRate) {
         int T = inputs.size();
 
@@ -103,28 +172,22 @@ public class JordanCell {
                 dOut[i] = error * y * (1 - y); // сигмоида
                 dB_o[i] += dOut[i];
 
-                for (int j = 0; j < hiddenSize; j++) {
-                    dW_ho[i][j] += dOut[i] * hidden[j];
-                }
+                LinAlg.axpy(hiddenSize, dOut[i], hidden, dW_ho[i]);
             }
 
             // --- Скрытый слой ---
+            // W_ho^T * dOut, по строкам W_ho
             double[] dHidden = new double[hiddenSize];
+            for (int j = 0; j < outputSize; j++) {
+                LinAlg.axpy(hiddenSize, dOut[j], weightsHiddenOutput[j], dHidden);
+            }
             for (int i = 0; i < hiddenSize; i++) {
                 double h = hidden[i];
-                double sum = 0.0;
-                for (int j = 0; j < outputSize; j++) {
-                    sum += weightsHiddenOutput[j][i] * dOut[j];
-                }
-                dHidden[i] = sum * h * (1 - h);
+                dHidden[i] *= h * (1 - h);
                 dB_h[i] += dHidden[i];
 
-                for (int j = 0; j < inputSize; j++) {
-                    dW_ih[i][j] += dHidden[i] * input[j];
-                }
-                for (int j = 0; j < contextSize; j++) {
-                    dW_ch[i][j] += dHidden[i] * context[j];
-                }
+                LinAlg.axpy(inputSize, dHidden[i], input, dW_ih[i]);
+                LinAlg.axpy(contextSize, dHidden[i], context, dW_ch[i]);
             }
 
             // Простой перенос ошибки для контекста (опционально)
@@ -133,22 +196,18 @@ public class JordanCell {
 
         // Обновление весов и bias
         for (int i = 0; i < hiddenSize; i++) {
-            for (int j = 0; j < inputSize; j++) {
-                weightsInputHidden[i][j] -= learningRate * dW_ih[i][j];
-            }
-            for (int j = 0; j < contextSize; j++) {
-                weightsContextHidden[i][j] -= learningRate * dW_ch[i][j];
-            }
+            LinAlg.axpy(inputSize, -learningRate, dW_ih[i], weightsInputHidden[i]);
+            LinAlg.axpy(contextSize, -learningRate, dW_ch[i], weightsContextHidden[i]);
             biasHidden[i] -= learningRate * dB_h[i];
         }
 
         for (int i = 0; i < outputSize; i++) {
-            for (int j = 0; j < hiddenSize; j++) {
-                weightsHiddenOutput[i][j] -= learningRate * dW_ho[i][j];
-            }
+            LinAlg.axpy(hiddenSize, -learningRate, dW_ho[i], weightsHiddenOutput[i]);
             biasOutput[i] -= learningRate * dB_o[i];
         }
 
+        markWeightsModified();
+
         // Очистка истории
         hiddenHistory.clear();
         contextHistory.clear();
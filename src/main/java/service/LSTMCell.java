@@ -1,9 +1,13 @@
 package service;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import service.activationfunction.ActivationFunction;
 import service.activationfunction.impl.Sigmoid;
 import service.activationfunction.impl.Tanh;
+import service.optimizer.Optimizer;
+import service.optimizer.impl.SGDOptimizer;
+import utility.linalg.LinAlg;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +23,25 @@ public class LSTMCell {
 
     private final List<LSTMCellState> history = new ArrayList<>();
 
+    // по умолчанию обычный SGD; параметры вентилей идут подряд: input, forget, output, candidate,
+    // у каждого сначала веса построчно, затем bias
+    private Optimizer optimizer = new SGDOptimizer();
+
+    // быстрые приближения вентилей, см. FastActivations
+    private boolean fastMath;
+    @Getter(AccessLevel.NONE)
+    private ActivationFunction sigmoid = new Sigmoid();
+    @Getter(AccessLevel.NONE)
+    private ActivationFunction tanh = new Tanh();
+
+    // float-копия параметров для вывода в Precision.FLOAT: веса вентилей input, forget, output, candidate
+    // подряд построчно [4 * hiddenSize x inputSize] и bias в том же порядке; создаётся при первом обращении
+    private record FloatParameters(float[] weights, float[] biases) {
+    }
+
+    @Getter(AccessLevel.NONE)
+    private final VersionedCopy<FloatParameters> floatParameters = new VersionedCopy<>(this::copyToFloat);
+
     public LSTMCell(int inputSize, int hiddenSize) {
         this.inputSize = inputSize;
         this.hiddenSize = hiddenSize;
@@ -35,35 +58,88 @@ public class LSTMCell {
     }
 
     public double[] forward(double[] x_t, double[] h_prev, double[] c_prev) {
-        ActivationFunction tanh = new Tanh();
-        ActivationFunction sigmoid = new Sigmoid();
-
         int H = hiddenSize;
 
-        double[] i_t = sigmoid.activate(add(dot(weightsInput, x_t), biasInput));
-        double[] f_t = sigmoid.activate(add(dot(weightsForget, x_t), biasForget));
-        double[] o_t = sigmoid.activate(add(dot(weightsOutput, x_t), biasOutput));
-        double[] g_t = tanh.activate(add(dot(weightsCandidate, x_t), biasCandidate));
+        double[] i_t = gate(weightsInput, biasInput, x_t, sigmoid);
+        double[] f_t = gate(weightsForget, biasForget, x_t, sigmoid);
+        double[] o_t = gate(weightsOutput, biasOutput, x_t, sigmoid);
+        double[] g_t = gate(weightsCandidate, biasCandidate, x_t, tanh);
 
         double[] c_t = new double[H];
         for (int i = 0; i < H; i++) {
             c_t[i] = f_t[i] * c_prev[i] + i_t[i] * g_t[i];
         }
 
+        // tanh(c) сохраняется для обратного прохода
+        double[] tanh_c = c_t.clone();
+        tanh.activateInPlace(tanh_c, 0, H);
         double[] h_t = new double[H];
         for (int i = 0; i < H; i++) {
-            h_t[i] = o_t[i] * tanh.activate(c_t[i]);
+            h_t[i] = o_t[i] * tanh_c[i];
         }
 
-        history.add(new LSTMCellState(x_t, h_prev, c_prev, h_t, c_t, i_t, f_t, o_t, g_t));
+        history.add(new LSTMCellState(x_t, h_prev, c_prev, h_t, c_t, i_t, f_t, o_t, g_t, tanh_c));
 
         return h_t;
     }
 
-    public void backward(double[] dLoss_dLastHidden, double learningRate) {
-        Tanh tanh = new Tanh();
-        Sigmoid sigmoid = new Sigmoid();
+    /**
+     * Шаг вывода в float без сохранения истории: {@code h} и {@code c} обновляются на месте,
+     * {@code gates} — буфер на {@code 4 * hiddenSize} элементов. При {@link Precision#FLOAT_DOUBLE_ACCUMULATION}
+     * скалярные произведения накапливаются в double, а результат округляется до float.
+     */
+    public float[] forward(float[] x, float[] h, float[] c, float[] gates, Precision precision) {
+        FloatParameters parameters = floatParameters.get();
+        float[] floatWeights = parameters.weights();
+        float[] floatBiases = parameters.biases();
+        int H = hiddenSize;
+        if (precision == Precision.FLOAT_DOUBLE_ACCUMULATION) {
+            for (int j = 0; j < 4 * H; j++) {
+                gates[j] = (float) (LinAlg.dsdot(floatWeights, j * inputSize, x, 0, inputSize) + floatBiases[j]);
+            }
+        } else {
+            LinAlg.gemv(4 * H, inputSize, floatWeights, 0, inputSize, x, 0, 0f, gates, 0);
+            LinAlg.axpy(4 * H, 1f, floatBiases, 0, gates, 0);
+        }
+        sigmoid.activateInPlace(gates, 0, 3 * H);
+        tanh.activateInPlace(gates, 3 * H, H);
+
+        for (int i = 0; i < H; i++) {
+            c[i] = gates[H + i] * c[i] + gates[i] * gates[3 * H + i];
+            h[i] = c[i];
+        }
+        tanh.activateInPlace(h, 0, H);
+        for (int i = 0; i < H; i++) {
+            h[i] *= gates[2 * H + i];
+        }
+        return h;
+    }
+
+    /**
+     * Отмечает, что веса были изменены напрямую через геттеры.
+     */
+    public void markWeightsModified() {
+        floatParameters.invalidate();
+    }
 
+    private FloatParameters copyToFloat() {
+        float[] floatWeights = new float[4 * hiddenSize * inputSize];
+        float[] floatBiases = new float[4 * hiddenSize];
+        double[][][] weights = {weightsInput, weightsForget, weightsOutput, weightsCandidate};
+        double[][] biases = {biasInput, biasForget, biasOutput, biasCandidate};
+        for (int gate = 0; gate < 4; gate++) {
+            for (int i = 0; i < hiddenSize; i++) {
+                int row = (gate * hiddenSize + i) * inputSize;
+                for (int j = 0; j < inputSize; j++) {
+                    floatWeights[row + j] = (float) weights[gate][i][j];
+                }
+                floatBiases[gate * hiddenSize + i] = (float) biases[gate][i];
+            }
+        }
+        return new FloatParameters(floatWeights, floatBiases);
+    }
+
+    public void backward(double[] dLoss_dLastHidden, double learningRate) {
         int T = history.size();
         int H = hiddenSize;
         int X = inputSize;
@@ -88,16 +164,13 @@ public class LSTMCell {
             double[] x = state.x_t();
             double[] h_prev = state.h_prev();
             double[] c_prev = state.c_prev();
-            double[] c = state.c_t();
-            double[] h = state.h_t();
 
             double[] i = state.inputGate();
             double[] f = state.forgetGate();
             double[] o = state.outputGate();
             double[] g = state.candidate();
 
-            double[] tanh_c = new double[H];
-            for (int i1 = 0; i1 < H; i1++) tanh_c[i1] = tanh.activate(c[i1]);
+            double[] tanh_c = state.tanhC();
 
             double[] dO = new double[H];
             double[] dC = new double[H];
@@ -116,12 +189,10 @@ public class LSTMCell {
             }
 
             for (int i1 = 0; i1 < H; i1++) {
-                for (int j = 0; j < X; j++) {
-                    dW_i[i1][j] += dI[i1] * x[j];
-                    dW_f[i1][j] += dF[i1] * x[j];
-                    dW_o[i1][j] += dO[i1] * x[j];
-                    dW_g[i1][j] += dG[i1] * x[j];
-                }
+                LinAlg.axpy(X, dI[i1], x, dW_i[i1]);
+                LinAlg.axpy(X, dF[i1], x, dW_f[i1]);
+                LinAlg.axpy(X, dO[i1], x, dW_o[i1]);
+                LinAlg.axpy(X, dG[i1], x, dW_g[i1]);
                 db_i[i1] += dI[i1];
                 db_f[i1] += dF[i1];
                 db_o[i1] += dO[i1];
@@ -137,23 +208,43 @@ public class LSTMCell {
             dNext_h = new double[H]; // обнуляем, т.к. это однопроходная RNN
         }
 
-        // Обновление весов вручную
-        updateWeights(weightsInput, dW_i, biasInput, db_i, learningRate);
-        updateWeights(weightsForget, dW_f, biasForget, db_f, learningRate);
-        updateWeights(weightsOutput, dW_o, biasOutput, db_o, learningRate);
-        updateWeights(weightsCandidate, dW_g, biasCandidate, db_g, learningRate);
+        // Обновление весов через оптимизатор
+        int gateSize = gateParameterCount();
+        updateWeights(weightsInput, dW_i, biasInput, db_i, 0, learningRate);
+        updateWeights(weightsForget, dW_f, biasForget, db_f, gateSize, learningRate);
+        updateWeights(weightsOutput, dW_o, biasOutput, db_o, 2 * gateSize, learningRate);
+        updateWeights(weightsCandidate, dW_g, biasCandidate, db_g, 3 * gateSize, learningRate);
+        markWeightsModified();
 
         history.clear(); // очистка истории после backward
     }
 
     private void updateWeights(double[][] weights, double[][] gradW,
-                               double[] biases, double[] gradB, double lr) {
+                               double[] biases, double[] gradB, int stateOffset, double lr) {
         for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] += lr * gradW[i][j];
-            }
-            biases[i] += lr * gradB[i];
+            optimizer.step(weights[i], 0, gradW[i], 0, inputSize, stateOffset + i * inputSize, lr);
         }
+        optimizer.step(biases, 0, gradB, 0, hiddenSize, stateOffset + hiddenSize * inputSize, lr);
+    }
+
+    /**
+     * Быстрый режим вентилей: сигмоида и tanh по таблице с ошибкой не больше
+     * {@link utility.linalg.FastActivations#TANH_MAX_ERROR}. Производные в обратном проходе всегда
+     * считаются по сохранённым выходам.
+     */
+    public void setFastMath(boolean fastMath) {
+        this.fastMath = fastMath;
+        this.sigmoid = new Sigmoid(fastMath);
+        this.tanh = new Tanh(fastMath);
+    }
+
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+        optimizer.bind(4 * gateParameterCount());
+    }
+
+    private int gateParameterCount() {
+        return hiddenSize * inputSize + hiddenSize;
     }
 
     // --- Utilities ---
@@ -169,20 +260,13 @@ public class LSTMCell {
         return mat;
     }
 
-    private double[] dot(double[][] weights, double[] x) {
+    // f(W * x + b) одним массивом, функция применяется ко всему вектору сразу
+    private double[] gate(double[][] weights, double[] bias, double[] x, ActivationFunction activation) {
         double[] out = new double[weights.length];
         for (int i = 0; i < weights.length; i++) {
-            out[i] = 0;
-            for (int j = 0; j < x.length; j++) {
-                out[i] += weights[i][j] * x[j];
-            }
+            out[i] = LinAlg.dot(weights[i], x, x.length) + bias[i];
         }
+        activation.activateInPlace(out, 0, out.length);
         return out;
     }
-
-    private double[] add(double[] a, double[] b) {
-        double[] res = new double[a.length];
-        for (int i = 0; i < a.length; i++) res[i] = a[i] + b[i];
-        return res;
-    }
 }
@@ -9,4 +9,5 @@ public record LSTMCellState(
         double[] inputGate,
         double[] forgetGate,
         double[] outputGate,
-        double[] candidate) {}
+        double[] candidate,
+        double[] tanhC) {}
@@ -29,4 +29,9 @@ public class LSTMLayer {
     public void backward(double[] outputGradient, double learningRate) {
         cell.backward(outputGradient, learningRate);
     }
+
+    // быстрые приближения вентилей ячейки, см. LSTMCell#setFastMath
+    public void setFastMath(boolean fastMath) {
+        cell.setFastMath(fastMath);
+    }
 }
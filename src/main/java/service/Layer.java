@@ -1,29 +1,44 @@
 package service;
 
-import lombok.Getter;
-import lombok.Setter;
 import service.activationfunction.ActivationFunction;
 
 import java.util.Random;
 
-@Getter
-@Setter
-public class Layer {
-
-    private Neuron[] neurons;
+/**
+ * Прежнее имя полносвязного слоя. Хранение параметров перенесено в {@link DenseLayer},
+ * нейроны доступны через {@link DenseLayer#getNeurons()}. Прежний контракт сохранён:
+ * {@link #forward(double[])} возвращает новый массив, {@link #setNeurons} задаёт параметры слоя.
+ */
+public class Layer extends DenseLayer {
 
     public Layer(int numberOfNeurons, int inputSizePerNeuron, ActivationFunction activationFunction, Random random) {
-        neurons = new Neuron[numberOfNeurons];
-        for (int i = 0; i < numberOfNeurons; i++) {
-            neurons[i] = new Neuron(inputSizePerNeuron, activationFunction, random);
-        }
+        super(numberOfNeurons, inputSizePerNeuron, activationFunction, random);
     }
 
+    // копия выхода: буфер DenseLayer перезаписывается следующим проходом
+    @Override
     public double[] forward(double[] inputs) {
-        double[] outputs = new double[neurons.length];
-        for (int i = 0; i < neurons.length; i++) {
-            outputs[i] = neurons[i].forward(inputs);
+        return super.forward(inputs).clone();
+    }
+
+    /**
+     * Копирует веса и bias нейронов в параметры слоя. Число нейронов и длина их весов должны совпадать с формой слоя;
+     * сами объекты не сохраняются, поэтому их дальнейшие изменения на слой не влияют.
+     */
+    public void setNeurons(Neuron[] neurons) {
+        if (neurons.length != getOutputSize()) {
+            throw new IllegalArgumentException("Expected " + getOutputSize() + " neurons, got " + neurons.length);
+        }
+        int inputSize = getInputSize();
+        for (int j = 0; j < neurons.length; j++) {
+            double[] weights = neurons[j].getWeights();
+            if (weights.length != inputSize) {
+                throw new IllegalArgumentException("Neuron " + j + " has " + weights.length
+                        + " weights, expected " + inputSize);
+            }
+            System.arraycopy(weights, 0, getWeights(), j * inputSize, inputSize);
+            getBiases()[j] = neurons[j].getBias();
         }
-        return outputs;
+        markWeightsModified();
     }
 }
@@ -1,11 +1,13 @@
 package service;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import service.activationfunction.ActivationFunction;
 import service.optimizer.Optimizer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -13,68 +15,437 @@ import java.util.Random;
 @Setter
 public class NeuralNetwork {
 
-    private List<Layer> layers;
+    private List<DenseLayer> layers;
     private Random random = new Random();
     private Optimizer optimizer;
     private double learningRate = 0.01;
+    // размер входа первого слоя; по умолчанию 4 признака Iris
+    @Setter(AccessLevel.NONE)
+    private int inputSize = 4;
+    // точность вывода; обучение всегда идёт в double
+    private Precision precision = Precision.DOUBLE;
+    // смешанная точность в trainBatch: проходы по пакету в float, шаг оптимизатора по double-параметрам
+    private boolean mixedPrecision;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BatchWorkspace workspace;
+
+    // буферы вывода для каждого потока: predict и predictBatch не изменяют состояние слоёв
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<InferenceWorkspace> inferenceBuffers = new ThreadLocal<>();
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<BatchWorkspace> inferenceWorkspaces = new ThreadLocal<>();
 
     public NeuralNetwork() {
         layers = new ArrayList<>();
     }
 
+    public NeuralNetwork(int inputSize) {
+        this();
+        if (inputSize <= 0) {
+            throw new IllegalArgumentException("Input size must be positive: " + inputSize);
+        }
+        this.inputSize = inputSize;
+    }
+
+    public static Builder builder(int inputSize) {
+        return new Builder(inputSize);
+    }
+
     public void addLayer(int numberOfNeurons, ActivationFunction activationFunction) {
-        int inputSize = layers.isEmpty() ? 4 : layers.get(layers.size() - 1).getNeurons().length;
-        layers.add(new Layer(numberOfNeurons, inputSize, activationFunction, random));
+        if (numberOfNeurons <= 0) {
+            throw new IllegalArgumentException("Layer size must be positive: " + numberOfNeurons);
+        }
+        int layerInputSize = layers.isEmpty() ? inputSize : layers.getLast().getOutputSize();
+        DenseLayer layer = new DenseLayer(numberOfNeurons, layerInputSize, activationFunction, random);
+        layer.setParameterOffset(getParameterCount());
+        layers.add(layer);
+        if (optimizer != null) {
+            optimizer.bind(getParameterCount());
+        }
+    }
+
+    /**
+     * Оптимизатор сразу привязывается к текущей раскладке параметров и выделяет под неё состояние.
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+        if (optimizer != null) {
+            optimizer.bind(getParameterCount());
+        }
+    }
+
+    // общее число весов и bias во всех слоях
+    public int getParameterCount() {
+        int count = 0;
+        for (DenseLayer layer : layers) {
+            count += layer.getParameterCount();
+        }
+        return count;
     }
 
+    public int getOutputSize() {
+        return layers.isEmpty() ? inputSize : layers.getLast().getOutputSize();
+    }
+
+    /**
+     * Вывод без изменения модели: промежуточные результаты пишутся в буферы текущего потока,
+     * поэтому один обученный экземпляр можно опрашивать из нескольких потоков без блокировок.
+     * Буферы потока создаются при его первом вызове; заранее выделенная область —
+     * {@link #predict(double[], InferenceWorkspace)}.
+     */
     public double[] predict(double[] input) {
+        double[] output = predict(input, inferenceBuffers());
+        return Arrays.copyOf(output, output.length);
+    }
+
+    /**
+     * Вывод без выделения памяти: возвращает выходной буфер рабочей области,
+     * который перезаписывается следующим вызовом с той же рабочей областью.
+     */
+    public double[] predict(double[] input, InferenceWorkspace ws) {
+        checkInputSize(input.length);
+        double[][] buffers = ws.getLayerOutputs();
+        if (precision != Precision.DOUBLE) {
+            float[] floatInput = ws.getFloatInput();
+            for (int i = 0; i < floatInput.length; i++) {
+                floatInput[i] = (float) input[i];
+            }
+            float[] floatOutput = predict(floatInput, ws);
+            double[] output = buffers[buffers.length - 1];
+            for (int i = 0; i < output.length; i++) {
+                output[i] = floatOutput[i];
+            }
+            return output;
+        }
         double[] output = input;
-        for (Layer layer : layers) {
+        for (int l = 0; l < layers.size(); l++) {
+            output = layers.get(l).forward(output, buffers[l]);
+        }
+        return output;
+    }
+
+    /**
+     * Вывод в float. При {@link Precision#DOUBLE} используется {@link Precision#FLOAT}.
+     */
+    public float[] predict(float[] input) {
+        float[] output = predict(input, inferenceBuffers());
+        return Arrays.copyOf(output, output.length);
+    }
+
+    public float[] predict(float[] input, InferenceWorkspace ws) {
+        checkInputSize(input.length);
+        Precision mode = precision == Precision.DOUBLE ? Precision.FLOAT : precision;
+        float[][] buffers = ws.getFloatLayerOutputs();
+        float[] output = input;
+        for (int l = 0; l < layers.size(); l++) {
+            output = layers.get(l).forward(output, buffers[l], mode);
+        }
+        return output;
+    }
+
+    /**
+     * Отдельная рабочая область вывода, например по одной на поток пула, созданная до начала запросов.
+     * Одну область нельзя использовать из нескольких потоков одновременно.
+     */
+    public InferenceWorkspace createInferenceWorkspace() {
+        return new InferenceWorkspace(layers);
+    }
+
+    // прямой проход с сохранением сумм и выходов в буферах слоёв (нужны для обратного прохода)
+    private double[] forward(double[] input) {
+        double[] output = input;
+        for (DenseLayer layer : layers) {
             output = layer.forward(output);
         }
         return output;
     }
 
     public void train(double[] input, double[] target) {
-        predict(input);
+        forward(input);
 
         // 1. Вычисляем дельты на выходном слое
-        Layer outputLayer = layers.getLast();
-        for (int i = 0; i < outputLayer.getNeurons().length; i++) {
-            Neuron neuron = outputLayer.getNeurons()[i];
-            double error = target[i] - neuron.getOutput();
-            double delta = error * neuron.getActivationFunction().derivative(neuron.getInputSum());
-            neuron.setDelta(delta);
-        }
+        layers.getLast().computeOutputDeltas(target);
 
         // 2. Вычисляем дельты для скрытых слоёв
         for (int l = layers.size() - 2; l >= 0; l--) {
-            Layer currentLayer = layers.get(l);
-            Layer nextLayer = layers.get(l + 1);
-
-            for (int i = 0; i < currentLayer.getNeurons().length; i++) {
-                Neuron neuron = currentLayer.getNeurons()[i];
-                double sum = 0.0;
-                for (Neuron nextNeuron : nextLayer.getNeurons()) {
-                    sum += nextNeuron.getWeights()[i] * nextNeuron.getDelta();
-                }
-                double delta = sum * neuron.getActivationFunction().derivative(neuron.getInputSum());
-                neuron.setDelta(delta);
-            }
+            layers.get(l).computeHiddenDeltas(layers.get(l + 1));
         }
 
         // 3. Обновляем веса через оптимизатор
         double[] prevOutputs = input;
-        for (Layer layer : layers) {
-            double[] newPrevOutputs = new double[layer.getNeurons().length];
-            for (int i = 0; i < layer.getNeurons().length; i++) {
-                Neuron neuron = layer.getNeurons()[i];
-
+        for (DenseLayer layer : layers) {
+            Neuron[] neurons = layer.getNeurons();
+            for (Neuron neuron : neurons) {
                 optimizer.update(neuron, prevOutputs, learningRate); // 🔥 используем оптимизатор
+            }
+            prevOutputs = layer.getOutputs();
+        }
+    }
+
+    public double[][] predictBatch(double[][] inputs) {
+        int batchSize = inputs.length;
+        if (precision != Precision.DOUBLE) {
+            InferenceWorkspace ws = inferenceBuffers();
+            double[][] outputs = new double[batchSize][];
+            for (int b = 0; b < batchSize; b++) {
+                outputs[b] = predict(inputs[b], ws).clone();
+            }
+            return outputs;
+        }
+        BatchWorkspace ws = inferenceWorkspace(batchSize);
+        ws.load(inputs, null, 0, batchSize);
+        forwardBatch(ws, batchSize);
+
+        double[] last = ws.getActivations()[layers.size() - 1];
+        int outputSize = layers.getLast().getOutputSize();
+        double[][] outputs = new double[batchSize][];
+        for (int b = 0; b < batchSize; b++) {
+            outputs[b] = Arrays.copyOfRange(last, b * outputSize, (b + 1) * outputSize);
+        }
+        return outputs;
+    }
+
+    /**
+     * Обучение на мини-пакете: прямой и обратный проход по всему пакету сразу,
+     * градиенты усредняются по примерам, оптимизатор вызывается один раз на пакет.
+     * Пустой пакет, разное число входов и целей или строки не того размера — {@link IllegalArgumentException}.
+     */
+    public void trainBatch(double[][] inputs, double[][] targets) {
+        checkBatch(inputs, targets);
+        int batchSize = inputs.length;
+        BatchWorkspace ws = workspace(batchSize);
+        ws.clearGradients();
+        computeGradients(ws, inputs, targets, 0, batchSize);
+        ws.scaleGradients(1.0 / batchSize);
+        applyGradients(ws);
+    }
+
+    /**
+     * Накапливает в рабочей области градиенты по примерам [from, to). Веса сети не изменяются.
+     */
+    public void computeGradients(BatchWorkspace ws, double[][] inputs, double[][] targets, int from, int to) {
+        if (mixedPrecision) {
+            computeGradientsFloat(ws, inputs, targets, from, to);
+            return;
+        }
+        int batchSize = to - from;
+        ws.ensureCapacity(batchSize);
+        ws.load(inputs, targets, from, to);
+        forwardBatch(ws, batchSize);
+
+        int last = layers.size() - 1;
+        layers.get(last).outputDeltasBatch(ws.getTargets(), ws.getActivations()[last], batchSize, ws.getDeltas()[last]);
+        for (int l = last - 1; l >= 0; l--) {
+            layers.get(l).hiddenDeltasBatch(layers.get(l + 1), ws.getDeltas()[l + 1], ws.getActivations()[l],
+                    batchSize, ws.getDeltas()[l]);
+        }
+
+        for (int l = 0; l <= last; l++) {
+            double[] layerInput = l == 0 ? ws.getInputs() : ws.getActivations()[l - 1];
+            layers.get(l).accumulateGradients(layerInput, ws.getDeltas()[l], batchSize,
+                    ws.getWeightGradients()[l], ws.getBiasGradients()[l]);
+        }
+    }
+
+    // то же по float-копиям параметров; градиенты добавляются к double-буферам рабочей области
+    private void computeGradientsFloat(BatchWorkspace ws, double[][] inputs, double[][] targets, int from, int to) {
+        int batchSize = to - from;
+        ws.ensureFloatCapacity(batchSize);
+        ws.loadFloat(inputs, targets, from, to);
+
+        float[] layerInput = ws.getFloatInputs();
+        for (int l = 0; l < layers.size(); l++) {
+            layers.get(l).forwardBatch(layerInput, batchSize, ws.getFloatSums()[l], ws.getFloatActivations()[l]);
+            layerInput = ws.getFloatActivations()[l];
+        }
+
+        int last = layers.size() - 1;
+        layers.get(last).outputDeltasBatch(ws.getFloatTargets(), ws.getFloatActivations()[last], batchSize,
+                ws.getFloatDeltas()[last]);
+        for (int l = last - 1; l >= 0; l--) {
+            layers.get(l).hiddenDeltasBatch(layers.get(l + 1), ws.getFloatDeltas()[l + 1], ws.getFloatActivations()[l],
+                    batchSize, ws.getFloatDeltas()[l]);
+        }
+
+        for (int l = 0; l <= last; l++) {
+            float[] input = l == 0 ? ws.getFloatInputs() : ws.getFloatActivations()[l - 1];
+            layers.get(l).accumulateGradients(input, ws.getFloatDeltas()[l], batchSize,
+                    ws.getFloatWeightGradients()[l], ws.getWeightGradients()[l], ws.getBiasGradients()[l]);
+        }
+    }
+
+    public void applyGradients(BatchWorkspace ws) {
+        for (int l = 0; l < layers.size(); l++) {
+            layers.get(l).applyGradients(optimizer, ws.getWeightGradients()[l], ws.getBiasGradients()[l], learningRate);
+        }
+    }
+
+    public BatchWorkspace createWorkspace(int capacity) {
+        return new BatchWorkspace(layers, capacity);
+    }
+
+    private void forwardBatch(BatchWorkspace ws, int batchSize) {
+        double[] layerInput = ws.getInputs();
+        for (int l = 0; l < layers.size(); l++) {
+            layers.get(l).forwardBatch(layerInput, batchSize, ws.getSums()[l], ws.getActivations()[l]);
+            layerInput = ws.getActivations()[l];
+        }
+    }
+
+    // непустой пакет с целью для каждого входа и строками размеров входа и выхода сети
+    void checkBatch(double[][] inputs, double[][] targets) {
+        if (inputs.length == 0) {
+            throw new IllegalArgumentException("Batch must not be empty");
+        }
+        if (inputs.length != targets.length) {
+            throw new IllegalArgumentException("Batch has " + inputs.length + " inputs and " + targets.length + " targets");
+        }
+        int outputSize = getOutputSize();
+        for (int b = 0; b < inputs.length; b++) {
+            checkInputSize(inputs[b].length);
+            if (targets[b].length != outputSize) {
+                throw new IllegalArgumentException("Target size mismatch: expected " + outputSize + ", got " + targets[b].length);
+            }
+        }
+    }
+
+    private void checkInputSize(int length) {
+        if (length != inputSize) {
+            throw new IllegalArgumentException("Input size mismatch: expected " + inputSize + ", got " + length);
+        }
+    }
 
-                newPrevOutputs[i] = neuron.getOutput();
+    private BatchWorkspace workspace(int batchSize) {
+        if (workspace == null || !workspace.matches(layers)) {
+            workspace = createWorkspace(batchSize);
+        }
+        workspace.ensureCapacity(batchSize);
+        return workspace;
+    }
+
+    private InferenceWorkspace inferenceBuffers() {
+        InferenceWorkspace ws = inferenceBuffers.get();
+        if (ws == null || !ws.matches(layers)) {
+            ws = createInferenceWorkspace();
+            inferenceBuffers.set(ws);
+        }
+        return ws;
+    }
+
+    private BatchWorkspace inferenceWorkspace(int batchSize) {
+        BatchWorkspace ws = inferenceWorkspaces.get();
+        if (ws == null || !ws.matches(layers)) {
+            ws = new BatchWorkspace(layers, batchSize, false);
+            inferenceWorkspaces.set(ws);
+        }
+        ws.ensureCapacity(batchSize);
+        return ws;
+    }
+
+    /**
+     * Сборка сети по размеру входа: размеры всех слоёв выводятся по цепочке и проверяются,
+     * а параметры, буферы вывода и буферы обучения на пакет выделяются сразу в {@link #build()}.
+     * Буферы {@link NeuralNetwork#predict(double[])} и {@link NeuralNetwork#predictBatch} привязаны к потоку,
+     * поэтому заранее выделяются только для потока, вызвавшего build; остальные потоки выделяют свои
+     * при первом вызове. Потокам вывода, которым нужна работа без выделений с первого запроса, следует создать
+     * рабочую область через {@link NeuralNetwork#createInferenceWorkspace()} и вызывать
+     * {@link NeuralNetwork#predict(double[], InferenceWorkspace)}.
+     */
+    public static class Builder {
+
+        private final int inputSize;
+        private final List<Integer> layerSizes = new ArrayList<>();
+        private final List<ActivationFunction> activationFunctions = new ArrayList<>();
+        private Random random = new Random();
+        private Optimizer optimizer;
+        private double learningRate = 0.01;
+        private Precision precision = Precision.DOUBLE;
+        private int batchSize = 1;
+        private boolean mixedPrecision;
+
+        private Builder(int inputSize) {
+            if (inputSize <= 0) {
+                throw new IllegalArgumentException("Input size must be positive: " + inputSize);
+            }
+            this.inputSize = inputSize;
+        }
+
+        public Builder layer(int numberOfNeurons, ActivationFunction activationFunction) {
+            if (numberOfNeurons <= 0) {
+                throw new IllegalArgumentException("Layer size must be positive: " + numberOfNeurons);
+            }
+            if (activationFunction == null) {
+                throw new IllegalArgumentException("Activation function is required for layer " + layerSizes.size());
+            }
+            layerSizes.add(numberOfNeurons);
+            activationFunctions.add(activationFunction);
+            return this;
+        }
+
+        public Builder random(Random random) {
+            this.random = random;
+            return this;
+        }
+
+        public Builder optimizer(Optimizer optimizer) {
+            this.optimizer = optimizer;
+            return this;
+        }
+
+        public Builder learningRate(double learningRate) {
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        public Builder precision(Precision precision) {
+            this.precision = precision;
+            return this;
+        }
+
+        public Builder mixedPrecision(boolean mixedPrecision) {
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
+        // размер пакета, под который заранее выделяются буферы trainBatch
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public NeuralNetwork build() {
+            if (layerSizes.isEmpty()) {
+                throw new IllegalStateException("Network must have at least one layer");
+            }
+            NeuralNetwork network = new NeuralNetwork(inputSize);
+            network.setRandom(random);
+            network.setLearningRate(learningRate);
+            network.setPrecision(precision);
+            network.setMixedPrecision(mixedPrecision);
+            for (int l = 0; l < layerSizes.size(); l++) {
+                network.addLayer(layerSizes.get(l), activationFunctions.get(l));
+            }
+            // после слоёв, чтобы состояние оптимизатора выделилось один раз под всю модель
+            network.setOptimizer(optimizer);
+
+            network.workspace = network.createWorkspace(batchSize);
+            // только для текущего потока, см. описание класса
+            network.inferenceBuffers();
+            network.inferenceWorkspace(batchSize);
+            if (mixedPrecision) {
+                network.workspace.ensureFloatCapacity(batchSize);
+            }
+            if (precision != Precision.DOUBLE || mixedPrecision) {
+                for (DenseLayer layer : network.layers) {
+                    layer.syncFloatParameters();
+                }
             }
-            prevOutputs = newPrevOutputs;
+            return network;
         }
     }
 }
@@ -3,6 +3,7 @@ package service;
 import lombok.Getter;
 import lombok.Setter;
 import service.activationfunction.ActivationFunction;
+import utility.linalg.LinAlg;
 
 import java.util.Random;
 
@@ -27,12 +28,13 @@ public class Neuron {
         }
     }
 
+    // для представлений, которые хранят веса вне объекта нейрона (см. DenseLayer)
+    protected Neuron(ActivationFunction activationFunction) {
+        this.activationFunction = activationFunction;
+    }
+
     public double forward(double[] inputs) {
-        inputSum = 0.0;
-        for (int i = 0; i < inputs.length; i++) {
-            inputSum += inputs[i] * weights[i];
-        }
-        inputSum += bias;
+        inputSum = LinAlg.dot(inputs, weights, inputs.length) + bias;
         output = activationFunction.activate(inputSum);
         return output;
     }
@@ -40,4 +42,17 @@ public class Neuron {
     public void setWeight(int index, double value) {
         weights[index] = value;
     }
+
+    /**
+     * Индекс первого веса нейрона в плоской раскладке параметров модели, по нему оптимизаторы
+     * адресуют своё состояние. Веса нейрона занимают индексы подряд. -1 — нейрон вне модели.
+     */
+    public int getParameterIndex() {
+        return -1;
+    }
+
+    // индекс bias в плоской раскладке параметров модели, -1 — нейрон вне модели
+    public int getBiasIndex() {
+        return -1;
+    }
 }
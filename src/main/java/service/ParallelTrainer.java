@@ -0,0 +1,150 @@
+package service;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Синхронное обучение {@link NeuralNetwork} с параллелизмом по данным.
+ * Мини-пакет делится на фиксированные части, каждая часть считает градиенты в своей
+ * {@link BatchWorkspace} по общим (только для чтения) весам, затем градиенты складываются
+ * в порядке номеров частей и применяются настроенным оптимизатором сети.
+ * Разбиение и порядок сложения не зависят от планирования потоков, поэтому при одинаковом
+ * {@code parallelism} результат воспроизводится бит в бит.
+ */
+@Getter
+public class ParallelTrainer {
+
+    // размер блока параметров, который суммируется одной задачей при редукции
+    private static final int REDUCE_BLOCK = 4096;
+
+    private final NeuralNetwork network;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    private final List<BatchWorkspace> workspaces = new ArrayList<>();
+
+    public ParallelTrainer(NeuralNetwork network, ForkJoinPool pool) {
+        this(network, pool, pool.getParallelism());
+    }
+
+    public ParallelTrainer(NeuralNetwork network, ForkJoinPool pool, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.network = network;
+        this.pool = pool;
+        this.parallelism = parallelism;
+    }
+
+    public ParallelTrainer(NeuralNetwork network) {
+        this(network, ForkJoinPool.commonPool());
+    }
+
+    public void trainBatch(double[][] inputs, double[][] targets) {
+        network.checkBatch(inputs, targets);
+        trainBatch(inputs, targets, 0, inputs.length);
+    }
+
+    /**
+     * Одна эпоха: данные проходятся мини-пакетами по {@code batchSize} примеров.
+     */
+    public void trainEpoch(double[][] inputs, double[][] targets, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        network.checkBatch(inputs, targets);
+        for (int from = 0; from < inputs.length; from += batchSize) {
+            trainBatch(inputs, targets, from, Math.min(inputs.length, from + batchSize));
+        }
+    }
+
+    private void trainBatch(double[][] inputs, double[][] targets, int from, int to) {
+        int batchSize = to - from;
+        int shards = Math.min(parallelism, batchSize);
+        int shardSize = (batchSize + shards - 1) / shards;
+        shards = (batchSize + shardSize - 1) / shardSize;
+        prepareWorkspaces(shards, shardSize);
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(shards);
+        for (int s = 0; s < shards; s++) {
+            BatchWorkspace ws = workspaces.get(s);
+            int shardFrom = from + s * shardSize;
+            int shardTo = Math.min(to, shardFrom + shardSize);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ws.clearGradients();
+                network.computeGradients(ws, inputs, targets, shardFrom, shardTo);
+            }));
+        }
+        runAll(tasks);
+
+        reduce(shards);
+
+        BatchWorkspace result = workspaces.getFirst();
+        result.scaleGradients(1.0 / batchSize);
+        network.applyGradients(result);
+    }
+
+    // градиенты всех частей складываются в рабочую область 0; каждый элемент суммируется в порядке номеров частей
+    private void reduce(int shards) {
+        if (shards == 1) {
+            return;
+        }
+        BatchWorkspace target = workspaces.getFirst();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int l = 0; l < target.getLayerSizes().length; l++) {
+            int layer = l;
+            int length = target.getWeightGradients()[l].length;
+            for (int start = 0; start < length; start += REDUCE_BLOCK) {
+                int blockStart = start;
+                int blockEnd = Math.min(length, start + REDUCE_BLOCK);
+                tasks.add(ForkJoinTask.adapt(() -> reduceRange(shards, layer, blockStart, blockEnd)));
+            }
+        }
+        runAll(tasks);
+
+        for (int l = 0; l < target.getLayerSizes().length; l++) {
+            double[] sum = target.getBiasGradients()[l];
+            for (int s = 1; s < shards; s++) {
+                double[] part = workspaces.get(s).getBiasGradients()[l];
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += part[i];
+                }
+            }
+        }
+    }
+
+    private void reduceRange(int shards, int layer, int from, int to) {
+        double[] sum = workspaces.getFirst().getWeightGradients()[layer];
+        for (int s = 1; s < shards; s++) {
+            double[] part = workspaces.get(s).getWeightGradients()[layer];
+            for (int i = from; i < to; i++) {
+                sum[i] += part[i];
+            }
+        }
+    }
+
+    private void runAll(List<ForkJoinTask<?>> tasks) {
+        if (tasks.size() == 1) {
+            tasks.getFirst().invoke();
+            return;
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private void prepareWorkspaces(int shards, int shardSize) {
+        List<DenseLayer> layers = network.getLayers();
+        if (!workspaces.isEmpty() && !workspaces.getFirst().matches(layers)) {
+            workspaces.clear();
+        }
+        while (workspaces.size() < shards) {
+            workspaces.add(network.createWorkspace(shardSize));
+        }
+        for (int s = 0; s < shards; s++) {
+            workspaces.get(s).ensureCapacity(shardSize);
+        }
+    }
+}
@@ -1,75 +1,198 @@
 package service;
 
+import java.util.Arrays;
+
 public class PoolingLayer {
 
-    private int filterSize;
-    private int stride;
+    private final int filterSize;
+    private final int stride;
+    private final PoolingMode mode;
+    // глобальный пулинг: одно окно на всю карту, выход [N, C, 1, 1]
+    private final boolean global;
+    // неполные окна у правого и нижнего края дают свой выход, а не отбрасываются
+    private final boolean ceilMode;
 
-    private int[][][][] maxIndices; // координаты максимумов для backpropagation
+    // буферы обучающего прохода, переиспользуются между пакетами одной формы
+    private int[] inputShape;
+    private Tensor output;
+    private int[] maxIndices; // смещения максимумов во входном тензоре для backpropagation
+    private Tensor inputGradient;
 
     public PoolingLayer(int filterSize, int stride) {
+        this(filterSize, stride, PoolingMode.MAX, false);
+    }
+
+    public PoolingLayer(int filterSize, int stride, PoolingMode mode, boolean ceilMode) {
+        this(filterSize, stride, mode, ceilMode, false);
+    }
+
+    private PoolingLayer(int filterSize, int stride, PoolingMode mode, boolean ceilMode, boolean global) {
+        if (!global && (filterSize < 1 || stride < 1)) {
+            throw new IllegalArgumentException("Filter size and stride must be positive");
+        }
         this.filterSize = filterSize;
         this.stride = stride;
+        this.mode = mode;
+        this.ceilMode = ceilMode;
+        this.global = global;
+    }
+
+    // пулинг по всей карте каждого канала
+    public static PoolingLayer global(PoolingMode mode) {
+        return new PoolingLayer(0, 1, mode, false, true);
     }
 
-    public double[][][] forward(double[][][] input) {
-        int depth = input.length;
-        int inputWidth = input[0].length;
-        int inputHeight = input[0][0].length;
-
-        int outputWidth = (inputWidth - filterSize) / stride + 1;
-        int outputHeight = (inputHeight - filterSize) / stride + 1;
-
-        double[][][] output = new double[depth][outputWidth][outputHeight];
-        maxIndices = new int[depth][outputWidth][outputHeight][2];
-
-        for (int d = 0; d < depth; d++) {
-            for (int i = 0; i < outputWidth; i++) {
-                for (int j = 0; j < outputHeight; j++) {
-                    double max = Double.NEGATIVE_INFINITY;
-                    int maxX = 0, maxY = 0;
-
-                    for (int fi = 0; fi < filterSize; fi++) {
-                        for (int fj = 0; fj < filterSize; fj++) {
-                            int x = i * stride + fi;
-                            int y = j * stride + fj;
-
-                            double val = input[d][x][y];
-                            if (val > max) {
-                                max = val;
-                                maxX = x;
-                                maxY = y;
+    /**
+     * Прямой проход по тензору [N, C, H, W] с сохранением состояния для {@link #backward}.
+     * Возвращаемый тензор [N, C, outH, outW] переиспользуется следующим вызовом.
+     */
+    public Tensor forward(Tensor input) {
+        int batch = input.dim(0);
+        int channels = input.dim(1);
+        int outH = outputSize(input.dim(2));
+        int outW = outputSize(input.dim(3));
+        if (output == null || !output.hasShape(batch, channels, outH, outW)) {
+            output = new Tensor(batch, channels, outH, outW);
+            maxIndices = mode == PoolingMode.MAX ? new int[output.size()] : null;
+        }
+        inputShape = input.shape();
+        pool(input, output, maxIndices);
+        return output;
+    }
+
+    // Прямой проход без сохранения состояния, в заранее выделенный непрерывный тензор
+    public Tensor forward(Tensor input, Tensor output) {
+        pool(input, output, null);
+        return output;
+    }
+
+    // argmax получает смещения максимумов в непрерывной раскладке входа
+    private void pool(Tensor input, Tensor output, int[] argmax) {
+        double[] in = input.getData();
+        double[] out = output.getData();
+        int height = input.dim(2);
+        int width = input.dim(3);
+        int outH = output.dim(2);
+        int outW = output.dim(3);
+        int rowStride = input.stride(2);
+        int colStride = input.stride(3);
+        int index = 0;
+        for (int n = 0; n < input.dim(0); n++) {
+            for (int c = 0; c < input.dim(1); c++) {
+                int map = input.getOffset() + n * input.stride(0) + c * input.stride(1);
+                int plane = (n * input.dim(1) + c) * height * width;
+                for (int i = 0; i < outH; i++) {
+                    int x0 = windowStart(i);
+                    int x1 = windowEnd(i, height);
+                    for (int j = 0; j < outW; j++) {
+                        int y0 = windowStart(j);
+                        int y1 = windowEnd(j, width);
+                        double value;
+                        if (mode == PoolingMode.MAX) {
+                            value = Double.NEGATIVE_INFINITY;
+                            int maxX = x0, maxY = y0;
+                            for (int x = x0; x < x1; x++) {
+                                for (int y = y0; y < y1; y++) {
+                                    double val = in[map + x * rowStride + y * colStride];
+                                    if (val > value) {
+                                        value = val;
+                                        maxX = x;
+                                        maxY = y;
+                                    }
+                                }
+                            }
+                            if (argmax != null) {
+                                argmax[index] = plane + maxX * width + maxY;
+                            }
+                        } else {
+                            double sum = 0.0;
+                            for (int x = x0; x < x1; x++) {
+                                for (int y = y0; y < y1; y++) {
+                                    sum += in[map + x * rowStride + y * colStride];
+                                }
                             }
+                            value = sum / ((x1 - x0) * (y1 - y0));
                         }
+                        out[output.getOffset() + index] = value;
+                        index++;
                     }
-
-                    output[d][i][j] = max;
-                    maxIndices[d][i][j][0] = maxX;
-                    maxIndices[d][i][j][1] = maxY;
                 }
             }
         }
+    }
 
-        return output;
+    private int windowStart(int position) {
+        return global ? 0 : position * stride;
+    }
+
+    // окно обрезается по краю входа; у глобального пулинга оно покрывает всё измерение
+    private int windowEnd(int position, int inputSize) {
+        return global ? inputSize : Math.min(position * stride + filterSize, inputSize);
     }
 
-    public double[][][] backward(double[][][] dOut) {
-        int depth = dOut.length;
-        int inputWidth = maxIndices[0].length * stride;
-        int inputHeight = maxIndices[0][0].length * stride;
+    public int outputSize(int inputSize) {
+        if (global) {
+            return inputSize > 0 ? 1 : 0;
+        }
+        if (inputSize < filterSize) {
+            return 0;
+        }
+        if (!ceilMode) {
+            return (inputSize - filterSize) / stride + 1;
+        }
+        int size = (inputSize - filterSize + stride - 1) / stride + 1;
+        // последнее окно должно начинаться внутри входа
+        return (size - 1) * stride < inputSize ? size : size - 1;
+    }
 
-        double[][][] dInput = new double[depth][inputWidth][inputHeight];
+    /**
+     * Градиент выхода [N, C, outH, outW] последнего {@link #forward(Tensor)} переносится во вход:
+     * у MAX — в позиции максимумов, у AVERAGE — поровну по элементам окна.
+     * Элементы входа вне окон получают ноль. Возвращаемый тензор переиспользуется следующим вызовом.
+     */
+    public Tensor backward(Tensor dOut) {
+        if (!dOut.hasShape(output.shape())) {
+            throw new IllegalArgumentException("Gradient shape " + Arrays.toString(dOut.shape())
+                    + " does not match output " + Arrays.toString(output.shape()));
+        }
+        if (inputGradient == null || !inputGradient.hasShape(inputShape)) {
+            inputGradient = new Tensor(inputShape);
+        } else {
+            inputGradient.fill(0.0);
+        }
+        Tensor grad = dOut.contiguous();
+        double[] source = grad.getData();
+        double[] target = inputGradient.getData();
+        if (mode == PoolingMode.MAX) {
+            // окна могут перекрываться, поэтому градиенты в одной позиции складываются
+            for (int k = 0; k < maxIndices.length; k++) {
+                target[maxIndices[k]] += source[grad.getOffset() + k];
+            }
+            return inputGradient;
+        }
 
-        for (int d = 0; d < depth; d++) {
-            for (int i = 0; i < dOut[d].length; i++) {
-                for (int j = 0; j < dOut[d][i].length; j++) {
-                    int x = maxIndices[d][i][j][0];
-                    int y = maxIndices[d][i][j][1];
-                    dInput[d][x][y] = dOut[d][i][j];
+        int height = inputShape[2];
+        int width = inputShape[3];
+        int outH = output.dim(2);
+        int outW = output.dim(3);
+        int index = grad.getOffset();
+        for (int plane = 0; plane < inputShape[0] * inputShape[1]; plane++) {
+            int map = plane * height * width;
+            for (int i = 0; i < outH; i++) {
+                int x0 = windowStart(i);
+                int x1 = windowEnd(i, height);
+                for (int j = 0; j < outW; j++) {
+                    int y0 = windowStart(j);
+                    int y1 = windowEnd(j, width);
+                    double share = source[index++] / ((x1 - x0) * (y1 - y0));
+                    for (int x = x0; x < x1; x++) {
+                        for (int y = y0; y < y1; y++) {
+                            target[map + x * width + y] += share;
+                        }
+                    }
                 }
             }
         }
-
-        return dInput;
+        return inputGradient;
     }
 }
@@ -0,0 +1,11 @@
+package service;
+
+/**
+ * Функция окна {@link PoolingLayer}.
+ */
+public enum PoolingMode {
+    // максимум окна, градиент уходит в позицию максимума
+    MAX,
+    // среднее по элементам окна, градиент делится между ними поровну
+    AVERAGE
+}
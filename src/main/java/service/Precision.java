@@ -0,0 +1,13 @@
+package service;
+
+/**
+ * Точность вычислений при выводе.
+ */
+public enum Precision {
+    // веса, активации и суммы в double
+    DOUBLE,
+    // всё в float: вдвое меньше памяти на веса и вдвое больше элементов в SIMD-регистре
+    FLOAT,
+    // веса и активации в float, скалярные произведения накапливаются в double
+    FLOAT_DOUBLE_ACCUMULATION
+}
@@ -23,6 +23,7 @@ public class RecurrentNeuralNetwork {
         this.lstmLayer = new LSTMLayer(inputSize, lstmHiddenSize);
         this.outputLayer = new Layer(outputSize, lstmHiddenSize, activationFunction, new Random());
         this.optimizer = optimizer;
+        optimizer.bind(outputLayer.getParameterCount());
         this.learningRate = learningRate;
     }
 
@@ -39,7 +40,7 @@ public class RecurrentNeuralNetwork {
         for (int i = 0; i < outputLayer.getNeurons().length; i++) {
             var neuron = outputLayer.getNeurons()[i];
             double error = sample.label[i] - prediction[i];
-            double delta = error * neuron.getActivationFunction().derivative(neuron.getInputSum());
+            double delta = error * neuron.getActivationFunction().derivativeFromOutput(prediction[i]);
             neuron.setDelta(delta);
         }
 
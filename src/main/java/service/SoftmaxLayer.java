@@ -25,4 +25,30 @@ public class SoftmaxLayer {
 
         return output;
     }
+
+    // Softmax в заранее выделенный массив; output может совпадать с input
+    public double[] forward(double[] input, double[] output) {
+        return forward(input, 0, output);
+    }
+
+    // Softmax элементов input[offset .. offset + output.length) в output
+    public double[] forward(double[] input, int offset, double[] output) {
+        int length = output.length;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, input[offset + i]);
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            output[i] = Math.exp(input[offset + i] - max);
+            sum += output[i];
+        }
+
+        sum = Math.max(sum, 1e-15);
+        for (int i = 0; i < length; i++) {
+            output[i] /= sum;
+        }
+        return output;
+    }
 }
@@ -0,0 +1,107 @@
+package service;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Маска разреженности матрицы весов после прунинга в формате CSR: для строки {@code r} номера столбцов
+ * живых (ненулевых) весов лежат в {@code columnIndices[rowPointers[r] .. rowPointers[r + 1])} по возрастанию.
+ * Обратные проходы и оптимизаторы обходят только эти индексы, обрезанные веса не читаются и не меняются.
+ */
+@Getter
+public class SparsityMask {
+
+    private final int rows;
+    private final int columns;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+
+    private SparsityMask(int rows, int columns, int[] rowPointers, int[] columnIndices) {
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+    }
+
+    // все веса живые
+    public static SparsityMask dense(int rows, int columns) {
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndices = new int[rows * columns];
+        for (int r = 0; r < rows; r++) {
+            rowPointers[r + 1] = (r + 1) * columns;
+            for (int c = 0; c < columns; c++) {
+                columnIndices[r * columns + c] = c;
+            }
+        }
+        return new SparsityMask(rows, columns, rowPointers, columnIndices);
+    }
+
+    /**
+     * Маска по ненулевым элементам строк одинаковой длины.
+     */
+    public static SparsityMask fromNonZero(double[][] matrixRows) {
+        int rows = matrixRows.length;
+        int columns = rows == 0 ? 0 : matrixRows[0].length;
+        int[] rowPointers = new int[rows + 1];
+        int live = 0;
+        for (int r = 0; r < rows; r++) {
+            for (double w : matrixRows[r]) {
+                if (w != 0) {
+                    live++;
+                }
+            }
+            rowPointers[r + 1] = live;
+        }
+
+        int[] columnIndices = new int[live];
+        int k = 0;
+        for (double[] row : matrixRows) {
+            for (int c = 0; c < columns; c++) {
+                if (row[c] != 0) {
+                    columnIndices[k++] = c;
+                }
+            }
+        }
+        return new SparsityMask(rows, columns, rowPointers, columnIndices);
+    }
+
+    // то же для матрицы rows x columns, хранящейся построчно в одном массиве
+    public static SparsityMask fromNonZero(double[] matrix, int rows, int columns) {
+        int[] rowPointers = new int[rows + 1];
+        int live = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (matrix[r * columns + c] != 0) {
+                    live++;
+                }
+            }
+            rowPointers[r + 1] = live;
+        }
+
+        int[] columnIndices = new int[live];
+        int k = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (matrix[r * columns + c] != 0) {
+                    columnIndices[k++] = c;
+                }
+            }
+        }
+        return new SparsityMask(rows, columns, rowPointers, columnIndices);
+    }
+
+    public int getLiveCount() {
+        return columnIndices.length;
+    }
+
+    // доля живых весов
+    public double density() {
+        int total = rows * columns;
+        return total == 0 ? 0 : (double) columnIndices.length / total;
+    }
+
+    public boolean isLive(int row, int column) {
+        return Arrays.binarySearch(columnIndices, rowPointers[row], rowPointers[row + 1], column) >= 0;
+    }
+}
@@ -0,0 +1,201 @@
+package service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Плотный тензор поверх одного плоского массива: форма, шаги по измерениям и смещение первого элемента.
+ * Данные CNN хранятся в раскладке NCHW — пример, канал, строка, столбец.
+ * {@link #reshape}, {@link #slice} и {@link #narrow} возвращают представления над тем же массивом без копирования,
+ * поэтому запись через представление видна в исходном тензоре.
+ */
+@Getter
+public class Tensor {
+
+    private final double[] data;
+    private final int offset;
+    @Getter(AccessLevel.NONE)
+    private final int[] shape;
+    @Getter(AccessLevel.NONE)
+    private final int[] strides;
+
+    // новый тензор, заполненный нулями
+    public Tensor(int... shape) {
+        this(new double[count(shape)], 0, shape.clone(), contiguousStrides(shape));
+    }
+
+    private Tensor(double[] data, int offset, int[] shape, int[] strides) {
+        this.data = data;
+        this.offset = offset;
+        this.shape = shape;
+        this.strides = strides;
+    }
+
+    // тензор поверх готового массива, без копирования
+    public static Tensor wrap(double[] data, int... shape) {
+        if (count(shape) > data.length) {
+            throw new IllegalArgumentException("Shape " + Arrays.toString(shape) + " does not fit " + data.length + " elements");
+        }
+        return new Tensor(data, 0, shape.clone(), contiguousStrides(shape));
+    }
+
+    public int rank() {
+        return shape.length;
+    }
+
+    public int dim(int axis) {
+        return shape[axis];
+    }
+
+    public int stride(int axis) {
+        return strides[axis];
+    }
+
+    public int[] shape() {
+        return shape.clone();
+    }
+
+    public int size() {
+        return count(shape);
+    }
+
+    public boolean hasShape(int... expected) {
+        return Arrays.equals(shape, expected);
+    }
+
+    public boolean isContiguous() {
+        int expected = 1;
+        for (int axis = shape.length - 1; axis >= 0; axis--) {
+            if (shape[axis] != 1 && strides[axis] != expected) {
+                return false;
+            }
+            expected *= shape[axis];
+        }
+        return true;
+    }
+
+    /**
+     * Представление с другой формой над теми же данными. Одно измерение может быть -1 — оно выводится из размера.
+     */
+    public Tensor reshape(int... newShape) {
+        if (!isContiguous()) {
+            throw new IllegalStateException("Cannot reshape a non-contiguous tensor");
+        }
+        int[] resolved = newShape.clone();
+        int inferred = -1;
+        int known = 1;
+        for (int axis = 0; axis < resolved.length; axis++) {
+            if (resolved[axis] == -1 && inferred < 0) {
+                inferred = axis;
+            } else {
+                known *= resolved[axis];
+            }
+        }
+        if (inferred >= 0 && known > 0) {
+            resolved[inferred] = size() / known;
+        }
+        if (count(resolved) != size()) {
+            throw new IllegalArgumentException("Cannot reshape " + Arrays.toString(shape) + " to " + Arrays.toString(newShape));
+        }
+        return new Tensor(data, offset, resolved, contiguousStrides(resolved));
+    }
+
+    // элемент index первого измерения как тензор на единицу меньшего ранга
+    public Tensor slice(int index) {
+        checkIndex(index);
+        return new Tensor(data, offset + index * strides[0],
+                Arrays.copyOfRange(shape, 1, shape.length), Arrays.copyOfRange(strides, 1, strides.length));
+    }
+
+    // элементы [from, to) первого измерения
+    public Tensor narrow(int from, int to) {
+        if (from < 0 || to > shape[0] || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of " + shape[0]);
+        }
+        int[] narrowed = shape.clone();
+        narrowed[0] = to - from;
+        return new Tensor(data, offset + from * strides[0], narrowed, strides);
+    }
+
+    public int index(int... indices) {
+        if (indices.length != shape.length) {
+            throw new IllegalArgumentException("Expected " + shape.length + " indices, got " + indices.length);
+        }
+        int position = offset;
+        for (int axis = 0; axis < shape.length; axis++) {
+            if (indices[axis] < 0 || indices[axis] >= shape[axis]) {
+                throw new IndexOutOfBoundsException("Index " + Arrays.toString(indices) + " out of " + Arrays.toString(shape));
+            }
+            position += indices[axis] * strides[axis];
+        }
+        return position;
+    }
+
+    public double get(int... indices) {
+        return data[index(indices)];
+    }
+
+    public void set(double value, int... indices) {
+        data[index(indices)] = value;
+    }
+
+    public void fill(double value) {
+        if (isContiguous()) {
+            Arrays.fill(data, offset, offset + size(), value);
+            return;
+        }
+        for (int i = 0; i < shape[0]; i++) {
+            slice(i).fill(value);
+        }
+    }
+
+    // сам тензор, если он уже непрерывный, иначе непрерывная копия
+    public Tensor contiguous() {
+        if (isContiguous()) {
+            return this;
+        }
+        return wrap(toArray(), shape);
+    }
+
+    // копия элементов в порядке раскладки
+    public double[] toArray() {
+        if (isContiguous()) {
+            return Arrays.copyOfRange(data, offset, offset + size());
+        }
+        double[] result = new double[size()];
+        int block = result.length / Math.max(1, shape[0]);
+        for (int i = 0; i < shape[0]; i++) {
+            System.arraycopy(slice(i).toArray(), 0, result, i * block, block);
+        }
+        return result;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= shape[0]) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + shape[0]);
+        }
+    }
+
+    private static int count(int[] shape) {
+        int size = 1;
+        for (int d : shape) {
+            if (d < 0) {
+                throw new IllegalArgumentException("Negative dimension in " + Arrays.toString(shape));
+            }
+            size *= d;
+        }
+        return size;
+    }
+
+    private static int[] contiguousStrides(int[] shape) {
+        int[] strides = new int[shape.length];
+        int stride = 1;
+        for (int axis = shape.length - 1; axis >= 0; axis--) {
+            strides[axis] = stride;
+            stride *= shape[axis];
+        }
+        return strides;
+    }
+}
@@ -0,0 +1,215 @@
+package service;
+
+import lombok.Getter;
+import service.optimizer.Optimizer;
+import service.optimizer.StateBuffers;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Бинарный чекпоинт обучения {@link NeuralNetwork}: веса и bias слоёв, состояние оптимизатора, скорость обучения,
+ * счётчики эпох и шагов и состояние генератора случайных чисел сети.
+ * <p>
+ * Файл пишется одним буфером через {@link FileChannel} во временный файл рядом с целевым и затем переименовывается,
+ * поэтому прерванная запись не портит предыдущий чекпоинт. Восстановление идёт в сеть той же архитектуры
+ * с тем же типом оптимизатора, уже собранную обычным способом; при любой ошибке чтения сеть остаётся нетронутой.
+ */
+@Getter
+public class TrainingCheckpoint {
+
+    private static final int MAGIC = 0x434B5054; // "CKPT"
+    private static final int VERSION = 2;
+
+    private final long epoch;
+    private final long step;
+
+    private TrainingCheckpoint(long epoch, long step) {
+        this.epoch = epoch;
+        this.step = step;
+    }
+
+    public static void save(Path path, NeuralNetwork network, long epoch, long step) throws IOException {
+        List<DenseLayer> layers = network.getLayers();
+        Optimizer optimizer = network.getOptimizer();
+        byte[] optimizerName = descriptor(optimizer).getBytes(StandardCharsets.UTF_8);
+        byte[] random = serialize(network.getRandom());
+
+        int size = 5 * Integer.BYTES + 2 * Long.BYTES + Double.BYTES + optimizerName.length + random.length;
+        for (DenseLayer layer : layers) {
+            size += 2 * Integer.BYTES + StateBuffers.size(layer.getWeights()) + StateBuffers.size(layer.getBiases());
+        }
+        int stateSize = optimizer == null ? 0 : optimizer.stateSize();
+        size += Integer.BYTES + stateSize;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(epoch).putLong(step).putDouble(network.getLearningRate());
+        buffer.putInt(optimizerName.length).put(optimizerName);
+        buffer.putInt(layers.size());
+        for (DenseLayer layer : layers) {
+            buffer.putInt(layer.getOutputSize()).putInt(layer.getInputSize());
+            StateBuffers.put(buffer, layer.getWeights());
+            StateBuffers.put(buffer, layer.getBiases());
+        }
+        buffer.putInt(stateSize);
+        if (optimizer != null) {
+            optimizer.writeState(buffer);
+        }
+        buffer.putInt(random.length).put(random);
+        buffer.flip();
+
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Загружает чекпоинт в сеть и возвращает сохранённые счётчики, с которых нужно продолжить обучение.
+     * Повреждённый или обрезанный файл даёт {@link IOException}, несовпадение архитектуры или оптимизатора —
+     * {@link IllegalArgumentException}; в обоих случаях сеть и оптимизатор не меняются.
+     */
+    public static TrainingCheckpoint restore(Path path, NeuralNetwork network) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // читаем до конца файла
+            }
+        }
+        buffer.flip();
+        try {
+            return restore(buffer, path, network);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupted checkpoint: " + path, e);
+        }
+    }
+
+    private static TrainingCheckpoint restore(ByteBuffer buffer, Path path, NeuralNetwork network) throws IOException {
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a training checkpoint: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+        }
+        long epoch = buffer.getLong();
+        long step = buffer.getLong();
+        double learningRate = buffer.getDouble();
+
+        Optimizer optimizer = network.getOptimizer();
+        byte[] optimizerName = new byte[buffer.getInt()];
+        buffer.get(optimizerName);
+        String stored = new String(optimizerName, StandardCharsets.UTF_8);
+        if (!stored.equals(descriptor(optimizer))) {
+            throw new IllegalArgumentException("Checkpoint optimizer " + stored + " does not match " + descriptor(optimizer));
+        }
+
+        // сначала сверяем размеры и длины всех записей слоёв, чтобы не загрузить сеть наполовину
+        List<DenseLayer> layers = network.getLayers();
+        int layerCount = buffer.getInt();
+        if (layerCount != layers.size()) {
+            throw new IllegalArgumentException("Checkpoint has " + layerCount + " layers, network has " + layers.size());
+        }
+        int layersStart = buffer.position();
+        for (DenseLayer layer : layers) {
+            int outputSize = buffer.getInt();
+            int inputSize = buffer.getInt();
+            if (outputSize != layer.getOutputSize() || inputSize != layer.getInputSize()) {
+                throw new IllegalArgumentException("Checkpoint layer " + outputSize + "x" + inputSize
+                        + " does not match network layer " + layer.getOutputSize() + "x" + layer.getInputSize());
+            }
+            skipRecord(buffer, layer.getWeights().length, path);
+            skipRecord(buffer, layer.getBiases().length, path);
+        }
+
+        // генератор разбираем до первой записи в сеть
+        int stateSize = buffer.getInt();
+        int stateStart = buffer.position();
+        if (stateSize < 0 || stateSize > buffer.remaining()) {
+            throw new IOException("Corrupted optimizer state in " + path);
+        }
+        buffer.position(stateStart + stateSize);
+        byte[] randomBytes = new byte[buffer.getInt()];
+        buffer.get(randomBytes);
+        Random random = deserialize(randomBytes);
+
+        // состояние оптимизатора читается прямо в его массивы, поэтому при ошибке возвращаем прежнее
+        if (optimizer != null) {
+            ByteBuffer backup = ByteBuffer.allocate(optimizer.stateSize()).order(ByteOrder.LITTLE_ENDIAN);
+            optimizer.writeState(backup);
+            backup.flip();
+            buffer.position(stateStart);
+            try {
+                optimizer.readState(buffer);
+                if (buffer.position() - stateStart != stateSize) {
+                    throw new IOException("Corrupted optimizer state in " + path);
+                }
+            } catch (IOException | RuntimeException e) {
+                optimizer.readState(backup);
+                throw e;
+            }
+        }
+
+        // все записи слоёв уже проверены, дальше чтение не падает
+        buffer.position(layersStart);
+        for (DenseLayer layer : layers) {
+            buffer.position(buffer.position() + 2 * Integer.BYTES);
+            StateBuffers.get(buffer, layer.getWeights());
+            StateBuffers.get(buffer, layer.getBiases());
+            layer.markWeightsModified();
+        }
+        network.setRandom(random);
+        network.setLearningRate(learningRate);
+        return new TrainingCheckpoint(epoch, step);
+    }
+
+    // запись массива из length значений double: префикс длины должен совпасть точно
+    private static void skipRecord(ByteBuffer buffer, int length, Path path) throws IOException {
+        int stored = buffer.getInt();
+        if (stored != length || (long) length * Double.BYTES > buffer.remaining()) {
+            throw new IOException("Corrupted layer record in " + path + ": " + stored + " values, expected " + length);
+        }
+        buffer.position(buffer.position() + length * Double.BYTES);
+    }
+
+    private static String descriptor(Optimizer optimizer) {
+        return optimizer == null ? "" : optimizer.descriptor();
+    }
+
+    // java.util.Random не отдаёт seed, но сериализуется вместе с ним
+    private static byte[] serialize(Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Random deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            // в файле допускается только сам генератор, без произвольного графа объектов
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+            return (Random) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot restore random generator state", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Копия параметров (float-зеркало, плоская матрица ядер), которая строится по требованию и публикуется целиком.
+ * Каждое изменение исходных параметров увеличивает версию ({@link #invalidate}); {@link #get} строит копию
+ * в свежих массивах и публикует её с версией, прочитанной до копирования. Изменение во время копирования
+ * поэтому не теряется: опубликованная копия остаётся устаревшей до следующего {@link #get}.
+ * Читатель берёт копию один раз на вызов и видит её заполненной полностью.
+ */
+final class VersionedCopy<T> {
+
+    private record Snapshot<T>(long version, T value) {
+    }
+
+    private final Supplier<T> copier;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot<T> snapshot;
+
+    VersionedCopy(Supplier<T> copier) {
+        this.copier = copier;
+    }
+
+    void invalidate() {
+        version.incrementAndGet();
+    }
+
+    // актуальная копия; память выделяется только после изменения параметров
+    T get() {
+        Snapshot<T> current = snapshot;
+        if (current != null && current.version() == version.get()) {
+            return current.value();
+        }
+        return sync();
+    }
+
+    // последняя опубликованная копия без проверки версии; null до первого get
+    T current() {
+        Snapshot<T> current = snapshot;
+        return current == null ? null : current.value();
+    }
+
+    private synchronized T sync() {
+        long expected = version.get();
+        Snapshot<T> current = snapshot;
+        if (current != null && current.version() == expected) {
+            return current.value();
+        }
+        T value = copier.get();
+        snapshot = new Snapshot<>(expected, value);
+        return value;
+    }
+}
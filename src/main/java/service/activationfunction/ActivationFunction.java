@@ -4,7 +4,29 @@ public interface ActivationFunction {
 
     double activate(double x);
 
-    double[] activate(double[] x);
+    default double[] activate(double[] x) {
+        double[] out = x.clone();
+        activateInPlace(out, 0, out.length);
+        return out;
+    }
 
     double derivative(double x);
+
+    // производная через выход y = f(x), без повторного вычисления функции
+    double derivativeFromOutput(double y);
+
+    /**
+     * Применяет функцию к {@code buf[off .. off + len)} на месте, один вызов на весь вектор.
+     */
+    void activateInPlace(double[] buf, int off, int len);
+
+    void activateInPlace(float[] buf, int off, int len);
+
+    /**
+     * Обратный проход на месте: {@code gradient[gradientOffset + i] *= f'(x_i)}, где производная выражена
+     * через сохранённый выход {@code y_i = f(x_i) = output[outputOffset + i]}, без повторного вычисления функции.
+     */
+    void derivativeFromOutput(double[] output, int outputOffset, double[] gradient, int gradientOffset, int len);
+
+    void derivativeFromOutput(float[] output, int outputOffset, float[] gradient, int gradientOffset, int len);
 }
@@ -1,6 +1,7 @@
 package service.activationfunction.impl;
 
 import service.activationfunction.ActivationFunction;
+import utility.linalg.LinAlg;
 
 public class ReLU implements ActivationFunction {
 
@@ -10,12 +11,43 @@ public class ReLU implements ActivationFunction {
     }
 
     @Override
-    public double[] activate(double[] x) {
-        return new double[0];
+    public double derivative(double x) {
+        return x > 0 ? 1.0 : 0.0;
     }
 
     @Override
-    public double derivative(double x) {
-        return x > 0 ? 1.0 : 0.0;
+    public double derivativeFromOutput(double y) {
+        return y > 0 ? 1.0 : 0.0;
+    }
+
+    @Override
+    public void activateInPlace(double[] buf, int off, int len) {
+        LinAlg.relu(buf, off, len, 0.0);
+    }
+
+    @Override
+    public void activateInPlace(float[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            buf[i] = Math.max(0f, buf[i]);
+        }
+    }
+
+    // y > 0 тогда и только тогда, когда x > 0
+    @Override
+    public void derivativeFromOutput(double[] output, int outputOffset, double[] gradient, int gradientOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            if (output[outputOffset + i] <= 0) {
+                gradient[gradientOffset + i] = 0.0;
+            }
+        }
+    }
+
+    @Override
+    public void derivativeFromOutput(float[] output, int outputOffset, float[] gradient, int gradientOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            if (output[outputOffset + i] <= 0) {
+                gradient[gradientOffset + i] = 0f;
+            }
+        }
     }
 }
@@ -1,27 +1,73 @@
 package service.activationfunction.impl;
 
 import service.activationfunction.ActivationFunction;
+import utility.linalg.FastActivations;
+import utility.linalg.LinAlg;
 
+/**
+ * При {@code fast == true} используется приближение {@link FastActivations} с ошибкой не больше
+ * {@link FastActivations#SIGMOID_MAX_ERROR}.
+ */
 public class Sigmoid implements ActivationFunction {
 
+    private final boolean fast;
+
+    public Sigmoid() {
+        this(false);
+    }
+
+    public Sigmoid(boolean fast) {
+        this.fast = fast;
+    }
+
     @Override
     public double activate(double x) {
-        return 1.0 / (1.0 + Math.exp(-x));
+        return fast ? FastActivations.sigmoid(x) : 1.0 / (1.0 + Math.exp(-x));
     }
 
     @Override
-    public double[] activate(double[] x) {
-        double[] out = new double[x.length];
-        for (int i = 0; i < x.length; i++) {
-            out[i] = activate(x[i]);
+    public double derivative(double x) {
+        double sig = activate(x);
+        return sig * (1 - sig);
+    }
+
+    @Override
+    public double derivativeFromOutput(double y) {
+        return y * (1 - y);
+    }
+
+    @Override
+    public void activateInPlace(double[] buf, int off, int len) {
+        if (fast) {
+            FastActivations.sigmoid(buf, off, len);
+        } else {
+            LinAlg.sigmoid(buf, off, len);
         }
-        return out;
     }
 
+    @Override
+    public void activateInPlace(float[] buf, int off, int len) {
+        if (fast) {
+            FastActivations.sigmoid(buf, off, len);
+        } else {
+            LinAlg.sigmoid(buf, off, len);
+        }
+    }
 
+    // f' = y * (1 - y)
     @Override
-    public double derivative(double x) {
-        double sig = activate(x);
-        return sig * (1 - sig);
+    public void derivativeFromOutput(double[] output, int outputOffset, double[] gradient, int gradientOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            double y = output[outputOffset + i];
+            gradient[gradientOffset + i] *= y * (1 - y);
+        }
+    }
+
+    @Override
+    public void derivativeFromOutput(float[] output, int outputOffset, float[] gradient, int gradientOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            float y = output[outputOffset + i];
+            gradient[gradientOffset + i] *= y * (1 - y);
+        }
     }
 }
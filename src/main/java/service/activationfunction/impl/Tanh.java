@@ -1,21 +1,28 @@
 package service.activationfunction.impl;
 
 import service.activationfunction.ActivationFunction;
+import utility.linalg.FastActivations;
+import utility.linalg.LinAlg;
 
+/**
+ * При {@code fast == true} используется приближение {@link FastActivations} с ошибкой не больше
+ * {@link FastActivations#TANH_MAX_ERROR}.
+ */
 public class Tanh implements ActivationFunction {
 
-    @Override
-    public double activate(double x) {
-        return Math.tanh(x);
+    private final boolean fast;
+
+    public Tanh() {
+        this(false);
+    }
+
+    public Tanh(boolean fast) {
+        this.fast = fast;
     }
 
     @Override
-    public double[] activate(double[] x) {
-        double[] out = new double[x.length];
-        for (int i = 0; i < x.length; i++) {
-            out[i] = activate(x[i]);
-        }
-        return out;
+    public double activate(double x) {
+        return fast ? FastActivations.tanh(x) : Math.tanh(x);
     }
 
     @Override
@@ -23,4 +30,44 @@ public class Tanh implements ActivationFunction {
         double y = activate(x);
         return 1 - y * y;
     }
+
+    @Override
+    public double derivativeFromOutput(double y) {
+        return 1 - y * y;
+    }
+
+    @Override
+    public void activateInPlace(double[] buf, int off, int len) {
+        if (fast) {
+            FastActivations.tanh(buf, off, len);
+        } else {
+            LinAlg.tanh(buf, off, len);
+        }
+    }
+
+    @Override
+    public void activateInPlace(float[] buf, int off, int len) {
+        if (fast) {
+            FastActivations.tanh(buf, off, len);
+        } else {
+            LinAlg.tanh(buf, off, len);
+        }
+    }
+
+    // f' = 1 - y^2
+    @Override
+    public void derivativeFromOutput(double[] output, int outputOffset, double[] gradient, int gradientOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            double y = output[outputOffset + i];
+            gradient[gradientOffset + i] *= 1 - y * y;
+        }
+    }
+
+    @Override
+    public void derivativeFromOutput(float[] output, int outputOffset, float[] gradient, int gradientOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            float y = output[outputOffset + i];
+            gradient[gradientOffset + i] *= 1 - y * y;
+        }
+    }
 }
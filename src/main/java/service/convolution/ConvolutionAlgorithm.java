@@ -0,0 +1,54 @@
+package service.convolution;
+
+import service.convolution.impl.FftConvolution;
+import service.convolution.impl.WinogradConvolution;
+
+/**
+ * Способ вычисления прямого прохода свёрточного слоя.
+ */
+public enum ConvolutionAlgorithm {
+    // выбор по размеру ядра, шагу и входу (см. resolve)
+    AUTO,
+    // im2col и одно умножение матриц на все ядра
+    GEMM,
+    // Winograd F(2x2, 3x3): только ядра 3x3 с шагом 1
+    WINOGRAD,
+    // через БПФ: шаг 1, выгодно для больших ядер
+    FFT;
+
+    // во сколько раз операция скалярного БПФ дороже умножения-сложения в векторизованном GEMM (по замерам)
+    private static final double FFT_OVERHEAD = 4.0;
+
+    /**
+     * Конкретный алгоритм для слоя. AUTO берёт Winograd для ядер 3x3, БПФ — если его оценка с учётом FFT_OVERHEAD
+     * меньше числа умножений прямой свёртки (большие ядра на больших картах), иначе GEMM. При шаге больше 1 всегда GEMM.
+     */
+    public ConvolutionAlgorithm resolve(int kernelSize, int stride, int numKernels, int height, int width) {
+        if (this != AUTO) {
+            return this;
+        }
+        if (stride != 1) {
+            return GEMM;
+        }
+        if (kernelSize == 3) {
+            return WINOGRAD;
+        }
+        long direct = (long) numKernels * (height - kernelSize + 1) * (width - kernelSize + 1) * kernelSize * kernelSize;
+        return FFT_OVERHEAD * FftConvolution.cost(numKernels, height, width) < direct ? FFT : GEMM;
+    }
+
+    public boolean supports(int kernelSize, int stride) {
+        if (this == WINOGRAD) {
+            return kernelSize == 3 && stride == 1;
+        }
+        return this != FFT || stride == 1;
+    }
+
+    // движок для конкретного алгоритма; null — свёртка через GEMM внутри слоя
+    public ConvolutionEngine createEngine(int kernelSize, int height, int width) {
+        if (this == WINOGRAD) {
+            return new WinogradConvolution(height, width);
+        }
+        return this == FFT ? new FftConvolution(kernelSize, height, width) : null;
+    }
+}
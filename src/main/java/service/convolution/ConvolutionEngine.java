@@ -0,0 +1,26 @@
+package service.convolution;
+
+/**
+ * Алгоритм свёртки одной карты со всеми ядрами слоя при шаге 1 (корреляция, как в {@link utility.MatrixUtils#convolve}).
+ * Экземпляр создаётся под размер ядра и входа; преобразованные ядра готовит {@link #prepare},
+ * после этого {@link #convolve} можно вызывать из нескольких потоков с разными рабочими буферами.
+ */
+public interface ConvolutionEngine {
+
+    /**
+     * Подготовка ядер: {@code kernels} — матрица [numKernels x kernelSize^2], ядро k построчно с k * kernelSize^2.
+     * {@link service.ConvLayer} вызывает её один раз на экземпляр и после изменения ядер создаёт новый движок,
+     * так что подготовленный экземпляр не меняется, пока им пользуются другие потоки.
+     */
+    void prepare(double[] kernels, int numKernels);
+
+    // размер рабочего буфера одного вызова convolve
+    int scratchSize();
+
+    /**
+     * Свёртка карты [height x width] (строки подряд с inputOffset) со всеми ядрами:
+     * выход ядра k пишется в output[outputOffset + k * outH * outW + x * outW + y], outH = height - kernelSize + 1.
+     * Рабочий буфер — {@link #scratchSize()} элементов scratch начиная со scratchOffset.
+     */
+    void convolve(double[] input, int inputOffset, double[] output, int outputOffset, double[] scratch, int scratchOffset);
+}
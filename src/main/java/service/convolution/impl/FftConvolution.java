@@ -0,0 +1,238 @@
+package service.convolution.impl;
+
+import service.convolution.ConvolutionEngine;
+
+import java.util.Arrays;
+
+/**
+ * Свёртка через двумерное БПФ: вход и ядра дополняются нулями до степеней двойки, корреляция считается
+ * как обратное преобразование произведения спектра входа на сопряжённый спектр ядра.
+ * Выход берётся из области без циклического заворота. Спектры ядер готовятся в {@link #prepare},
+ * спектр входа — один раз на вызов, а обратные преобразования делаются по два ядра сразу:
+ * спектры вещественных сигналов складываются как X + iY, и выход первого ядра — вещественная часть, второго — мнимая.
+ */
+public class FftConvolution implements ConvolutionEngine {
+
+    private final int kernelSize;
+    private final int height;
+    private final int width;
+    private final int outH;
+    private final int outW;
+    // размеры преобразования по строкам и столбцам
+    private final int rows;
+    private final int cols;
+    private final int area;
+    // cos и sin 2 * pi * t / max(rows, cols)
+    private final double[] cos;
+    private final double[] sin;
+    // спектры ядер [numKernels x rows x cols]
+    private double[] kernelRe = new double[0];
+    private double[] kernelIm = new double[0];
+    private int numKernels;
+
+    public FftConvolution(int kernelSize, int height, int width) {
+        if (height < kernelSize || width < kernelSize) {
+            throw new IllegalArgumentException("Input " + height + "x" + width + " is smaller than the kernel " + kernelSize);
+        }
+        this.kernelSize = kernelSize;
+        this.height = height;
+        this.width = width;
+        this.outH = height - kernelSize + 1;
+        this.outW = width - kernelSize + 1;
+        this.rows = transformSize(height);
+        this.cols = transformSize(width);
+        this.area = rows * cols;
+        int size = Math.max(rows, cols);
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int t = 0; t < size / 2; t++) {
+            cos[t] = Math.cos(2 * Math.PI * t / size);
+            sin[t] = Math.sin(2 * Math.PI * t / size);
+        }
+    }
+
+    /**
+     * Оценка числа операций прохода для карты height x width: прямое БПФ входа, обратные по паре ядер
+     * и поэлементные произведения спектров. Для сравнения с прямой свёрткой K * P * kernelSize^2.
+     */
+    public static double cost(int numKernels, int height, int width) {
+        double area = (double) transformSize(height) * transformSize(width);
+        double transforms = 1 + (numKernels + 1) / 2;
+        return transforms * 2.5 * area * (Math.log(area) / Math.log(2)) + 4.0 * numKernels * area;
+    }
+
+    // ближайшая степень двойки не меньше n
+    private static int transformSize(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    @Override
+    public void prepare(double[] kernels, int numKernels) {
+        if (kernelRe.length != numKernels * area) {
+            kernelRe = new double[numKernels * area];
+            kernelIm = new double[numKernels * area];
+        }
+        this.numKernels = numKernels;
+        int kernelArea = kernelSize * kernelSize;
+        Arrays.fill(kernelRe, 0.0);
+        Arrays.fill(kernelIm, 0.0);
+        for (int k = 0; k < numKernels; k++) {
+            for (int i = 0; i < kernelSize; i++) {
+                System.arraycopy(kernels, k * kernelArea + i * kernelSize, kernelRe, k * area + i * cols, kernelSize);
+            }
+            transform(kernelRe, kernelIm, k * area, k * area, kernelSize);
+        }
+    }
+
+    @Override
+    public int scratchSize() {
+        return 4 * area;
+    }
+
+    @Override
+    public void convolve(double[] input, int inputOffset, double[] output, int outputOffset, double[] scratch, int scratchOffset) {
+        // scratch: спектр входа (re, im), затем произведение пары ядер (re, im)
+        int inRe = scratchOffset, inIm = inRe + area, re = inIm + area, im = re + area;
+        Arrays.fill(scratch, inRe, inRe + 2 * area, 0.0);
+        for (int x = 0; x < height; x++) {
+            System.arraycopy(input, inputOffset + x * width, scratch, inRe + x * cols, width);
+        }
+        transform(scratch, scratch, inRe, inIm, height);
+
+        int positions = outH * outW;
+        double scale = 1.0 / area;
+        for (int k = 0; k < numKernels; k += 2) {
+            int a = k * area;
+            boolean pair = k + 1 < numKernels;
+            // In * conj(Ka) + i * In * conj(Kb)
+            for (int t = 0; t < area; t++) {
+                double xr = scratch[inRe + t], xi = scratch[inIm + t];
+                double ar = kernelRe[a + t], ai = kernelIm[a + t];
+                double pr = xr * ar + xi * ai;
+                double pi = xi * ar - xr * ai;
+                if (pair) {
+                    double br = kernelRe[a + area + t], bi = kernelIm[a + area + t];
+                    pr -= xi * br - xr * bi;
+                    pi += xr * br + xi * bi;
+                }
+                scratch[re + t] = pr;
+                scratch[im + t] = pi;
+            }
+            inverse(scratch, re, im);
+            for (int x = 0; x < outH; x++) {
+                int out = outputOffset + k * positions + x * outW;
+                for (int y = 0; y < outW; y++) {
+                    output[out + y] = scratch[re + x * cols + y] * scale;
+                }
+                if (pair) {
+                    for (int y = 0; y < outW; y++) {
+                        output[out + positions + y] = scratch[im + x * cols + y] * scale;
+                    }
+                }
+            }
+        }
+    }
+
+    // прямое БПФ матрицы rows x cols, у которой ненулевые только первые usedRows строк
+    private void transform(double[] re, double[] im, int reOffset, int imOffset, int usedRows) {
+        for (int x = 0; x < usedRows; x++) {
+            fft(re, im, reOffset + x * cols, imOffset + x * cols, 1, cols, false);
+        }
+        fftColumns(re, im, reOffset, imOffset, false);
+    }
+
+    // обратное БПФ без нормировки: сначала столбцы, затем только строки, попадающие в выход
+    private void inverse(double[] data, int re, int im) {
+        fftColumns(data, data, re, im, true);
+        for (int x = 0; x < outH; x++) {
+            fft(data, data, re + x * cols, im + x * cols, 1, cols, true);
+        }
+    }
+
+    // БПФ всех столбцов сразу: бабочки над целыми строками, внутренний цикл идёт по памяти подряд
+    private void fftColumns(double[] re, double[] im, int reOffset, int imOffset, boolean inverse) {
+        for (int i = 1, j = 0; i < rows; i++) {
+            int bit = rows >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                for (int y = 0; y < cols; y++) {
+                    double t = re[reOffset + i * cols + y];
+                    re[reOffset + i * cols + y] = re[reOffset + j * cols + y];
+                    re[reOffset + j * cols + y] = t;
+                    t = im[imOffset + i * cols + y];
+                    im[imOffset + i * cols + y] = im[imOffset + j * cols + y];
+                    im[imOffset + j * cols + y] = t;
+                }
+            }
+        }
+        double sign = inverse ? 1.0 : -1.0;
+        int table = cos.length * 2;
+        for (int length = 2; length <= rows; length <<= 1) {
+            int half = length >> 1;
+            int twiddle = table / length;
+            for (int start = 0; start < rows; start += length) {
+                for (int t = 0; t < half; t++) {
+                    double wr = cos[t * twiddle];
+                    double wi = sign * sin[t * twiddle];
+                    int a = (start + t) * cols;
+                    int b = a + half * cols;
+                    for (int y = 0; y < cols; y++) {
+                        double br = re[reOffset + b + y], bi = im[imOffset + b + y];
+                        double vr = br * wr - bi * wi;
+                        double vi = br * wi + bi * wr;
+                        double ar = re[reOffset + a + y], ai = im[imOffset + a + y];
+                        re[reOffset + a + y] = ar + vr;
+                        im[imOffset + a + y] = ai + vi;
+                        re[reOffset + b + y] = ar - vr;
+                        im[imOffset + b + y] = ai - vi;
+                    }
+                }
+            }
+        }
+    }
+
+    // итеративное БПФ по основанию 2 на n элементах с шагом step
+    private void fft(double[] re, double[] im, int reOffset, int imOffset, int step, int n, boolean inverse) {
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                int a = i * step, b = j * step;
+                double t = re[reOffset + a];
+                re[reOffset + a] = re[reOffset + b];
+                re[reOffset + b] = t;
+                t = im[imOffset + a];
+                im[imOffset + a] = im[imOffset + b];
+                im[imOffset + b] = t;
+            }
+        }
+        double sign = inverse ? 1.0 : -1.0;
+        int table = cos.length * 2;
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length >> 1;
+            int twiddle = table / length;
+            for (int start = 0; start < n; start += length) {
+                for (int t = 0; t < half; t++) {
+                    double wr = cos[t * twiddle];
+                    double wi = sign * sin[t * twiddle];
+                    int a = (start + t) * step;
+                    int b = (start + t + half) * step;
+                    double br = re[reOffset + b], bi = im[imOffset + b];
+                    double vr = br * wr - bi * wi;
+                    double vi = br * wi + bi * wr;
+                    double ar = re[reOffset + a], ai = im[imOffset + a];
+                    re[reOffset + a] = ar + vr;
+                    im[imOffset + a] = ai + vi;
+                    re[reOffset + b] = ar - vr;
+                    im[imOffset + b] = ai - vi;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package service.convolution.impl;
+
+import service.convolution.ConvolutionEngine;
+
+/**
+ * Winograd F(2x2, 3x3): выход считается плитками 2x2 по входным окнам 4x4,
+ * на плитку и ядро — 16 умножений вместо 36 у прямой свёртки.
+ * V = Bᵀ d B окна, U = G g Gᵀ ядра, выход плитки Y = Aᵀ (U ⊙ V) A.
+ * Окна за краем входа дополняются нулями, лишние элементы крайних плиток не записываются.
+ */
+public class WinogradConvolution implements ConvolutionEngine {
+
+    private static final int TILE = 4;
+    private static final int AREA = TILE * TILE;
+
+    private final int height;
+    private final int width;
+    private final int outH;
+    private final int outW;
+    // преобразованные ядра, 16 значений на ядро
+    private double[] transformed = new double[0];
+    private int numKernels;
+    // G g текущего ядра при подготовке
+    private final double[] half = new double[TILE * 3];
+
+    public WinogradConvolution(int height, int width) {
+        if (height < 3 || width < 3) {
+            throw new IllegalArgumentException("Input " + height + "x" + width + " is smaller than the 3x3 kernel");
+        }
+        this.height = height;
+        this.width = width;
+        this.outH = height - 2;
+        this.outW = width - 2;
+    }
+
+    @Override
+    public void prepare(double[] kernels, int numKernels) {
+        if (transformed.length != numKernels * AREA) {
+            transformed = new double[numKernels * AREA];
+        }
+        this.numKernels = numKernels;
+        for (int k = 0; k < numKernels; k++) {
+            int g = k * 9;
+            // G g: столбцы ядра 3 -> 4
+            for (int j = 0; j < 3; j++) {
+                double g0 = kernels[g + j], g1 = kernels[g + 3 + j], g2 = kernels[g + 6 + j];
+                half[j] = g0;
+                half[3 + j] = (g0 + g1 + g2) * 0.5;
+                half[6 + j] = (g0 - g1 + g2) * 0.5;
+                half[9 + j] = g2;
+            }
+            // (G g) Gᵀ: строки 3 -> 4
+            for (int i = 0; i < TILE; i++) {
+                double g0 = half[i * 3], g1 = half[i * 3 + 1], g2 = half[i * 3 + 2];
+                int u = k * AREA + i * TILE;
+                transformed[u] = g0;
+                transformed[u + 1] = (g0 + g1 + g2) * 0.5;
+                transformed[u + 2] = (g0 - g1 + g2) * 0.5;
+                transformed[u + 3] = g2;
+            }
+        }
+    }
+
+    @Override
+    public int scratchSize() {
+        return 2 * AREA;
+    }
+
+    @Override
+    public void convolve(double[] input, int inputOffset, double[] output, int outputOffset, double[] scratch, int scratchOffset) {
+        int positions = outH * outW;
+        double[] u = transformed;
+        for (int tx = 0; tx < outH; tx += 2) {
+            for (int ty = 0; ty < outW; ty += 2) {
+                transformTile(input, inputOffset, tx, ty, scratch, scratchOffset);
+                int v = scratchOffset;
+                double v00 = scratch[v], v01 = scratch[v + 1], v02 = scratch[v + 2], v03 = scratch[v + 3];
+                double v10 = scratch[v + 4], v11 = scratch[v + 5], v12 = scratch[v + 6], v13 = scratch[v + 7];
+                double v20 = scratch[v + 8], v21 = scratch[v + 9], v22 = scratch[v + 10], v23 = scratch[v + 11];
+                double v30 = scratch[v + 12], v31 = scratch[v + 13], v32 = scratch[v + 14], v33 = scratch[v + 15];
+                boolean fullRows = tx + 1 < outH;
+                boolean fullCols = ty + 1 < outW;
+                for (int k = 0, g = 0; k < numKernels; k++, g += AREA) {
+                    // Aᵀ (U ⊙ V): строки 4 -> 2
+                    double r00 = u[g] * v00 + u[g + 4] * v10 + u[g + 8] * v20;
+                    double r01 = u[g + 1] * v01 + u[g + 5] * v11 + u[g + 9] * v21;
+                    double r02 = u[g + 2] * v02 + u[g + 6] * v12 + u[g + 10] * v22;
+                    double r03 = u[g + 3] * v03 + u[g + 7] * v13 + u[g + 11] * v23;
+                    // (Aᵀ M) A: столбцы 4 -> 2
+                    int out = outputOffset + k * positions + tx * outW + ty;
+                    output[out] = r00 + r01 + r02;
+                    if (fullCols) {
+                        output[out + 1] = r01 - r02 - r03;
+                    }
+                    if (fullRows) {
+                        double r10 = u[g + 4] * v10 - u[g + 8] * v20 - u[g + 12] * v30;
+                        double r11 = u[g + 5] * v11 - u[g + 9] * v21 - u[g + 13] * v31;
+                        double r12 = u[g + 6] * v12 - u[g + 10] * v22 - u[g + 14] * v32;
+                        double r13 = u[g + 7] * v13 - u[g + 11] * v23 - u[g + 15] * v33;
+                        output[out + outW] = r10 + r11 + r12;
+                        if (fullCols) {
+                            output[out + outW + 1] = r11 - r12 - r13;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // V = Bᵀ d B окна 4x4 с углом (x, y) в scratch[scratchOffset + 0 .. 16)
+    private void transformTile(double[] input, int inputOffset, int x, int y, double[] scratch, int scratchOffset) {
+        boolean inside = x + TILE <= height && y + TILE <= width;
+        // Bᵀ d: по столбцам окна
+        for (int j = 0; j < TILE; j++) {
+            int p = inputOffset + x * width + y + j;
+            double d0 = inside ? input[p] : at(input, inputOffset, x, y + j);
+            double d1 = inside ? input[p + width] : at(input, inputOffset, x + 1, y + j);
+            double d2 = inside ? input[p + 2 * width] : at(input, inputOffset, x + 2, y + j);
+            double d3 = inside ? input[p + 3 * width] : at(input, inputOffset, x + 3, y + j);
+            scratch[scratchOffset + AREA + j] = d0 - d2;
+            scratch[scratchOffset + AREA + TILE + j] = d1 + d2;
+            scratch[scratchOffset + AREA + 2 * TILE + j] = d2 - d1;
+            scratch[scratchOffset + AREA + 3 * TILE + j] = d1 - d3;
+        }
+        // (Bᵀ d) B: по строкам
+        for (int i = 0; i < TILE; i++) {
+            int t = AREA + i * TILE;
+            double d0 = scratch[scratchOffset + t], d1 = scratch[scratchOffset + t + 1], d2 = scratch[scratchOffset + t + 2], d3 = scratch[scratchOffset + t + 3];
+            scratch[scratchOffset + i * TILE] = d0 - d2;
+            scratch[scratchOffset + i * TILE + 1] = d1 + d2;
+            scratch[scratchOffset + i * TILE + 2] = d2 - d1;
+            scratch[scratchOffset + i * TILE + 3] = d1 - d3;
+        }
+    }
+
+    private double at(double[] input, int inputOffset, int x, int y) {
+        return x < height && y < width ? input[inputOffset + x * width + y] : 0.0;
+    }
+}
@@ -1,9 +1,91 @@
 package service.optimizer;
 
 import service.Neuron;
+import service.regularizer.Regularizer;
+
+import java.nio.ByteBuffer;
 
 public interface Optimizer {
 
     void update(Neuron neuron, double[] inputs, double learningRate);
 
+    /**
+     * Обновление нейрона по готовому градиенту, например накопленному по пакету.
+     * Градиент весов берётся из {@code weightGradients[offset .. offset + weights.length)}.
+     */
+    void update(Neuron neuron, double[] weightGradients, int offset, double biasGradient, double learningRate);
+
+    /**
+     * Шаг по непрерывному блоку параметров за один проход, например по всем весам слоя:
+     * {@code params[offset + i]} сдвигается по {@code gradients[gradientOffset + i]} с шагом {@code learningRate}.
+     * Градиент направлен в сторону уменьшения ошибки, как {@code delta * input} в {@link #update}.
+     * Состояние элемента {@code i} хранится по индексу {@code stateOffset + i}. Регуляризатор здесь не
+     * применяется: после шага вызывающий код делает {@link #proximalStep(double[], int, int, int, double)}.
+     */
+    void step(double[] params, int offset, double[] gradients, int gradientOffset, int length,
+              int stateOffset, double learningRate);
+
+    /**
+     * Разреженный вариант {@link #step}: обновляются только элементы {@code e = indices[from .. to)}
+     * блока (смещения внутри блока, по возрастанию), остальные параметры и их состояние не трогаются.
+     */
+    void step(double[] params, int offset, double[] gradients, int gradientOffset,
+              int[] indices, int from, int to, int stateOffset, double learningRate);
+
+    // регуляризатор весов, null — без регуляризации; в update применяется к весам нейрона после шага
+    default Regularizer getRegularizer() {
+        return null;
+    }
+
+    /**
+     * Проксимальный шаг регуляризатора по группе {@code weights[offset .. offset + length)} после {@link #step}
+     * блока, состояние которого начинается со {@code stateOffset}. Оптимизатор, откладывающий шаг
+     * (см. {@link service.optimizer.impl.GradientAccumulator}), пропускает его, пока веса блока не обновлены.
+     */
+    default void proximalStep(double[] weights, int offset, int length, int stateOffset, double learningRate) {
+        Regularizer regularizer = getRegularizer();
+        if (regularizer != null) {
+            regularizer.proximalStep(weights, offset, length, learningRate);
+        }
+    }
+
+    // то же для группы из строк rows[from .. to), например ядра свёртки
+    default void proximalStep(double[][] rows, int from, int to, int stateOffset, double learningRate) {
+        Regularizer regularizer = getRegularizer();
+        if (regularizer != null) {
+            regularizer.proximalStep(rows, from, to, learningRate);
+        }
+    }
+
+    /**
+     * Привязка к модели с {@code parameterCount} параметрами: оптимизатор с состоянием выделяет
+     * плоские массивы, которые адресуются по {@link Neuron#getParameterIndex()} и {@link Neuron#getBiasIndex()}.
+     * При повторной привязке к большей модели уже накопленное состояние сохраняется.
+     */
+    default void bind(int parameterCount) {
+    }
+
+    // размер состояния в байтах для чекпоинта, 0 — оптимизатор без состояния
+    default int stateSize() {
+        return 0;
+    }
+
+    /**
+     * Запись состояния в чекпоинт (см. {@link StateBuffers}). {@link #readState} читает его в оптимизатор,
+     * уже привязанный к модели того же размера.
+     */
+    default void writeState(ByteBuffer buffer) {
+    }
+
+    default void readState(ByteBuffer buffer) {
+    }
+
+    /**
+     * Описание оптимизатора для чекпоинта: класс, гиперпараметры и вложенный оптимизатор.
+     * Состояние из чекпоинта загружается только в оптимизатор с тем же описанием.
+     */
+    default String descriptor() {
+        return getClass().getName();
+    }
+
 }
@@ -0,0 +1,71 @@
+package service.optimizer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Запись и чтение массивов состояния в буфер чекпоинта: длина, затем значения одним блочным копированием.
+ * Непривязанный массив ({@code null}) записывается как пустой; при чтении пустая запись обнуляет массив,
+ * так как оптимизатор без привязки ещё не сделал ни одного шага.
+ */
+public final class StateBuffers {
+
+    private StateBuffers() {
+    }
+
+    public static int size(double[] values) {
+        return Integer.BYTES + (values == null ? 0 : values.length * Double.BYTES);
+    }
+
+    public static int size(int[] values) {
+        return Integer.BYTES + (values == null ? 0 : values.length * Integer.BYTES);
+    }
+
+    public static void put(ByteBuffer buffer, double[] values) {
+        int length = values == null ? 0 : values.length;
+        buffer.putInt(length);
+        if (length > 0) {
+            buffer.asDoubleBuffer().put(values);
+            buffer.position(buffer.position() + length * Double.BYTES);
+        }
+    }
+
+    public static void put(ByteBuffer buffer, int[] values) {
+        int length = values == null ? 0 : values.length;
+        buffer.putInt(length);
+        if (length > 0) {
+            buffer.asIntBuffer().put(values);
+            buffer.position(buffer.position() + length * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Чтение в уже выделенный массив той же длины. Пустая запись обнуляет массив.
+     */
+    public static void get(ByteBuffer buffer, double[] values) {
+        int length = checkLength(buffer.getInt(), values == null ? 0 : values.length);
+        if (length > 0) {
+            buffer.asDoubleBuffer().get(values);
+            buffer.position(buffer.position() + length * Double.BYTES);
+        } else if (values != null) {
+            Arrays.fill(values, 0.0);
+        }
+    }
+
+    public static void get(ByteBuffer buffer, int[] values) {
+        int length = checkLength(buffer.getInt(), values == null ? 0 : values.length);
+        if (length > 0) {
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + length * Integer.BYTES);
+        } else if (values != null) {
+            Arrays.fill(values, 0);
+        }
+    }
+
+    private static int checkLength(int stored, int expected) {
+        if (stored != 0 && stored != expected) {
+            throw new IllegalArgumentException("Checkpoint state has " + stored + " values, model expects " + expected);
+        }
+        return stored;
+    }
+}
@@ -1,14 +1,15 @@
 package service.optimizer.impl;
 
-import lombok.AllArgsConstructor;
 import service.Neuron;
 import service.optimizer.Optimizer;
+import service.optimizer.StateBuffers;
 import service.regularizer.Regularizer;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
-@AllArgsConstructor
 public class AMSGradOptimizer implements Optimizer {
 
     private Regularizer regularizer;
@@ -17,12 +18,19 @@ public class AMSGradOptimizer implements Optimizer {
     private double betaTwo;
     private final double epsilon = 1e-8;
 
-    private final Map<Neuron, double[]> m = new HashMap<>();
-    private final Map<Neuron, double[]> v = new HashMap<>();
-    private final Map<Neuron, double[]> vHat = new HashMap<>();
-    private final Map<Neuron, Double> biasM = new HashMap<>();
-    private final Map<Neuron, Double> biasV = new HashMap<>();
-    private final Map<Neuron, Double> biasVHat = new HashMap<>();
+    // моменты по индексу параметра (веса и bias), см. bind
+    private double[] m;
+    private double[] v;
+    private double[] vHat;
+    // моменты нейронов вне модели (getParameterIndex() == -1): m, v, vHat по весам и bias последним;
+    // в состояние для контрольной точки не входят
+    private final Map<Neuron, double[][]> unbound = new HashMap<>();
+
+    public AMSGradOptimizer(Regularizer regularizer, double betaOne, double betaTwo) {
+        this.regularizer = regularizer;
+        this.betaOne = betaOne;
+        this.betaTwo = betaTwo;
+    }
 
     public AMSGradOptimizer(double betaOne, double betaTwo) {
         this.betaOne = betaOne;
@@ -31,60 +39,125 @@ public class AMSGradOptimizer implements Optimizer {
 
     @Override
     public void update(Neuron neuron, double[] inputs, double learningRate) {
-        int n = inputs.length;
-
-        m.putIfAbsent(neuron, new double[n]);
-        v.putIfAbsent(neuron, new double[n]);
-        vHat.putIfAbsent(neuron, new double[n]);
-        biasM.putIfAbsent(neuron, 0.0);
-        biasV.putIfAbsent(neuron, 0.0);
-        biasVHat.putIfAbsent(neuron, 0.0);
+        double delta = neuron.getDelta();
+        apply(neuron, delta, inputs, 0, delta, learningRate);
+    }
 
-        double[] mNeuron = m.get(neuron);
-        double[] vNeuron = v.get(neuron);
-        double[] vHatNeuron = vHat.get(neuron);
+    @Override
+    public void update(Neuron neuron, double[] weightGradients, int offset, double biasGradient, double learningRate) {
+        apply(neuron, 1.0, weightGradients, offset, biasGradient, learningRate);
+    }
 
-        double delta = neuron.getDelta();
+    @Override
+    public void bind(int parameterCount) {
+        if (m != null && m.length >= parameterCount) {
+            return;
+        }
+        m = m == null ? new double[parameterCount] : Arrays.copyOf(m, parameterCount);
+        v = v == null ? new double[parameterCount] : Arrays.copyOf(v, parameterCount);
+        vHat = vHat == null ? new double[parameterCount] : Arrays.copyOf(vHat, parameterCount);
+    }
 
+    // градиент веса i равен scale * values[offset + i]
+    private void apply(Neuron neuron, double scale, double[] values, int offset, double biasGradient, double learningRate) {
         double[] weights = neuron.getWeights();
-
-        double[] regGradient = null;
-        if (regularizer != null) {
-            regGradient = regularizer.computeGradient(weights);
+        int n = weights.length;
+        int base = neuron.getParameterIndex();
+        int biasIndex = neuron.getBiasIndex();
+        double[] m = this.m;
+        double[] v = this.v;
+        double[] vHat = this.vHat;
+        if (base < 0) {
+            double[][] state = unbound.computeIfAbsent(neuron, key -> new double[3][n + 1]);
+            m = state[0];
+            v = state[1];
+            vHat = state[2];
+            base = 0;
+            biasIndex = n;
+        } else if (m == null) {
+            throw new IllegalStateException("AMSGradOptimizer is not bound to the neuron's model");
         }
 
         for (int i = 0; i < n; i++) {
-            double grad = delta * inputs[i];
-            if (regGradient != null) {
-                grad += regGradient[i];
-            }
+            neuron.setWeight(i, weights[i] + delta(m, v, vHat, base + i, scale * values[offset + i], learningRate));
+        }
+        if (regularizer != null) {
+            regularizer.proximalStep(neuron, learningRate);
+        }
 
-            mNeuron[i] = betaOne * mNeuron[i] + (1 - betaOne) * grad;
-            vNeuron[i] = betaTwo * vNeuron[i] + (1 - betaTwo) * grad * grad;
-            vHatNeuron[i] = Math.max(vHatNeuron[i], vNeuron[i]);
+        // Отдельно обновляем bias
+        neuron.setBias(neuron.getBias() + delta(m, v, vHat, biasIndex, biasGradient, learningRate));
+    }
 
-            double correctedM = mNeuron[i]; // без bias correction для простоты
-            double correctedV = vHatNeuron[i];
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset, int length,
+                     int stateOffset, double learningRate) {
+        if (m == null || stateOffset + length > m.length) {
+            throw new IllegalStateException("AMSGradOptimizer is not bound to a model of this size");
+        }
+        double[] m = this.m;
+        double[] v = this.v;
+        double[] vHat = this.vHat;
+        for (int i = 0; i < length; i++) {
+            int k = stateOffset + i;
+            double grad = gradients[gradientOffset + i];
+            double mk = betaOne * m[k] + (1 - betaOne) * grad;
+            double vk = betaTwo * v[k] + (1 - betaTwo) * grad * grad;
+            double vHatK = Math.max(vHat[k], vk);
+            m[k] = mk;
+            v[k] = vk;
+            vHat[k] = vHatK;
+            params[offset + i] += learningRate * mk / (Math.sqrt(vHatK) + epsilon);
+        }
+    }
 
-            double weightUpdate = learningRate * correctedM / (Math.sqrt(correctedV) + epsilon);
-            neuron.setWeight(i, neuron.getWeights()[i] + weightUpdate);
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset,
+                     int[] indices, int from, int to, int stateOffset, double learningRate) {
+        if (m == null || to > from && stateOffset + indices[to - 1] >= m.length) {
+            throw new IllegalStateException("AMSGradOptimizer is not bound to a model of this size");
         }
+        for (int p = from; p < to; p++) {
+            int e = indices[p];
+            params[offset + e] += delta(m, v, vHat, stateOffset + e, gradients[gradientOffset + e], learningRate);
+        }
+    }
 
-        // Отдельно обновляем bias
-        double gradBias = delta;
+    @Override
+    public int stateSize() {
+        return StateBuffers.size(m) + StateBuffers.size(v) + StateBuffers.size(vHat);
+    }
 
-        double mBias = betaOne * biasM.get(neuron) + (1 - betaOne) * gradBias;
-        double vBias = betaTwo * biasV.get(neuron) + (1 - betaTwo) * gradBias * gradBias;
-        double vHatBias = Math.max(biasVHat.get(neuron), vBias);
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        StateBuffers.put(buffer, m);
+        StateBuffers.put(buffer, v);
+        StateBuffers.put(buffer, vHat);
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        StateBuffers.get(buffer, m);
+        StateBuffers.get(buffer, v);
+        StateBuffers.get(buffer, vHat);
+    }
 
-        biasM.put(neuron, mBias);
-        biasV.put(neuron, vBias);
-        biasVHat.put(neuron, vHatBias);
+    @Override
+    public String descriptor() {
+        return getClass().getName() + "(betaOne=" + betaOne + ", betaTwo=" + betaTwo + ", epsilon=" + epsilon + ")";
+    }
+
+    @Override
+    public Regularizer getRegularizer() {
+        return regularizer;
+    }
 
-        double correctedMBias = mBias;
-        double correctedVBias = vHatBias;
+    private double delta(double[] m, double[] v, double[] vHat, int k, double grad, double learningRate) {
+        m[k] = betaOne * m[k] + (1 - betaOne) * grad;
+        v[k] = betaTwo * v[k] + (1 - betaTwo) * grad * grad;
+        vHat[k] = Math.max(vHat[k], v[k]);
 
-        double biasUpdate = learningRate * correctedMBias / (Math.sqrt(correctedVBias) + epsilon);
-        neuron.setBias(neuron.getBias() + biasUpdate);
+        // без bias correction для простоты
+        return learningRate * m[k] / (Math.sqrt(vHat[k]) + epsilon);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package service.optimizer.impl;
+
+import service.Neuron;
+import service.optimizer.Optimizer;
+import service.optimizer.StateBuffers;
+import service.regularizer.Regularizer;
+import utility.linalg.LinAlg;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Накопление градиентов по нескольким микропакетам с отложенным шагом.
+ * Градиенты каждого вызова суммируются в буфер, выделенный в {@link #bind(int)}; на {@code steps}-м вызове
+ * для того же блока параметров вложенный оптимизатор получает средний градиент и делает один шаг.
+ * При микропакетах одного размера это то же самое, что шаг по пакету в {@code steps} раз больше.
+ * <p>
+ * Блок определяется началом своего диапазона в раскладке параметров, поэтому для одной модели нужно
+ * использовать либо пообъектные {@code update}, либо блочный {@code step}, но не оба сразу.
+ * Незавершённое накопление в конце эпохи переходит в следующий цикл. Проксимальный шаг регуляризатора
+ * ({@link #proximalStep}) тоже выполняется только вместе с настоящим шагом блока.
+ */
+public class GradientAccumulator implements Optimizer {
+
+    private final Optimizer optimizer;
+    private final int steps;
+
+    // сумма градиентов и число накопленных вызовов по индексу начала блока
+    private double[] gradients;
+    private int[] counts;
+
+    public GradientAccumulator(Optimizer optimizer, int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("Accumulation steps must be positive: " + steps);
+        }
+        this.optimizer = optimizer;
+        this.steps = steps;
+    }
+
+    @Override
+    public void update(Neuron neuron, double[] inputs, double learningRate) {
+        double delta = neuron.getDelta();
+        accumulate(neuron, delta, inputs, 0, delta, learningRate);
+    }
+
+    @Override
+    public void update(Neuron neuron, double[] weightGradients, int offset, double biasGradient, double learningRate) {
+        accumulate(neuron, 1.0, weightGradients, offset, biasGradient, learningRate);
+    }
+
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset, int length,
+                     int stateOffset, double learningRate) {
+        checkBound(stateOffset + length);
+        LinAlg.axpy(length, 1.0, gradients, gradientOffset, this.gradients, stateOffset);
+        if (++counts[stateOffset] < steps) {
+            return;
+        }
+        counts[stateOffset] = 0;
+        LinAlg.scal(length, 1.0 / steps, this.gradients, stateOffset);
+        optimizer.step(params, offset, this.gradients, stateOffset, length, stateOffset, learningRate);
+        Arrays.fill(this.gradients, stateOffset, stateOffset + length, 0.0);
+    }
+
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset,
+                     int[] indices, int from, int to, int stateOffset, double learningRate) {
+        checkBound(stateOffset + (to > from ? indices[to - 1] : 0) + 1);
+        for (int p = from; p < to; p++) {
+            int e = indices[p];
+            this.gradients[stateOffset + e] += gradients[gradientOffset + e];
+        }
+        if (++counts[stateOffset] < steps) {
+            return;
+        }
+        counts[stateOffset] = 0;
+        double inv = 1.0 / steps;
+        for (int p = from; p < to; p++) {
+            this.gradients[stateOffset + indices[p]] *= inv;
+        }
+        optimizer.step(params, offset, this.gradients, stateOffset, indices, from, to, stateOffset, learningRate);
+        for (int p = from; p < to; p++) {
+            this.gradients[stateOffset + indices[p]] = 0.0;
+        }
+    }
+
+    @Override
+    public Regularizer getRegularizer() {
+        return optimizer.getRegularizer();
+    }
+
+    // счётчик блока сбрасывается в ноль только настоящим шагом, поэтому регуляризатор срабатывает раз на steps вызовов
+    @Override
+    public void proximalStep(double[] weights, int offset, int length, int stateOffset, double learningRate) {
+        checkBound(stateOffset + 1);
+        if (counts[stateOffset] == 0) {
+            optimizer.proximalStep(weights, offset, length, stateOffset, learningRate);
+        }
+    }
+
+    @Override
+    public void proximalStep(double[][] rows, int from, int to, int stateOffset, double learningRate) {
+        checkBound(stateOffset + 1);
+        if (counts[stateOffset] == 0) {
+            optimizer.proximalStep(rows, from, to, stateOffset, learningRate);
+        }
+    }
+
+    @Override
+    public void bind(int parameterCount) {
+        optimizer.bind(parameterCount);
+        if (gradients != null && gradients.length >= parameterCount) {
+            return;
+        }
+        gradients = gradients == null ? new double[parameterCount] : Arrays.copyOf(gradients, parameterCount);
+        counts = counts == null ? new int[parameterCount] : Arrays.copyOf(counts, parameterCount);
+    }
+
+    @Override
+    public int stateSize() {
+        return optimizer.stateSize() + StateBuffers.size(gradients) + StateBuffers.size(counts);
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        optimizer.writeState(buffer);
+        StateBuffers.put(buffer, gradients);
+        StateBuffers.put(buffer, counts);
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        optimizer.readState(buffer);
+        StateBuffers.get(buffer, gradients);
+        StateBuffers.get(buffer, counts);
+    }
+
+    @Override
+    public String descriptor() {
+        return getClass().getName() + "(steps=" + steps + ", " + optimizer.descriptor() + ")";
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    // градиент веса i равен scale * values[offset + i]
+    private void accumulate(Neuron neuron, double scale, double[] values, int offset, double biasGradient,
+                            double learningRate) {
+        int base = neuron.getParameterIndex();
+        int biasIndex = neuron.getBiasIndex();
+        if (base < 0) {
+            throw new IllegalStateException("GradientAccumulator is not bound to the neuron's model");
+        }
+        checkBound(biasIndex + 1);
+        int n = neuron.getWeights().length;
+
+        LinAlg.axpy(n, scale, values, offset, gradients, base);
+        gradients[biasIndex] += biasGradient;
+        if (++counts[base] < steps) {
+            return;
+        }
+        counts[base] = 0;
+        double inv = 1.0 / steps;
+        LinAlg.scal(n, inv, gradients, base);
+        optimizer.update(neuron, gradients, base, gradients[biasIndex] * inv, learningRate);
+        Arrays.fill(gradients, base, base + n, 0.0);
+        gradients[biasIndex] = 0.0;
+    }
+
+    private void checkBound(int end) {
+        if (gradients == null || end > gradients.length) {
+            throw new IllegalStateException("GradientAccumulator is not bound to a model of this size");
+        }
+    }
+}
@@ -1,83 +1,150 @@
 package service.optimizer.impl;
 
-import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
 import service.Neuron;
 import service.optimizer.Optimizer;
+import service.optimizer.StateBuffers;
 import service.regularizer.Regularizer;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
-@AllArgsConstructor
 public class RmspropGravesOptimizer implements Optimizer {
 
     private Regularizer regularizer;
     private double rho;
 
+    public RmspropGravesOptimizer(Regularizer regularizer, double rho) {
+        this.regularizer = regularizer;
+        this.rho = rho;
+    }
+
     public RmspropGravesOptimizer(double rho) {
         this.rho = rho;
     }
 
     private final double epsilon = 1e-4;
 
-    private final Map<Neuron, double[]> eg = new HashMap<>();
-    private final Map<Neuron, double[]> eg2 = new HashMap<>();
-
-    private final Map<Neuron, Double> egBias = new HashMap<>();
-    private final Map<Neuron, Double> eg2Bias = new HashMap<>();
+    // скользящие средние градиента и его квадрата по индексу параметра, см. bind
+    private double[] eg;
+    private double[] eg2;
+    // средние нейронов вне модели (getParameterIndex() == -1): eg и eg2 по весам и bias последним;
+    // в состояние для контрольной точки не входят
+    private final Map<Neuron, double[][]> unbound = new HashMap<>();
 
     @Override
     public void update(Neuron neuron, double[] inputs, double learningRate) {
-        int n = inputs.length;
-
-        eg.putIfAbsent(neuron, new double[n]);
-        eg2.putIfAbsent(neuron, new double[n]);
-        egBias.putIfAbsent(neuron, 0.0);
-        eg2Bias.putIfAbsent(neuron, 0.0);
+        double delta = neuron.getDelta();
+        apply(neuron, delta, inputs, 0, delta, learningRate);
+    }
 
-        double[] egNeuron = eg.get(neuron);
-        double[] eg2Neuron = eg2.get(neuron);
+    @Override
+    public void update(Neuron neuron, double[] weightGradients, int offset, double biasGradient, double learningRate) {
+        apply(neuron, 1.0, weightGradients, offset, biasGradient, learningRate);
+    }
 
-        double delta = neuron.getDelta();
+    @Override
+    public void bind(int parameterCount) {
+        if (eg != null && eg.length >= parameterCount) {
+            return;
+        }
+        eg = eg == null ? new double[parameterCount] : Arrays.copyOf(eg, parameterCount);
+        eg2 = eg2 == null ? new double[parameterCount] : Arrays.copyOf(eg2, parameterCount);
+    }
 
+    // градиент веса i равен scale * values[offset + i]
+    private void apply(Neuron neuron, double scale, double[] values, int offset, double biasGradient, double learningRate) {
         double[] weights = neuron.getWeights();
-
-        double[] regGradient = null;
-        if (regularizer != null) {
-            regGradient = regularizer.computeGradient(weights);
+        int n = weights.length;
+        int base = neuron.getParameterIndex();
+        int biasIndex = neuron.getBiasIndex();
+        double[] eg = this.eg;
+        double[] eg2 = this.eg2;
+        if (base < 0) {
+            double[][] state = unbound.computeIfAbsent(neuron, key -> new double[2][n + 1]);
+            eg = state[0];
+            eg2 = state[1];
+            base = 0;
+            biasIndex = n;
+        } else if (eg == null) {
+            throw new IllegalStateException("RmspropGravesOptimizer is not bound to the neuron's model");
         }
 
         for (int i = 0; i < n; i++) {
-            double grad = delta * inputs[i];
-            if (regGradient != null) {
-                grad += regGradient[i];
-            }
+            neuron.setWeight(i, weights[i] + delta(eg, eg2, base + i, scale * values[offset + i], learningRate));
+        }
+        if (regularizer != null) {
+            regularizer.proximalStep(neuron, learningRate);
+        }
 
-            egNeuron[i] = rho * egNeuron[i] + (1 - rho) * grad;
-            eg2Neuron[i] = rho * eg2Neuron[i] + (1 - rho) * grad * grad;
+        // Bias
+        neuron.setBias(neuron.getBias() + delta(eg, eg2, biasIndex, biasGradient, learningRate));
+    }
 
-            double denom = Math.sqrt(eg2Neuron[i] - egNeuron[i] * egNeuron[i] + epsilon);
-            double update = learningRate * grad / denom;
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset, int length,
+                     int stateOffset, double learningRate) {
+        if (eg == null || stateOffset + length > eg.length) {
+            throw new IllegalStateException("RmspropGravesOptimizer is not bound to a model of this size");
+        }
+        double[] eg = this.eg;
+        double[] eg2 = this.eg2;
+        for (int i = 0; i < length; i++) {
+            int k = stateOffset + i;
+            double grad = gradients[gradientOffset + i];
+            double egK = rho * eg[k] + (1 - rho) * grad;
+            double eg2K = rho * eg2[k] + (1 - rho) * grad * grad;
+            eg[k] = egK;
+            eg2[k] = eg2K;
+            params[offset + i] += learningRate * grad / Math.sqrt(eg2K - egK * egK + epsilon);
+        }
+    }
 
-            neuron.setWeight(i, neuron.getWeights()[i] + update);
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset,
+                     int[] indices, int from, int to, int stateOffset, double learningRate) {
+        if (eg == null || to > from && stateOffset + indices[to - 1] >= eg.length) {
+            throw new IllegalStateException("RmspropGravesOptimizer is not bound to a model of this size");
         }
+        for (int p = from; p < to; p++) {
+            int e = indices[p];
+            params[offset + e] += delta(eg, eg2, stateOffset + e, gradients[gradientOffset + e], learningRate);
+        }
+    }
 
-        // Bias
-        double gradBias = delta;
+    @Override
+    public int stateSize() {
+        return StateBuffers.size(eg) + StateBuffers.size(eg2);
+    }
 
-        double prevEg = egBias.get(neuron);
-        double prevEg2 = eg2Bias.get(neuron);
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        StateBuffers.put(buffer, eg);
+        StateBuffers.put(buffer, eg2);
+    }
 
-        double newEg = rho * prevEg + (1 - rho) * gradBias;
-        double newEg2 = rho * prevEg2 + (1 - rho) * gradBias * gradBias;
+    @Override
+    public void readState(ByteBuffer buffer) {
+        StateBuffers.get(buffer, eg);
+        StateBuffers.get(buffer, eg2);
+    }
 
-        double denomBias = Math.sqrt(newEg2 - newEg * newEg + epsilon);
-        double updateBias = learningRate * gradBias / denomBias;
+    @Override
+    public String descriptor() {
+        return getClass().getName() + "(rho=" + rho + ", epsilon=" + epsilon + ")";
+    }
+
+    @Override
+    public Regularizer getRegularizer() {
+        return regularizer;
+    }
 
-        neuron.setBias(neuron.getBias() + updateBias);
+    private double delta(double[] eg, double[] eg2, int k, double grad, double learningRate) {
+        eg[k] = rho * eg[k] + (1 - rho) * grad;
+        eg2[k] = rho * eg2[k] + (1 - rho) * grad * grad;
 
-        egBias.put(neuron, newEg);
-        eg2Bias.put(neuron, newEg2);
+        double denom = Math.sqrt(eg2[k] - eg[k] * eg[k] + epsilon);
+        return learningRate * grad / denom;
     }
 }
@@ -6,11 +6,18 @@ import lombok.extern.slf4j.Slf4j;
 import service.Neuron;
 import service.optimizer.Optimizer;
 import service.regularizer.Regularizer;
+import utility.linalg.LinAlg;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Slf4j
 public class SGDOptimizer implements Optimizer {
+
+    private static final VarHandle DOUBLE_ARRAY = MethodHandles.arrayElementVarHandle(double[].class);
+
     private Regularizer regularizer;
 
     @Override
@@ -19,21 +26,89 @@ public class SGDOptimizer implements Optimizer {
         //        neuron.getDelta(), inputs.length, learningRate);
 
         double delta = neuron.getDelta();
+        apply(neuron, delta, inputs, 0, delta, learningRate);
+    }
+
+    @Override
+    public void update(Neuron neuron, double[] weightGradients, int offset, double biasGradient, double learningRate) {
+        apply(neuron, 1.0, weightGradients, offset, biasGradient, learningRate);
+    }
+
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset, int length,
+                     int stateOffset, double learningRate) {
+        LinAlg.axpy(length, learningRate, gradients, gradientOffset, params, offset);
+    }
+
+    @Override
+    public void step(double[] params, int offset, double[] gradients, int gradientOffset,
+                     int[] indices, int from, int to, int stateOffset, double learningRate) {
+        for (int p = from; p < to; p++) {
+            int e = indices[p];
+            params[offset + e] += learningRate * gradients[gradientOffset + e];
+        }
+    }
+
+    @Override
+    public Regularizer getRegularizer() {
+        return regularizer;
+    }
+
+    // градиент веса i равен scale * values[offset + i]
+    private void apply(Neuron neuron, double scale, double[] values, int offset, double biasGradient, double learningRate) {
         double[] weights = neuron.getWeights();
 
-        double[] regGradient = null;
+        for (int i = 0; i < weights.length; i++) {
+            neuron.setWeight(i, weights[i] + learningRate * scale * values[offset + i]);
+        }
         if (regularizer != null) {
-            regGradient = regularizer.computeGradient(weights);
+            regularizer.proximalStep(neuron, learningRate);
         }
 
-        for (int i = 0; i < weights.length; i++) {
-            double grad = delta * inputs[i];
-            if (regGradient != null) {
-                grad += regGradient[i];
+        neuron.setBias(neuron.getBias() + learningRate * biasGradient);
+    }
+
+    /**
+     * Обновление строки весов и bias прямо в общих массивах без блокировок (асинхронный режим Hogwild).
+     * Нулевые компоненты градиента пропускаются, поэтому при разреженных входах потоки почти не пишут
+     * в одни и те же ячейки.
+     * <p>
+     * При {@code atomic == false} используется обычное чтение-сложение-запись: шаг другого потока может быть
+     * перезаписан (теряется не больше одного шага {@code learningRate * grad} на ячейку за гонку), а по JLS 17.7
+     * запись double без volatile на 32-битных JVM может быть разорвана на две половины.
+     * При {@code atomic == true} каждая ячейка обновляется циклом compareAndSet: шаги не теряются и не рвутся,
+     * ценой более дорогой записи.
+     * <p>
+     * Градиент регуляризатора добавляется прямо в {@code weightGradients}: проксимальный шаг по общим весам
+     * без блокировок не применить.
+     */
+    public void updateShared(double[] weights, int offset, double[] weightGradients, int gradientOffset, int length,
+                             double[] biases, int biasIndex, double biasGradient,
+                             double learningRate, boolean atomic) {
+        if (regularizer != null) {
+            regularizer.accumulateGradient(weights, offset, length, weightGradients, gradientOffset, -1.0);
+        }
+
+        for (int i = 0; i < length; i++) {
+            double grad = weightGradients[gradientOffset + i];
+            if (grad != 0.0) {
+                add(weights, offset + i, learningRate * grad, atomic);
             }
-            neuron.setWeight(i, weights[i] + learningRate * grad);
         }
 
-        neuron.setBias(neuron.getBias() + learningRate * delta);
+        if (biasGradient != 0.0) {
+            add(biases, biasIndex, learningRate * biasGradient, atomic);
+        }
+    }
+
+    private static void add(double[] array, int index, double value, boolean atomic) {
+        if (!atomic) {
+            array[index] += value;
+            return;
+        }
+        double current;
+        do {
+            current = (double) DOUBLE_ARRAY.getVolatile(array, index);
+        } while (!DOUBLE_ARRAY.compareAndSet(array, index, current, current + value));
     }
 }
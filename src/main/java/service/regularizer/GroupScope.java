@@ -0,0 +1,18 @@
+package service.regularizer;
+
+/**
+ * Граница групп для group lasso.
+ */
+public enum GroupScope {
+    // веса одного нейрона: строка матрицы весов полносвязного слоя
+    NEURON,
+    // веса одного ядра свёртки; в полносвязных слоях совпадает с NEURON
+    KERNEL,
+    // все веса слоя
+    LAYER;
+
+    // длина группы по длине весов одного нейрона (ядра) и всего слоя
+    public int groupLength(int unitLength, int layerLength) {
+        return this == LAYER ? layerLength : unitLength;
+    }
+}
@@ -1,7 +1,45 @@
 package service.regularizer;
 
+import service.Neuron;
+
+/**
+ * Регуляризатор весов. Методы работают на месте над одной группой весов {@code weights[offset .. offset + length)}:
+ * для поэлементных штрафов (L1, L2, elastic net) деление на группы ничего не меняет, для group lasso группа
+ * задаётся {@link #getScope()}. Слои вызывают {@link #proximalStep} через
+ * {@link service.optimizer.Optimizer#proximalStep(double[], int, int, int, double)}, один раз на настоящий шаг оптимизатора.
+ */
 public interface Regularizer {
 
-    double[] computeGradient(double[] weights);
+    // штраф R(w) группы
+    double penalty(double[] weights, int offset, int length);
+
+    /**
+     * Добавляет {@code scale * dR/dw} к {@code gradient[gradientOffset .. gradientOffset + length)}.
+     * Для градиента, направленного в сторону уменьшения ошибки, {@code scale = -1}.
+     */
+    void accumulateGradient(double[] weights, int offset, int length, double[] gradient, int gradientOffset,
+                            double scale);
+
+    /**
+     * Проксимальный шаг {@code w = prox(step * R)(w)} для группы.
+     */
+    void proximalStep(double[] weights, int offset, int length, double step);
+
+    // группа из строк rows[from .. to), например ядро свёртки; поэлементные штрафы применяются построчно
+    default void proximalStep(double[][] rows, int from, int to, double step) {
+        for (int r = from; r < to; r++) {
+            proximalStep(rows[r], 0, rows[r].length, step);
+        }
+    }
+
+    // веса одного нейрона как группа, без выделения памяти
+    default void proximalStep(Neuron neuron, double step) {
+        double[] weights = neuron.getWeights();
+        proximalStep(weights, 0, weights.length, step);
+        neuron.setWeights(weights);
+    }
 
+    default GroupScope getScope() {
+        return GroupScope.NEURON;
+    }
 }
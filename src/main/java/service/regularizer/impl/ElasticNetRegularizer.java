@@ -0,0 +1,43 @@
+package service.regularizer.impl;
+
+import service.regularizer.Regularizer;
+import utility.linalg.LinAlg;
+
+/**
+ * Elastic net: {@code R(w) = l1 * sum |w_i| + l2 / 2 * sum w_i^2}.
+ * Проксимальный шаг — мягкий порог L1, затем сжатие L2.
+ */
+public class ElasticNetRegularizer implements Regularizer {
+
+    private final double l1;
+    private final double l2;
+
+    public ElasticNetRegularizer(double l1, double l2) {
+        this.l1 = l1;
+        this.l2 = l2;
+    }
+
+    @Override
+    public double penalty(double[] weights, int offset, int length) {
+        double abs = 0.0;
+        for (int i = 0; i < length; i++) {
+            abs += Math.abs(weights[offset + i]);
+        }
+        return l1 * abs + 0.5 * l2 * LinAlg.dot(weights, offset, weights, offset, length);
+    }
+
+    @Override
+    public void accumulateGradient(double[] weights, int offset, int length, double[] gradient, int gradientOffset,
+                                   double scale) {
+        for (int i = 0; i < length; i++) {
+            double w = weights[offset + i];
+            gradient[gradientOffset + i] += scale * (l1 * Math.signum(w) + l2 * w);
+        }
+    }
+
+    @Override
+    public void proximalStep(double[] weights, int offset, int length, double step) {
+        L1Regularizer.softThreshold(weights, offset, length, step * l1);
+        LinAlg.scal(length, 1.0 / (1.0 + step * l2), weights, offset);
+    }
+}
@@ -1,24 +1,81 @@
 package service.regularizer.impl;
 
-import lombok.AllArgsConstructor;
+import service.regularizer.GroupScope;
 import service.regularizer.Regularizer;
 
-@AllArgsConstructor
+/**
+ * Group lasso: {@code R(w) = lambda * ||w||} по каждой группе. Проксимальный шаг сжимает группу к нулю
+ * целиком и зануляет её, если норма не больше {@code step * lambda}.
+ */
 public class GroupLassoRegularizer implements Regularizer {
-    private double lambda;
+
+    private final double lambda;
+    private final GroupScope scope;
+
+    public GroupLassoRegularizer(double lambda, GroupScope scope) {
+        this.lambda = lambda;
+        this.scope = scope;
+    }
+
+    public GroupLassoRegularizer(double lambda) {
+        this(lambda, GroupScope.NEURON);
+    }
+
+    @Override
+    public double penalty(double[] weights, int offset, int length) {
+        return lambda * Math.sqrt(squaredNorm(weights, offset, length));
+    }
+
+    @Override
+    public void accumulateGradient(double[] weights, int offset, int length, double[] gradient, int gradientOffset,
+                                   double scale) {
+        double norm = Math.sqrt(squaredNorm(weights, offset, length)) + 1e-8; // чтобы не было деления на ноль
+        double factor = scale * lambda / norm;
+        for (int i = 0; i < length; i++) {
+            gradient[gradientOffset + i] += factor * weights[offset + i];
+        }
+    }
 
     @Override
-    public double[] computeGradient(double[] weights) {
-        double l2Norm = 0.0;
-        for (double w : weights) {
-            l2Norm += w * w;
+    public void proximalStep(double[] weights, int offset, int length, double step) {
+        double factor = shrink(squaredNorm(weights, offset, length), step);
+        for (int i = 0; i < length; i++) {
+            weights[offset + i] *= factor;
         }
-        l2Norm = Math.sqrt(l2Norm) + 1e-8; // чтобы не было деления на ноль
+    }
+
+    @Override
+    public void proximalStep(double[][] rows, int from, int to, double step) {
+        double squared = 0.0;
+        for (int r = from; r < to; r++) {
+            squared += squaredNorm(rows[r], 0, rows[r].length);
+        }
+        double factor = shrink(squared, step);
+        for (int r = from; r < to; r++) {
+            double[] row = rows[r];
+            for (int i = 0; i < row.length; i++) {
+                row[i] *= factor;
+            }
+        }
+    }
+
+    @Override
+    public GroupScope getScope() {
+        return scope;
+    }
+
+    private double shrink(double squaredNorm, double step) {
+        double norm = Math.sqrt(squaredNorm);
+        double threshold = step * lambda;
+        return norm <= threshold ? 0.0 : 1.0 - threshold / norm;
+    }
 
-        double[] regGrad = new double[weights.length];
-        for (int i = 0; i < weights.length; i++) {
-            regGrad[i] = lambda * weights[i] / l2Norm;
+    private static double squaredNorm(double[] weights, int offset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            double w = weights[offset + i];
+            sum += w * w;
         }
-        return regGrad;
+        return sum;
     }
 }
@@ -0,0 +1,45 @@
+package service.regularizer.impl;
+
+import service.regularizer.Regularizer;
+
+/**
+ * L1: {@code R(w) = lambda * sum |w_i|}. Проксимальный шаг — мягкий порог, мелкие веса становятся точно нулём.
+ */
+public class L1Regularizer implements Regularizer {
+
+    private final double lambda;
+
+    public L1Regularizer(double lambda) {
+        this.lambda = lambda;
+    }
+
+    @Override
+    public double penalty(double[] weights, int offset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            sum += Math.abs(weights[offset + i]);
+        }
+        return lambda * sum;
+    }
+
+    @Override
+    public void accumulateGradient(double[] weights, int offset, int length, double[] gradient, int gradientOffset,
+                                   double scale) {
+        double factor = scale * lambda;
+        for (int i = 0; i < length; i++) {
+            gradient[gradientOffset + i] += factor * Math.signum(weights[offset + i]);
+        }
+    }
+
+    @Override
+    public void proximalStep(double[] weights, int offset, int length, double step) {
+        softThreshold(weights, offset, length, step * lambda);
+    }
+
+    static void softThreshold(double[] weights, int offset, int length, double threshold) {
+        for (int i = offset; i < offset + length; i++) {
+            double w = weights[i];
+            weights[i] = w > threshold ? w - threshold : w < -threshold ? w + threshold : 0.0;
+        }
+    }
+}
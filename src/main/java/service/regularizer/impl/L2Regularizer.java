@@ -0,0 +1,32 @@
+package service.regularizer.impl;
+
+import service.regularizer.Regularizer;
+import utility.linalg.LinAlg;
+
+/**
+ * L2 (weight decay): {@code R(w) = lambda / 2 * sum w_i^2}. Проксимальный шаг — умножение на {@code 1 / (1 + step * lambda)}.
+ */
+public class L2Regularizer implements Regularizer {
+
+    private final double lambda;
+
+    public L2Regularizer(double lambda) {
+        this.lambda = lambda;
+    }
+
+    @Override
+    public double penalty(double[] weights, int offset, int length) {
+        return 0.5 * lambda * LinAlg.dot(weights, offset, weights, offset, length);
+    }
+
+    @Override
+    public void accumulateGradient(double[] weights, int offset, int length, double[] gradient, int gradientOffset,
+                                   double scale) {
+        LinAlg.axpy(length, scale * lambda, weights, offset, gradient, gradientOffset);
+    }
+
+    @Override
+    public void proximalStep(double[] weights, int offset, int length, double step) {
+        LinAlg.scal(length, 1.0 / (1.0 + step * lambda), weights, offset);
+    }
+}
@@ -1,5 +1,7 @@
 package utility;
 
+import utility.linalg.LinAlg;
+
 public class ActivationFunctions {
     // ReLU функция активации с минимальным значением epsilon
     public static double[][] relu(double[][] matrix, double epsilon) {
@@ -16,6 +18,14 @@ public class ActivationFunctions {
         return result;
     }
 
+    // ReLU на месте, без копии матрицы
+    public static double[][] reluInPlace(double[][] matrix, double epsilon) {
+        for (double[] row : matrix) {
+            LinAlg.relu(row, 0, row.length, epsilon);
+        }
+        return matrix;
+    }
+
     // Перегрузка с epsilon по умолчанию
     public static double[][] relu(double[][] matrix) {
         return relu(matrix, 1e-7);
@@ -1,5 +1,7 @@
 package utility;
 
+import utility.linalg.LinAlg;
+
 public class MatrixUtils {
 
     public static double convolveRegion(double[][] input, double[][] kernel, int x, int y) {
@@ -8,9 +10,7 @@ public class MatrixUtils {
         double sum = 0.0;
 
         for (int i = 0; i < kernelWidth; i++) {
-            for (int j = 0; j < kernelHeight; j++) {
-                sum += input[x + i][y + j] * kernel[i][j];
-            }
+            sum += LinAlg.dot(input[x + i], y, kernel[i], 0, kernelHeight);
         }
 
         return sum;
@@ -26,7 +26,13 @@ public class MatrixUtils {
         int outputWidth = (inputWidth - kernelWidth) / stride + 1;
         int outputHeight = (inputHeight - kernelHeight) / stride + 1;
 
-        double[][] output = new double[outputWidth][outputHeight];
+        return convolve(input, kernel, stride, new double[outputWidth][outputHeight]);
+    }
+
+    // Свёртка в заранее выделенный массив нужного размера
+    public static double[][] convolve(double[][] input, double[][] kernel, int stride, double[][] output) {
+        int outputWidth = output.length;
+        int outputHeight = output[0].length;
 
         for (int i = 0; i < outputWidth; i++) {
             for (int j = 0; j < outputHeight; j++) {
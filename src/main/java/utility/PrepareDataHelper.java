@@ -52,11 +52,8 @@ public class PrepareDataHelper {
                 }
             }
 
-            double[][] fcWeights = model.fcLayer.getWeights();
-            for (double[] row : fcWeights) {
-                for (double val : row) {
-                    writer.writeDouble(val);
-                }
+            for (double val : model.fcLayer.getWeights()) {
+                writer.writeDouble(val);
             }
 
             System.out.println("Модель сохранена в " + path + " (оригинальный формат)");
@@ -86,11 +83,8 @@ public class PrepareDataHelper {
                 }
             }
 
-            double[][] fcWeights = model.fcLayer.getWeights();
-            for (double[] row : fcWeights) {
-                for (double val : row) {
-                    writer.writeByte((int) (val * 255));
-                }
+            for (double val : model.fcLayer.getWeights()) {
+                writer.writeByte((int) (val * 255));
             }
 
             System.out.println("Модель сохранена в " + path + " (8-битный формат)");
@@ -0,0 +1,79 @@
+package utility.linalg;
+
+/**
+ * Быстрые приближения tanh и сигмоиды по таблице с линейной интерполяцией, без вызова {@link Math#exp}.
+ * <p>
+ * tanh берётся из таблицы на [0, 10) с шагом 1/256 и нечётной симметрией, за пределами — ±1.
+ * Ошибка линейной интерполяции не больше {@code h^2 / 8 * max|tanh''| = 0.77 / (8 * 256^2)}, хвост за 10
+ * даёт {@code 1 - tanh(10) < 5e-9}, отсюда {@link #TANH_MAX_ERROR}. Сигмоида считается как
+ * {@code 0.5 + 0.5 * tanh(x / 2)}, её ошибка вдвое меньше ({@link #SIGMOID_MAX_ERROR}).
+ * Для float к оценкам добавляется округление результата (не больше 6e-8). NaN проходит насквозь.
+ */
+public final class FastActivations {
+
+    // максимальная абсолютная ошибка tanh (double)
+    public static final double TANH_MAX_ERROR = 1.5e-6;
+    // максимальная абсолютная ошибка сигмоиды (double)
+    public static final double SIGMOID_MAX_ERROR = 7.5e-7;
+
+    private static final int STEPS_PER_UNIT = 256;
+    private static final double RANGE = 10.0;
+    private static final double[] TANH = new double[(int) (RANGE * STEPS_PER_UNIT) + 2];
+
+    static {
+        for (int k = 0; k < TANH.length; k++) {
+            TANH[k] = Math.tanh((double) k / STEPS_PER_UNIT);
+        }
+    }
+
+    private FastActivations() {
+    }
+
+    public static double tanh(double x) {
+        double a = Math.abs(x);
+        if (!(a < RANGE)) {
+            return a != a ? x : Math.copySign(1.0, x);
+        }
+        double p = a * STEPS_PER_UNIT;
+        int k = (int) p;
+        double y0 = TANH[k];
+        double y = y0 + (p - k) * (TANH[k + 1] - y0);
+        return x < 0 ? -y : y;
+    }
+
+    public static double sigmoid(double x) {
+        return 0.5 + 0.5 * tanh(0.5 * x);
+    }
+
+    public static float tanh(float x) {
+        return (float) tanh((double) x);
+    }
+
+    public static float sigmoid(float x) {
+        return (float) sigmoid((double) x);
+    }
+
+    public static void tanh(double[] x, int off, int n) {
+        for (int i = off; i < off + n; i++) {
+            x[i] = tanh(x[i]);
+        }
+    }
+
+    public static void sigmoid(double[] x, int off, int n) {
+        for (int i = off; i < off + n; i++) {
+            x[i] = sigmoid(x[i]);
+        }
+    }
+
+    public static void tanh(float[] x, int off, int n) {
+        for (int i = off; i < off + n; i++) {
+            x[i] = (float) tanh((double) x[i]);
+        }
+    }
+
+    public static void sigmoid(float[] x, int off, int n) {
+        for (int i = off; i < off + n; i++) {
+            x[i] = (float) sigmoid((double) x[i]);
+        }
+    }
+}
@@ -0,0 +1,669 @@
+package utility.linalg;
+
+/**
+ * Общие ядра линейной алгебры для всех слоёв.
+ * Матрицы хранятся построчно в плоских массивах: элемент (i, j) матрицы A лежит в
+ * {@code a[aOff + i * lda + j]}. Умножения матриц разбиты на блоки, чтобы рабочие куски
+ * помещались в кэш, а скалярные произведения считаются сразу для нескольких строк
+ * (несколько независимых аккумуляторов в регистрах).
+ * <p>
+ * Если при запуске подключён модуль {@code jdk.incubator.vector} ({@code --add-modules jdk.incubator.vector}),
+ * длинные циклы выполняются через {@link VectorKernels} (SIMD на AVX2/AVX-512/NEON), иначе — скалярный код ниже.
+ * Векторные ядра можно отключить свойством {@code -Dlinalg.simd=false}.
+ */
+public final class LinAlg {
+
+    // размеры блоков: строки A, общая размерность и столбцы C
+    private static final int MC = 64;
+    private static final int KC = 256;
+    private static final int NC = 1024;
+
+    // короче этого векторный путь не окупает хвостовой цикл и редукцию
+    private static final int SIMD_MIN_LENGTH = 16;
+
+    private static final boolean SIMD = detectSimd();
+
+    private LinAlg() {
+    }
+
+    /**
+     * Используются ли векторные ядра в этом запуске.
+     */
+    public static boolean isVectorized() {
+        return SIMD;
+    }
+
+    private static boolean detectSimd() {
+        if (!Boolean.parseBoolean(System.getProperty("linalg.simd", "true"))) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorKernels.doubleLanes() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    // ---------------------------------------------------------------- double
+
+    public static double dot(double[] x, int xOff, double[] y, int yOff, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            return VectorKernels.dot(x, xOff, y, yOff, n);
+        }
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            s0 += x[xOff + i] * y[yOff + i];
+            s1 += x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static double dot(double[] x, double[] y, int n) {
+        return dot(x, 0, y, 0, n);
+    }
+
+    // y += alpha * x
+    public static void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff) {
+        if (alpha == 0.0) {
+            return;
+        }
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.axpy(n, alpha, x, xOff, y, yOff);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    public static void axpy(int n, double alpha, double[] x, double[] y) {
+        axpy(n, alpha, x, 0, y, 0);
+    }
+
+    // x *= alpha
+    public static void scal(int n, double alpha, double[] x, int xOff) {
+        for (int i = 0; i < n; i++) {
+            x[xOff + i] *= alpha;
+        }
+    }
+
+    // x = 1 / (1 + exp(-x)) на месте
+    public static void sigmoid(double[] x, int off, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.sigmoid(x, off, n);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            x[off + i] = 1.0 / (1.0 + Math.exp(-x[off + i]));
+        }
+    }
+
+    // x = tanh(x) на месте
+    public static void tanh(double[] x, int off, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.tanh(x, off, n);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            x[off + i] = Math.tanh(x[off + i]);
+        }
+    }
+
+    // x = max(floor, x) на месте
+    public static void relu(double[] x, int off, int n, double floor) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.relu(x, off, n, floor);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            x[off + i] = Math.max(floor, x[off + i]);
+        }
+    }
+
+    /**
+     * y = A * x + beta * y, A размера m x n.
+     */
+    public static void gemv(int m, int n, double[] a, int aOff, int lda,
+                            double[] x, int xOff, double beta, double[] y, int yOff) {
+        int i = 0;
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            // векторное скалярное произведение на строку быстрее скалярной плитки 4 x 1
+            for (; i < m; i++) {
+                y[yOff + i] = dot(a, aOff + i * lda, x, xOff, n) + beta(beta, y[yOff + i]);
+            }
+        }
+        for (; i <= m - 4; i += 4) {
+            int r0 = aOff + i * lda, r1 = r0 + lda, r2 = r1 + lda, r3 = r2 + lda;
+            double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+            for (int j = 0; j < n; j++) {
+                double xj = x[xOff + j];
+                s0 += a[r0 + j] * xj;
+                s1 += a[r1 + j] * xj;
+                s2 += a[r2 + j] * xj;
+                s3 += a[r3 + j] * xj;
+            }
+            y[yOff + i] = s0 + beta(beta, y[yOff + i]);
+            y[yOff + i + 1] = s1 + beta(beta, y[yOff + i + 1]);
+            y[yOff + i + 2] = s2 + beta(beta, y[yOff + i + 2]);
+            y[yOff + i + 3] = s3 + beta(beta, y[yOff + i + 3]);
+        }
+        for (; i < m; i++) {
+            y[yOff + i] = dot(a, aOff + i * lda, x, xOff, n) + beta(beta, y[yOff + i]);
+        }
+    }
+
+    /**
+     * y = A^T * x + beta * y, A размера m x n (y длины n). Строки A проходятся последовательно.
+     */
+    public static void gemvT(int m, int n, double[] a, int aOff, int lda,
+                             double[] x, int xOff, double beta, double[] y, int yOff) {
+        if (beta == 0.0) {
+            for (int j = 0; j < n; j++) {
+                y[yOff + j] = 0.0;
+            }
+        } else if (beta != 1.0) {
+            scal(n, beta, y, yOff);
+        }
+        for (int i = 0; i < m; i++) {
+            axpy(n, x[xOff + i], a, aOff + i * lda, y, yOff);
+        }
+    }
+
+    /**
+     * A += alpha * x * y^T, A размера m x n.
+     */
+    public static void ger(int m, int n, double alpha, double[] x, int xOff, double[] y, int yOff,
+                           double[] a, int aOff, int lda) {
+        for (int i = 0; i < m; i++) {
+            axpy(n, alpha * x[xOff + i], y, yOff, a, aOff + i * lda);
+        }
+    }
+
+    /**
+     * C = alpha * op(A) * op(B) + beta * C, где op(X) = X или X^T.
+     * Размеры: op(A) — m x k, op(B) — k x n, C — m x n.
+     */
+    public static void gemm(boolean transA, boolean transB, int m, int n, int k,
+                            double alpha, double[] a, int aOff, int lda,
+                            double[] b, int bOff, int ldb,
+                            double beta, double[] c, int cOff, int ldc) {
+        scaleMatrix(m, n, beta, c, cOff, ldc);
+        if (alpha == 0.0 || k == 0) {
+            return;
+        }
+        if (!transB) {
+            gemmNN(transA, m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        } else if (!transA) {
+            gemmNT(m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        } else {
+            // A^T * B^T встречается редко: считаем как поэлементные скалярные произведения
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    double sum = 0.0;
+                    for (int p = 0; p < k; p++) {
+                        sum += a[aOff + p * lda + i] * b[bOff + j * ldb + p];
+                    }
+                    c[cOff + i * ldc + j] += alpha * sum;
+                }
+            }
+        }
+    }
+
+    // C += alpha * op(A) * B по блокам; в блоке четвёрки строк C считает микроядро tile4 (C в регистрах,
+    // каждый элемент B загружается один раз на четыре строки), оставшиеся строки — прибавлением строк B к строкам C
+    private static void gemmNN(boolean transA, int m, int n, int k, double alpha,
+                               double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                               double[] c, int cOff, int ldc) {
+        // A(i, p) = a[aOff + i * rowStep + p * colStep]
+        int rowStep = transA ? 1 : lda;
+        int colStep = transA ? lda : 1;
+        for (int jj = 0; jj < n; jj += NC) {
+            int nb = Math.min(NC, n - jj);
+            for (int pp = 0; pp < k; pp += KC) {
+                int pEnd = Math.min(k, pp + KC);
+                for (int ii = 0; ii < m; ii += MC) {
+                    int iEnd = Math.min(m, ii + MC);
+                    int i = ii;
+                    for (; i <= iEnd - 4; i += 4) {
+                        tile4(jj, jj + nb, pp, pEnd, alpha, a, aOff + i * rowStep, rowStep, colStep,
+                                b, bOff, ldb, c, cOff + i * ldc, ldc);
+                    }
+                    for (; i < iEnd; i++) {
+                        int cRow = cOff + i * ldc + jj;
+                        for (int p = pp; p < pEnd; p++) {
+                            double aip = a[aOff + i * rowStep + p * colStep];
+                            if (aip != 0.0) {
+                                axpy(nb, alpha * aip, b, bOff + p * ldb + jj, c, cRow);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // четыре строки C на столбцах [j0, j1) и блоке [p0, p1) общей размерности, обозначения как в VectorKernels.gemmTile4.
+    // Элемент C получает те же слагаемые в том же порядке и с той же арифметикой, что и в axpy по строке,
+    // поэтому результат не зависит от того, попала строка в плитку или в остаток
+    private static void tile4(int j0, int j1, int p0, int p1, double alpha, double[] a, int aRow, int rowStep, int colStep,
+                              double[] b, int bOff, int ldb, double[] c, int cRow, int ldc) {
+        int j = j0;
+        if (SIMD && j1 - j0 >= SIMD_MIN_LENGTH) {
+            j = VectorKernels.gemmTile4(j, j1, p0, p1, alpha, a, aRow, rowStep, colStep, b, bOff, ldb, c, cRow, ldc);
+        }
+        int c0 = cRow, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+        // скалярная плитка 4 x 2: восемь аккумуляторов, четыре элемента A и два элемента B на шаг
+        for (; j <= j1 - 2; j += 2) {
+            double s00 = c[c0 + j], s01 = c[c0 + j + 1];
+            double s10 = c[c1 + j], s11 = c[c1 + j + 1];
+            double s20 = c[c2 + j], s21 = c[c2 + j + 1];
+            double s30 = c[c3 + j], s31 = c[c3 + j + 1];
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                int bp = bOff + p * ldb + j;
+                double b0 = b[bp], b1 = b[bp + 1];
+                double x0 = alpha * a[ap], x1 = alpha * a[ap + rowStep];
+                double x2 = alpha * a[ap + 2 * rowStep], x3 = alpha * a[ap + 3 * rowStep];
+                s00 += x0 * b0;
+                s01 += x0 * b1;
+                s10 += x1 * b0;
+                s11 += x1 * b1;
+                s20 += x2 * b0;
+                s21 += x2 * b1;
+                s30 += x3 * b0;
+                s31 += x3 * b1;
+            }
+            c[c0 + j] = s00;
+            c[c0 + j + 1] = s01;
+            c[c1 + j] = s10;
+            c[c1 + j + 1] = s11;
+            c[c2 + j] = s20;
+            c[c2 + j + 1] = s21;
+            c[c3 + j] = s30;
+            c[c3 + j + 1] = s31;
+        }
+        for (; j < j1; j++) {
+            double s0 = c[c0 + j], s1 = c[c1 + j], s2 = c[c2 + j], s3 = c[c3 + j];
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                double bp = b[bOff + p * ldb + j];
+                s0 += alpha * a[ap] * bp;
+                s1 += alpha * a[ap + rowStep] * bp;
+                s2 += alpha * a[ap + 2 * rowStep] * bp;
+                s3 += alpha * a[ap + 3 * rowStep] * bp;
+            }
+            c[c0 + j] = s0;
+            c[c1 + j] = s1;
+            c[c2 + j] = s2;
+            c[c3 + j] = s3;
+        }
+    }
+
+    // C += alpha * A * B^T: скалярные произведения строк A и B, по четыре строки B за проход
+    private static void gemmNT(int m, int n, int k, double alpha,
+                               double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                               double[] c, int cOff, int ldc) {
+        for (int jj = 0; jj < n; jj += MC) {
+            int jEnd = Math.min(n, jj + MC);
+            for (int i = 0; i < m; i++) {
+                int aRow = aOff + i * lda;
+                int cRow = cOff + i * ldc;
+                int j = jj;
+                if (SIMD && k >= SIMD_MIN_LENGTH) {
+                    for (; j < jEnd; j++) {
+                        c[cRow + j] += alpha * dot(a, aRow, b, bOff + j * ldb, k);
+                    }
+                }
+                for (; j <= jEnd - 4; j += 4) {
+                    int b0 = bOff + j * ldb, b1 = b0 + ldb, b2 = b1 + ldb, b3 = b2 + ldb;
+                    double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+                    for (int p = 0; p < k; p++) {
+                        double ap = a[aRow + p];
+                        s0 += ap * b[b0 + p];
+                        s1 += ap * b[b1 + p];
+                        s2 += ap * b[b2 + p];
+                        s3 += ap * b[b3 + p];
+                    }
+                    c[cRow + j] += alpha * s0;
+                    c[cRow + j + 1] += alpha * s1;
+                    c[cRow + j + 2] += alpha * s2;
+                    c[cRow + j + 3] += alpha * s3;
+                }
+                for (; j < jEnd; j++) {
+                    c[cRow + j] += alpha * dot(a, aRow, b, bOff + j * ldb, k);
+                }
+            }
+        }
+    }
+
+    private static void scaleMatrix(int m, int n, double beta, double[] c, int cOff, int ldc) {
+        if (beta == 1.0) {
+            return;
+        }
+        for (int i = 0; i < m; i++) {
+            int row = cOff + i * ldc;
+            if (beta == 0.0) {
+                for (int j = 0; j < n; j++) {
+                    c[row + j] = 0.0;
+                }
+            } else {
+                scal(n, beta, c, row);
+            }
+        }
+    }
+
+    private static double beta(double beta, double y) {
+        return beta == 0.0 ? 0.0 : beta * y;
+    }
+
+    // ---------------------------------------------------------------- float
+
+    public static float dot(float[] x, int xOff, float[] y, int yOff, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            return VectorKernels.dot(x, xOff, y, yOff, n);
+        }
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            s0 += x[xOff + i] * y[yOff + i];
+            s1 += x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(float[] x, float[] y, int n) {
+        return dot(x, 0, y, 0, n);
+    }
+
+    // скалярное произведение float-векторов с накоплением в double (dsdot в BLAS)
+    public static double dsdot(float[] x, int xOff, float[] y, int yOff, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            return VectorKernels.dsdot(x, xOff, y, yOff, n);
+        }
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            s0 += (double) x[xOff + i] * y[yOff + i];
+            s1 += (double) x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += (double) x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += (double) x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += (double) x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static void axpy(int n, float alpha, float[] x, int xOff, float[] y, int yOff) {
+        if (alpha == 0f) {
+            return;
+        }
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.axpy(n, alpha, x, xOff, y, yOff);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    public static void axpy(int n, float alpha, float[] x, float[] y) {
+        axpy(n, alpha, x, 0, y, 0);
+    }
+
+    public static void scal(int n, float alpha, float[] x, int xOff) {
+        for (int i = 0; i < n; i++) {
+            x[xOff + i] *= alpha;
+        }
+    }
+
+    public static void sigmoid(float[] x, int off, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.sigmoid(x, off, n);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            x[off + i] = (float) (1.0 / (1.0 + Math.exp(-x[off + i])));
+        }
+    }
+
+    public static void tanh(float[] x, int off, int n) {
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            VectorKernels.tanh(x, off, n);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            x[off + i] = (float) Math.tanh(x[off + i]);
+        }
+    }
+
+    public static void gemv(int m, int n, float[] a, int aOff, int lda,
+                            float[] x, int xOff, float beta, float[] y, int yOff) {
+        int i = 0;
+        if (SIMD && n >= SIMD_MIN_LENGTH) {
+            // векторное скалярное произведение на строку быстрее скалярной плитки 4 x 1
+            for (; i < m; i++) {
+                y[yOff + i] = dot(a, aOff + i * lda, x, xOff, n) + beta(beta, y[yOff + i]);
+            }
+        }
+        for (; i <= m - 4; i += 4) {
+            int r0 = aOff + i * lda, r1 = r0 + lda, r2 = r1 + lda, r3 = r2 + lda;
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            for (int j = 0; j < n; j++) {
+                float xj = x[xOff + j];
+                s0 += a[r0 + j] * xj;
+                s1 += a[r1 + j] * xj;
+                s2 += a[r2 + j] * xj;
+                s3 += a[r3 + j] * xj;
+            }
+            y[yOff + i] = s0 + beta(beta, y[yOff + i]);
+            y[yOff + i + 1] = s1 + beta(beta, y[yOff + i + 1]);
+            y[yOff + i + 2] = s2 + beta(beta, y[yOff + i + 2]);
+            y[yOff + i + 3] = s3 + beta(beta, y[yOff + i + 3]);
+        }
+        for (; i < m; i++) {
+            y[yOff + i] = dot(a, aOff + i * lda, x, xOff, n) + beta(beta, y[yOff + i]);
+        }
+    }
+
+    public static void gemvT(int m, int n, float[] a, int aOff, int lda,
+                             float[] x, int xOff, float beta, float[] y, int yOff) {
+        if (beta == 0f) {
+            for (int j = 0; j < n; j++) {
+                y[yOff + j] = 0f;
+            }
+        } else if (beta != 1f) {
+            scal(n, beta, y, yOff);
+        }
+        for (int i = 0; i < m; i++) {
+            axpy(n, x[xOff + i], a, aOff + i * lda, y, yOff);
+        }
+    }
+
+    public static void ger(int m, int n, float alpha, float[] x, int xOff, float[] y, int yOff,
+                           float[] a, int aOff, int lda) {
+        for (int i = 0; i < m; i++) {
+            axpy(n, alpha * x[xOff + i], y, yOff, a, aOff + i * lda);
+        }
+    }
+
+    public static void gemm(boolean transA, boolean transB, int m, int n, int k,
+                            float alpha, float[] a, int aOff, int lda,
+                            float[] b, int bOff, int ldb,
+                            float beta, float[] c, int cOff, int ldc) {
+        scaleMatrix(m, n, beta, c, cOff, ldc);
+        if (alpha == 0f || k == 0) {
+            return;
+        }
+        if (!transB) {
+            gemmNN(transA, m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        } else if (!transA) {
+            gemmNT(m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        } else {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    float sum = 0f;
+                    for (int p = 0; p < k; p++) {
+                        sum += a[aOff + p * lda + i] * b[bOff + j * ldb + p];
+                    }
+                    c[cOff + i * ldc + j] += alpha * sum;
+                }
+            }
+        }
+    }
+
+    private static void gemmNN(boolean transA, int m, int n, int k, float alpha,
+                               float[] a, int aOff, int lda, float[] b, int bOff, int ldb,
+                               float[] c, int cOff, int ldc) {
+        // A(i, p) = a[aOff + i * rowStep + p * colStep]
+        int rowStep = transA ? 1 : lda;
+        int colStep = transA ? lda : 1;
+        for (int jj = 0; jj < n; jj += NC) {
+            int nb = Math.min(NC, n - jj);
+            for (int pp = 0; pp < k; pp += KC) {
+                int pEnd = Math.min(k, pp + KC);
+                for (int ii = 0; ii < m; ii += MC) {
+                    int iEnd = Math.min(m, ii + MC);
+                    int i = ii;
+                    for (; i <= iEnd - 4; i += 4) {
+                        tile4(jj, jj + nb, pp, pEnd, alpha, a, aOff + i * rowStep, rowStep, colStep,
+                                b, bOff, ldb, c, cOff + i * ldc, ldc);
+                    }
+                    for (; i < iEnd; i++) {
+                        int cRow = cOff + i * ldc + jj;
+                        for (int p = pp; p < pEnd; p++) {
+                            float aip = a[aOff + i * rowStep + p * colStep];
+                            if (aip != 0f) {
+                                axpy(nb, alpha * aip, b, bOff + p * ldb + jj, c, cRow);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void tile4(int j0, int j1, int p0, int p1, float alpha, float[] a, int aRow, int rowStep, int colStep,
+                              float[] b, int bOff, int ldb, float[] c, int cRow, int ldc) {
+        int j = j0;
+        if (SIMD && j1 - j0 >= SIMD_MIN_LENGTH) {
+            j = VectorKernels.gemmTile4(j, j1, p0, p1, alpha, a, aRow, rowStep, colStep, b, bOff, ldb, c, cRow, ldc);
+        }
+        int c0 = cRow, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+        // скалярная плитка 4 x 2: восемь аккумуляторов, четыре элемента A и два элемента B на шаг
+        for (; j <= j1 - 2; j += 2) {
+            float s00 = c[c0 + j], s01 = c[c0 + j + 1];
+            float s10 = c[c1 + j], s11 = c[c1 + j + 1];
+            float s20 = c[c2 + j], s21 = c[c2 + j + 1];
+            float s30 = c[c3 + j], s31 = c[c3 + j + 1];
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                int bp = bOff + p * ldb + j;
+                float b0 = b[bp], b1 = b[bp + 1];
+                float x0 = alpha * a[ap], x1 = alpha * a[ap + rowStep];
+                float x2 = alpha * a[ap + 2 * rowStep], x3 = alpha * a[ap + 3 * rowStep];
+                s00 += x0 * b0;
+                s01 += x0 * b1;
+                s10 += x1 * b0;
+                s11 += x1 * b1;
+                s20 += x2 * b0;
+                s21 += x2 * b1;
+                s30 += x3 * b0;
+                s31 += x3 * b1;
+            }
+            c[c0 + j] = s00;
+            c[c0 + j + 1] = s01;
+            c[c1 + j] = s10;
+            c[c1 + j + 1] = s11;
+            c[c2 + j] = s20;
+            c[c2 + j + 1] = s21;
+            c[c3 + j] = s30;
+            c[c3 + j + 1] = s31;
+        }
+        for (; j < j1; j++) {
+            float s0 = c[c0 + j], s1 = c[c1 + j], s2 = c[c2 + j], s3 = c[c3 + j];
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                float bp = b[bOff + p * ldb + j];
+                s0 += alpha * a[ap] * bp;
+                s1 += alpha * a[ap + rowStep] * bp;
+                s2 += alpha * a[ap + 2 * rowStep] * bp;
+                s3 += alpha * a[ap + 3 * rowStep] * bp;
+            }
+            c[c0 + j] = s0;
+            c[c1 + j] = s1;
+            c[c2 + j] = s2;
+            c[c3 + j] = s3;
+        }
+    }
+
+    private static void gemmNT(int m, int n, int k, float alpha,
+                               float[] a, int aOff, int lda, float[] b, int bOff, int ldb,
+                               float[] c, int cOff, int ldc) {
+        for (int jj = 0; jj < n; jj += MC) {
+            int jEnd = Math.min(n, jj + MC);
+            for (int i = 0; i < m; i++) {
+                int aRow = aOff + i * lda;
+                int cRow = cOff + i * ldc;
+                int j = jj;
+                if (SIMD && k >= SIMD_MIN_LENGTH) {
+                    for (; j < jEnd; j++) {
+                        c[cRow + j] += alpha * dot(a, aRow, b, bOff + j * ldb, k);
+                    }
+                }
+                for (; j <= jEnd - 4; j += 4) {
+                    int b0 = bOff + j * ldb, b1 = b0 + ldb, b2 = b1 + ldb, b3 = b2 + ldb;
+                    float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+                    for (int p = 0; p < k; p++) {
+                        float ap = a[aRow + p];
+                        s0 += ap * b[b0 + p];
+                        s1 += ap * b[b1 + p];
+                        s2 += ap * b[b2 + p];
+                        s3 += ap * b[b3 + p];
+                    }
+                    c[cRow + j] += alpha * s0;
+                    c[cRow + j + 1] += alpha * s1;
+                    c[cRow + j + 2] += alpha * s2;
+                    c[cRow + j + 3] += alpha * s3;
+                }
+                for (; j < jEnd; j++) {
+                    c[cRow + j] += alpha * dot(a, aRow, b, bOff + j * ldb, k);
+                }
+            }
+        }
+    }
+
+    private static void scaleMatrix(int m, int n, float beta, float[] c, int cOff, int ldc) {
+        if (beta == 1f) {
+            return;
+        }
+        for (int i = 0; i < m; i++) {
+            int row = cOff + i * ldc;
+            if (beta == 0f) {
+                for (int j = 0; j < n; j++) {
+                    c[row + j] = 0f;
+                }
+            } else {
+                scal(n, beta, c, row);
+            }
+        }
+    }
+
+    private static float beta(float beta, float y) {
+        return beta == 0f ? 0f : beta * y;
+    }
+}
@@ -0,0 +1,295 @@
+package utility.linalg;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторные (SIMD) реализации горячих циклов на Java Vector API.
+ * Класс загружается только если модуль {@code jdk.incubator.vector} подключён
+ * ({@code --add-modules jdk.incubator.vector}), выбор делает {@link LinAlg}.
+ */
+final class VectorKernels {
+
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    // float-вектор с тем же числом элементов, что и D: для расширения float -> double
+    private static final VectorSpecies<Float> F_HALF =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(D.vectorBitSize() / 2));
+
+    private VectorKernels() {
+    }
+
+    static int doubleLanes() {
+        return D.length();
+    }
+
+    // ---------------------------------------------------------------- double
+
+    static double dot(double[] x, int xOff, double[] y, int yOff, int n) {
+        DoubleVector acc0 = DoubleVector.zero(D);
+        DoubleVector acc1 = DoubleVector.zero(D);
+        int step = D.length();
+        int i = 0;
+        for (; i <= n - 2 * step; i += 2 * step) {
+            acc0 = DoubleVector.fromArray(D, x, xOff + i).fma(DoubleVector.fromArray(D, y, yOff + i), acc0);
+            acc1 = DoubleVector.fromArray(D, x, xOff + i + step)
+                    .fma(DoubleVector.fromArray(D, y, yOff + i + step), acc1);
+        }
+        for (; i <= n - step; i += step) {
+            acc0 = DoubleVector.fromArray(D, x, xOff + i).fma(DoubleVector.fromArray(D, y, yOff + i), acc0);
+        }
+        double sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += x[xOff + i] * y[yOff + i];
+        }
+        return sum;
+    }
+
+    static void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff) {
+        DoubleVector a = DoubleVector.broadcast(D, alpha);
+        int step = D.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            DoubleVector.fromArray(D, x, xOff + i)
+                    .fma(a, DoubleVector.fromArray(D, y, yOff + i))
+                    .intoArray(y, yOff + i);
+        }
+        for (; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    // микроядро gemm: C(r, j) += alpha * A(r, p) * B(p, j) для строк r = 0..3 и p из [p0, p1), где
+    // A(r, p) = a[aRow + r * rowStep + p * colStep], B(p, j) = b[bOff + p * ldb + j], C(r, j) = c[cRow + r * ldc + j].
+    // Плитка 4 строки x 2 вектора держит C в восьми регистрах, каждый вектор B загружается один раз на четыре строки.
+    // Порядок и арифметика по элементу C те же, что у axpy; возвращает первый необработанный столбец
+    static int gemmTile4(int j, int jEnd, int p0, int p1, double alpha, double[] a, int aRow, int rowStep, int colStep,
+                         double[] b, int bOff, int ldb, double[] c, int cRow, int ldc) {
+        int step = D.length();
+        int c0 = cRow, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+        for (; j <= jEnd - 2 * step; j += 2 * step) {
+            DoubleVector s00 = DoubleVector.fromArray(D, c, c0 + j), s01 = DoubleVector.fromArray(D, c, c0 + j + step);
+            DoubleVector s10 = DoubleVector.fromArray(D, c, c1 + j), s11 = DoubleVector.fromArray(D, c, c1 + j + step);
+            DoubleVector s20 = DoubleVector.fromArray(D, c, c2 + j), s21 = DoubleVector.fromArray(D, c, c2 + j + step);
+            DoubleVector s30 = DoubleVector.fromArray(D, c, c3 + j), s31 = DoubleVector.fromArray(D, c, c3 + j + step);
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                int bp = bOff + p * ldb + j;
+                DoubleVector b0 = DoubleVector.fromArray(D, b, bp);
+                DoubleVector b1 = DoubleVector.fromArray(D, b, bp + step);
+                DoubleVector x = DoubleVector.broadcast(D, alpha * a[ap]);
+                s00 = b0.fma(x, s00);
+                s01 = b1.fma(x, s01);
+                x = DoubleVector.broadcast(D, alpha * a[ap + rowStep]);
+                s10 = b0.fma(x, s10);
+                s11 = b1.fma(x, s11);
+                x = DoubleVector.broadcast(D, alpha * a[ap + 2 * rowStep]);
+                s20 = b0.fma(x, s20);
+                s21 = b1.fma(x, s21);
+                x = DoubleVector.broadcast(D, alpha * a[ap + 3 * rowStep]);
+                s30 = b0.fma(x, s30);
+                s31 = b1.fma(x, s31);
+            }
+            s00.intoArray(c, c0 + j);
+            s01.intoArray(c, c0 + j + step);
+            s10.intoArray(c, c1 + j);
+            s11.intoArray(c, c1 + j + step);
+            s20.intoArray(c, c2 + j);
+            s21.intoArray(c, c2 + j + step);
+            s30.intoArray(c, c3 + j);
+            s31.intoArray(c, c3 + j + step);
+        }
+        for (; j <= jEnd - step; j += step) {
+            DoubleVector s0 = DoubleVector.fromArray(D, c, c0 + j);
+            DoubleVector s1 = DoubleVector.fromArray(D, c, c1 + j);
+            DoubleVector s2 = DoubleVector.fromArray(D, c, c2 + j);
+            DoubleVector s3 = DoubleVector.fromArray(D, c, c3 + j);
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                DoubleVector b0 = DoubleVector.fromArray(D, b, bOff + p * ldb + j);
+                s0 = b0.fma(DoubleVector.broadcast(D, alpha * a[ap]), s0);
+                s1 = b0.fma(DoubleVector.broadcast(D, alpha * a[ap + rowStep]), s1);
+                s2 = b0.fma(DoubleVector.broadcast(D, alpha * a[ap + 2 * rowStep]), s2);
+                s3 = b0.fma(DoubleVector.broadcast(D, alpha * a[ap + 3 * rowStep]), s3);
+            }
+            s0.intoArray(c, c0 + j);
+            s1.intoArray(c, c1 + j);
+            s2.intoArray(c, c2 + j);
+            s3.intoArray(c, c3 + j);
+        }
+        return j;
+    }
+
+    static void sigmoid(double[] x, int off, int n) {
+        DoubleVector one = DoubleVector.broadcast(D, 1.0);
+        int step = D.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            DoubleVector e = DoubleVector.fromArray(D, x, off + i).neg().lanewise(VectorOperators.EXP);
+            one.div(e.add(one)).intoArray(x, off + i);
+        }
+        for (; i < n; i++) {
+            x[off + i] = 1.0 / (1.0 + Math.exp(-x[off + i]));
+        }
+    }
+
+    static void tanh(double[] x, int off, int n) {
+        int step = D.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            DoubleVector.fromArray(D, x, off + i).lanewise(VectorOperators.TANH).intoArray(x, off + i);
+        }
+        for (; i < n; i++) {
+            x[off + i] = Math.tanh(x[off + i]);
+        }
+    }
+
+    static void relu(double[] x, int off, int n, double floor) {
+        int step = D.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            DoubleVector.fromArray(D, x, off + i).max(floor).intoArray(x, off + i);
+        }
+        for (; i < n; i++) {
+            x[off + i] = Math.max(floor, x[off + i]);
+        }
+    }
+
+    // ---------------------------------------------------------------- float
+
+    static float dot(float[] x, int xOff, float[] y, int yOff, int n) {
+        FloatVector acc0 = FloatVector.zero(F);
+        FloatVector acc1 = FloatVector.zero(F);
+        int step = F.length();
+        int i = 0;
+        for (; i <= n - 2 * step; i += 2 * step) {
+            acc0 = FloatVector.fromArray(F, x, xOff + i).fma(FloatVector.fromArray(F, y, yOff + i), acc0);
+            acc1 = FloatVector.fromArray(F, x, xOff + i + step)
+                    .fma(FloatVector.fromArray(F, y, yOff + i + step), acc1);
+        }
+        for (; i <= n - step; i += step) {
+            acc0 = FloatVector.fromArray(F, x, xOff + i).fma(FloatVector.fromArray(F, y, yOff + i), acc0);
+        }
+        float sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += x[xOff + i] * y[yOff + i];
+        }
+        return sum;
+    }
+
+    static double dsdot(float[] x, int xOff, float[] y, int yOff, int n) {
+        DoubleVector acc = DoubleVector.zero(D);
+        int step = D.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            DoubleVector xv = (DoubleVector) FloatVector.fromArray(F_HALF, x, xOff + i)
+                    .convertShape(VectorOperators.F2D, D, 0);
+            DoubleVector yv = (DoubleVector) FloatVector.fromArray(F_HALF, y, yOff + i)
+                    .convertShape(VectorOperators.F2D, D, 0);
+            acc = xv.fma(yv, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += (double) x[xOff + i] * y[yOff + i];
+        }
+        return sum;
+    }
+
+    static void axpy(int n, float alpha, float[] x, int xOff, float[] y, int yOff) {
+        FloatVector a = FloatVector.broadcast(F, alpha);
+        int step = F.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            FloatVector.fromArray(F, x, xOff + i)
+                    .fma(a, FloatVector.fromArray(F, y, yOff + i))
+                    .intoArray(y, yOff + i);
+        }
+        for (; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    static int gemmTile4(int j, int jEnd, int p0, int p1, float alpha, float[] a, int aRow, int rowStep, int colStep,
+                         float[] b, int bOff, int ldb, float[] c, int cRow, int ldc) {
+        int step = F.length();
+        int c0 = cRow, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+        for (; j <= jEnd - 2 * step; j += 2 * step) {
+            FloatVector s00 = FloatVector.fromArray(F, c, c0 + j), s01 = FloatVector.fromArray(F, c, c0 + j + step);
+            FloatVector s10 = FloatVector.fromArray(F, c, c1 + j), s11 = FloatVector.fromArray(F, c, c1 + j + step);
+            FloatVector s20 = FloatVector.fromArray(F, c, c2 + j), s21 = FloatVector.fromArray(F, c, c2 + j + step);
+            FloatVector s30 = FloatVector.fromArray(F, c, c3 + j), s31 = FloatVector.fromArray(F, c, c3 + j + step);
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                int bp = bOff + p * ldb + j;
+                FloatVector b0 = FloatVector.fromArray(F, b, bp);
+                FloatVector b1 = FloatVector.fromArray(F, b, bp + step);
+                FloatVector x = FloatVector.broadcast(F, alpha * a[ap]);
+                s00 = b0.fma(x, s00);
+                s01 = b1.fma(x, s01);
+                x = FloatVector.broadcast(F, alpha * a[ap + rowStep]);
+                s10 = b0.fma(x, s10);
+                s11 = b1.fma(x, s11);
+                x = FloatVector.broadcast(F, alpha * a[ap + 2 * rowStep]);
+                s20 = b0.fma(x, s20);
+                s21 = b1.fma(x, s21);
+                x = FloatVector.broadcast(F, alpha * a[ap + 3 * rowStep]);
+                s30 = b0.fma(x, s30);
+                s31 = b1.fma(x, s31);
+            }
+            s00.intoArray(c, c0 + j);
+            s01.intoArray(c, c0 + j + step);
+            s10.intoArray(c, c1 + j);
+            s11.intoArray(c, c1 + j + step);
+            s20.intoArray(c, c2 + j);
+            s21.intoArray(c, c2 + j + step);
+            s30.intoArray(c, c3 + j);
+            s31.intoArray(c, c3 + j + step);
+        }
+        for (; j <= jEnd - step; j += step) {
+            FloatVector s0 = FloatVector.fromArray(F, c, c0 + j);
+            FloatVector s1 = FloatVector.fromArray(F, c, c1 + j);
+            FloatVector s2 = FloatVector.fromArray(F, c, c2 + j);
+            FloatVector s3 = FloatVector.fromArray(F, c, c3 + j);
+            for (int p = p0; p < p1; p++) {
+                int ap = aRow + p * colStep;
+                FloatVector b0 = FloatVector.fromArray(F, b, bOff + p * ldb + j);
+                s0 = b0.fma(FloatVector.broadcast(F, alpha * a[ap]), s0);
+                s1 = b0.fma(FloatVector.broadcast(F, alpha * a[ap + rowStep]), s1);
+                s2 = b0.fma(FloatVector.broadcast(F, alpha * a[ap + 2 * rowStep]), s2);
+                s3 = b0.fma(FloatVector.broadcast(F, alpha * a[ap + 3 * rowStep]), s3);
+            }
+            s0.intoArray(c, c0 + j);
+            s1.intoArray(c, c1 + j);
+            s2.intoArray(c, c2 + j);
+            s3.intoArray(c, c3 + j);
+        }
+        return j;
+    }
+
+    static void sigmoid(float[] x, int off, int n) {
+        FloatVector one = FloatVector.broadcast(F, 1f);
+        int step = F.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            FloatVector e = FloatVector.fromArray(F, x, off + i).neg().lanewise(VectorOperators.EXP);
+            one.div(e.add(one)).intoArray(x, off + i);
+        }
+        for (; i < n; i++) {
+            x[off + i] = (float) (1.0 / (1.0 + Math.exp(-x[off + i])));
+        }
+    }
+
+    static void tanh(float[] x, int off, int n) {
+        int step = F.length();
+        int i = 0;
+        for (; i <= n - step; i += step) {
+            FloatVector.fromArray(F, x, off + i).lanewise(VectorOperators.TANH).intoArray(x, off + i);
+        }
+        for (; i < n; i++) {
+            x[off + i] = (float) Math.tanh(x[off + i]);
+        }
+    }
+}
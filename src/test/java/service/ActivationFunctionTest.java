@@ -0,0 +1,58 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.activationfunction.ActivationFunction;
+import service.activationfunction.impl.ReLU;
+import service.activationfunction.impl.Sigmoid;
+import service.activationfunction.impl.Tanh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ActivationFunctionTest {
+
+    @Test
+    void testBulkMatchesScalar() {
+        Random random = new Random(1);
+        for (ActivationFunction function : List.of(new Sigmoid(), new Tanh(), new ReLU(), new Sigmoid(true), new Tanh(true))) {
+            int n = 37;
+            double[] x = new double[n + 2];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = random.nextDouble() * 8 - 4;
+            }
+
+            double[] y = x.clone();
+            function.activateInPlace(y, 1, n);
+            float[] yFloat = new float[n];
+            for (int i = 0; i < n; i++) {
+                yFloat[i] = (float) x[i + 1];
+            }
+            function.activateInPlace(yFloat, 0, n);
+
+            double[] gradient = new double[n];
+            float[] gradientFloat = new float[n];
+            Arrays.fill(gradient, 2.0);
+            Arrays.fill(gradientFloat, 2f);
+            function.derivativeFromOutput(y, 1, gradient, 0, n);
+            function.derivativeFromOutput(yFloat, 0, gradientFloat, 0, n);
+
+            assertEquals(x[0], y[0], 0.0);
+            assertEquals(x[n + 1], y[n + 1], 0.0);
+            for (int i = 0; i < n; i++) {
+                assertEquals(function.activate(x[i + 1]), y[i + 1], 1e-14);
+                assertEquals(function.activate(x[i + 1]), yFloat[i], 1e-6);
+                assertEquals(2.0 * function.derivative(x[i + 1]), gradient[i], 1e-12);
+                assertEquals(2.0 * function.derivative(x[i + 1]), gradientFloat[i], 1e-5);
+            }
+        }
+    }
+
+    @Test
+    void testReluArrayActivate() {
+        assertArrayEquals(new double[]{0.0, 0.5, 0.0}, new ReLU().activate(new double[]{-1.0, 0.5, 0.0}), 0.0);
+    }
+}
@@ -0,0 +1,87 @@
+package service;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.activationfunction.impl.Sigmoid;
+import utility.linalg.LinAlg;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Проверки отсутствия выделений памяти в установившемся режиме. Векторные ядра создают временные объекты,
+ * пока C2 их не скомпилирует, и момент этого зависит от JIT, поэтому тест запускается отдельным прогоном
+ * surefire с {@code -Dlinalg.simd=false} (см. pom.xml), а при включённых векторных ядрах пропускается.
+ */
+public class AllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 10_000;
+    // меньше одного объекта минимального размера на вызов: разовые выделения JIT и рантайма допустимы,
+    // выделение на каждом вызове — нет
+    private static final long MIN_OBJECT_BYTES = 16;
+
+    private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeEach
+    void requireScalarKernels() {
+        assumeFalse(LinAlg.isVectorized(), "allocation checks run with -Dlinalg.simd=false");
+    }
+
+    @Test
+    void testNeuralNetworkPredictDoesNotAllocate() {
+        NeuralNetwork network = new NeuralNetwork();
+        network.setRandom(new Random(1));
+        network.addLayer(32, new Sigmoid());
+        network.addLayer(16, new Sigmoid());
+        network.addLayer(3, new Sigmoid());
+        InferenceWorkspace ws = network.createInferenceWorkspace();
+        double[] input = {0.1, 0.2, 0.3, 0.4};
+
+        assertArrayEquals(network.predict(input), network.predict(input, ws), 0.0);
+
+        for (int i = 0; i < WARMUP; i++) {
+            network.predict(input, ws);
+        }
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            network.predict(input, ws);
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(allocated < MEASURED * MIN_OBJECT_BYTES, "bytes allocated by " + MEASURED + " predictions: " + allocated);
+    }
+
+    @Test
+    void testConvolutionalNetworkForwardDoesNotAllocate() {
+        var cnn = new ConvolutionalNeuralNetwork(12, 12, 3, 4, 10, 0.001,
+                false, false, false);
+        CnnWorkspace ws = cnn.createWorkspace();
+        double[][] input = new double[12][12];
+        Random random = new Random(1);
+        for (double[] row : input) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextDouble();
+            }
+        }
+
+        assertArrayEquals(cnn.forward(input), cnn.forward(input, ws), 1e-12);
+
+        for (int i = 0; i < WARMUP / 10; i++) {
+            cnn.forward(input, ws);
+        }
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED / 10; i++) {
+            cnn.forward(input, ws);
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(allocated < MEASURED / 10 * MIN_OBJECT_BYTES,
+                "bytes allocated by " + MEASURED / 10 + " forward passes: " + allocated);
+    }
+}
@@ -82,12 +82,7 @@ public class CNNTest {
 
             for (int i = 0; i < trainSet.size(); i += batchSize) {
                 var batch = trainSet.subList(i, Math.min(trainSet.size(), i + batchSize));
-                for (var sample : batch) {
-                    var output = cnn.forward(sample.first());
-                    var loss = cnn.calculateLoss(output, sample.second());
-                    totalLoss += loss;
-                    cnn.train(sample.first(), sample.second(), null);
-                }
+                totalLoss += cnn.trainBatch(batch);
 
                 if (++batchCount % 10 == 0) {
                     System.out.printf("Эпоха %d, Пакет %d, Средний Loss: %.4f\n", epoch, batchCount, totalLoss / batchCount);
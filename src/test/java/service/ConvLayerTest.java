@@ -0,0 +1,204 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.convolution.ConvolutionAlgorithm;
+import util.TestData;
+import utility.ActivationFunctions;
+import utility.MatrixUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ConvLayerTest {
+
+    private static Tensor toTensor(double[][]... images) {
+        Tensor tensor = new Tensor(images.length, 1, images[0].length, images[0][0].length);
+        for (int n = 0; n < images.length; n++) {
+            for (int x = 0; x < images[n].length; x++) {
+                for (int y = 0; y < images[n][x].length; y++) {
+                    tensor.set(images[n][x][y], n, 0, x, y);
+                }
+            }
+        }
+        return tensor;
+    }
+
+    private static double[][] copy(double[][] matrix) {
+        double[][] result = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            result[i] = matrix[i].clone();
+        }
+        return result;
+    }
+
+    @Test
+    void testGemmPathMatchesDirectConvolution() {
+        int[][] configs = {{3, 1, 10, 9}, {4, 2, 11, 12}};
+        for (int[] config : configs) {
+            int kernelSize = config[0], stride = config[1], width = config[2], height = config[3];
+            double learningRate = 0.05;
+            ConvLayer conv = new ConvLayer(kernelSize, 3, learningRate, stride);
+            conv.setAlgorithm(ConvolutionAlgorithm.GEMM);
+            Random random = new Random(3);
+            double[][][] inputs = {TestData.centeredMatrix(random, width, height), TestData.centeredMatrix(random, width, height)};
+
+            List<double[][]> before = new ArrayList<>();
+            for (double[][] kernel : conv.getKernels()) {
+                before.add(copy(kernel));
+            }
+
+            Tensor outputs = conv.forward(toTensor(inputs));
+            int outW = conv.outputSize(width);
+            int outH = conv.outputSize(height);
+            for (int n = 0; n < inputs.length; n++) {
+                for (int k = 0; k < 3; k++) {
+                    double[][] expected = ActivationFunctions.reluInPlace(
+                            MatrixUtils.convolve(inputs[n], conv.getKernels().get(k), stride), 1e-7);
+                    for (int x = 0; x < outW; x++) {
+                        for (int y = 0; y < outH; y++) {
+                            assertEquals(expected[x][y], outputs.get(n, k, x, y), 1e-12);
+                        }
+                    }
+                }
+            }
+
+            Tensor gradient = new Tensor(inputs.length, 3, outW, outH);
+            for (int i = 0; i < gradient.size(); i++) {
+                gradient.getData()[i] = random.nextDouble() - 0.5;
+            }
+
+            // прямой расчёт градиентов по определению свёртки, градиент ядер суммируется по пакету
+            double[][][] expectedInput = new double[inputs.length][width][height];
+            for (int k = 0; k < 3; k++) {
+                double[][] kernel = before.get(k);
+                double[][] kernelGradient = new double[kernelSize][kernelSize];
+                for (int n = 0; n < inputs.length; n++) {
+                    for (int x = 0; x < outW; x++) {
+                        for (int y = 0; y < outH; y++) {
+                            double grad = gradient.get(n, k, x, y);
+                            for (int i = 0; i < kernelSize; i++) {
+                                for (int j = 0; j < kernelSize; j++) {
+                                    expectedInput[n][x * stride + i][y * stride + j] += grad * kernel[i][j];
+                                    kernelGradient[i][j] += grad * inputs[n][x * stride + i][y * stride + j];
+                                }
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < kernelSize; i++) {
+                    for (int j = 0; j < kernelSize; j++) {
+                        kernel[i][j] -= learningRate * kernelGradient[i][j];
+                    }
+                }
+            }
+
+            Tensor inputGradient = conv.backward(gradient);
+            for (int n = 0; n < inputs.length; n++) {
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        assertEquals(expectedInput[n][x][y], inputGradient.get(n, 0, x, y), 1e-12);
+                    }
+                }
+            }
+            for (int k = 0; k < 3; k++) {
+                for (int i = 0; i < kernelSize; i++) {
+                    assertArrayEquals(before.get(k)[i], conv.getKernels().get(k)[i], 1e-12);
+                }
+            }
+
+            // после шага прямой проход без состояния видит обновлённые ядра
+            Tensor single = toTensor(inputs[0]);
+            Tensor updated = conv.forward(single, new Tensor(1, 3, outW, outH),
+                    new double[conv.scratchSize(width, height)]);
+            double[][] reference = ActivationFunctions.reluInPlace(
+                    MatrixUtils.convolve(inputs[0], conv.getKernels().get(0), stride), 1e-7);
+            for (int x = 0; x < outW; x++) {
+                for (int y = 0; y < outH; y++) {
+                    assertEquals(reference[x][y], updated.get(0, 0, x, y), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFloatPrecisionMatchesDouble() {
+        ConvLayer conv = new ConvLayer(3, 4, 0.05, 2);
+        Random random = new Random(9);
+        int height = 9, width = 11;
+        double[][] image = TestData.centeredMatrix(random, height, width);
+        float[] input = new float[height * width];
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
+                input[x * width + y] = (float) image[x][y];
+            }
+        }
+        int outH = conv.outputSize(height);
+        int outW = conv.outputSize(width);
+        float[] output = new float[4 * outH * outW];
+        float[] patches = new float[outH * outW * 9];
+
+        for (int round = 0; round < 2; round++) {
+            Tensor expected = conv.forward(toTensor(image));
+            for (Precision precision : new Precision[]{Precision.FLOAT, Precision.FLOAT_DOUBLE_ACCUMULATION}) {
+                conv.forward(input, height, width, output, patches, precision);
+                for (int k = 0; k < 4; k++) {
+                    for (int x = 0; x < outH; x++) {
+                        for (int y = 0; y < outW; y++) {
+                            assertEquals(expected.get(0, k, x, y), output[(k * outH + x) * outW + y], 1e-5);
+                        }
+                    }
+                }
+            }
+            // после шага обучения float-копия ядер обновляется
+            Tensor gradient = new Tensor(1, 4, outH, outW);
+            for (int i = 0; i < gradient.size(); i++) {
+                gradient.getData()[i] = random.nextDouble() - 0.5;
+            }
+            conv.backward(gradient);
+        }
+    }
+
+    @Test
+    void testParallelPassMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int stride : new int[]{1, 2}) {
+                ConvLayer sequential = new ConvLayer(5, 6, 0.05, stride);
+                ConvLayer parallel = new ConvLayer(5, 6, 0.05, stride);
+                for (int k = 0; k < 6; k++) {
+                    for (int i = 0; i < 5; i++) {
+                        System.arraycopy(sequential.getKernels().get(k)[i], 0, parallel.getKernels().get(k)[i], 0, 5);
+                    }
+                }
+                parallel.markKernelsModified();
+                parallel.setParallelism(pool, 7);
+
+                Random random = new Random(11);
+                for (int step = 0; step < 3; step++) {
+                    Tensor input = toTensor(TestData.centeredMatrix(random, 17, 15), TestData.centeredMatrix(random, 17, 15), TestData.centeredMatrix(random, 17, 15));
+                    Tensor expected = sequential.forward(input);
+                    Tensor actual = parallel.forward(input);
+                    assertArrayEquals(expected.getData(), actual.getData(), 1e-12);
+
+                    Tensor gradient = new Tensor(expected.shape());
+                    for (int i = 0; i < gradient.size(); i++) {
+                        gradient.getData()[i] = random.nextDouble() - 0.5;
+                    }
+                    assertArrayEquals(sequential.backward(gradient).getData(), parallel.backward(gradient).getData(), 1e-12);
+                    for (int k = 0; k < 6; k++) {
+                        for (int i = 0; i < 5; i++) {
+                            assertArrayEquals(sequential.getKernels().get(k)[i], parallel.getKernels().get(k)[i], 1e-12);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
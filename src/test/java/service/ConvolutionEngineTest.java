@@ -0,0 +1,144 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.convolution.ConvolutionAlgorithm;
+import service.convolution.ConvolutionEngine;
+import service.convolution.impl.FftConvolution;
+import service.convolution.impl.WinogradConvolution;
+import util.TestData;
+import utility.MatrixUtils;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConvolutionEngineTest {
+
+    // сравнивает движок с MatrixUtils.convolve для каждого ядра; буферы со смещениями, чтобы проверить адресацию
+    private static void assertMatchesDirect(ConvolutionEngine engine, int kernelSize, int numKernels, int height, int width) {
+        Random random = new Random(height * 31 + width);
+        double[][] image = TestData.centeredMatrix(random, height, width);
+        double[][][] kernels = new double[numKernels][][];
+        double[] kernelMatrix = new double[numKernels * kernelSize * kernelSize];
+        for (int k = 0; k < numKernels; k++) {
+            kernels[k] = TestData.centeredMatrix(random, kernelSize, kernelSize);
+            for (int i = 0; i < kernelSize; i++) {
+                System.arraycopy(kernels[k][i], 0, kernelMatrix, (k * kernelSize + i) * kernelSize, kernelSize);
+            }
+        }
+        double[] input = new double[3 + height * width];
+        for (int x = 0; x < height; x++) {
+            System.arraycopy(image[x], 0, input, 3 + x * width, width);
+        }
+        int outH = height - kernelSize + 1;
+        int outW = width - kernelSize + 1;
+        double[] output = new double[2 + numKernels * outH * outW];
+        double[] scratch = new double[7 + engine.scratchSize()];
+
+        engine.prepare(kernelMatrix, numKernels);
+        engine.convolve(input, 3, output, 2, scratch, 7);
+        for (int k = 0; k < numKernels; k++) {
+            double[][] expected = MatrixUtils.convolve(image, kernels[k], 1);
+            for (int x = 0; x < outH; x++) {
+                for (int y = 0; y < outW; y++) {
+                    assertEquals(expected[x][y], output[2 + k * outH * outW + x * outW + y], 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testWinogradMatchesDirectConvolution() {
+        int[][] sizes = {{3, 3}, {8, 8}, {9, 7}, {10, 13}};
+        for (int[] size : sizes) {
+            assertMatchesDirect(new WinogradConvolution(size[0], size[1]), 3, 4, size[0], size[1]);
+        }
+    }
+
+    @Test
+    void testFftMatchesDirectConvolution() {
+        int[][] configs = {{3, 12, 9}, {5, 8, 17}, {8, 28, 28}, {4, 4, 4}};
+        for (int[] config : configs) {
+            // нечётное число ядер: последнее преобразуется без пары
+            assertMatchesDirect(new FftConvolution(config[0], config[1], config[2]), config[0], 3, config[1], config[2]);
+        }
+    }
+
+    @Test
+    void testAutoSelectsByKernelAndInput() {
+        ConvolutionAlgorithm auto = ConvolutionAlgorithm.AUTO;
+        assertEquals(ConvolutionAlgorithm.WINOGRAD, auto.resolve(3, 1, 8, 28, 28));
+        assertEquals(ConvolutionAlgorithm.GEMM, auto.resolve(3, 2, 8, 28, 28));
+        assertEquals(ConvolutionAlgorithm.FFT, auto.resolve(15, 1, 16, 64, 64));
+        assertEquals(ConvolutionAlgorithm.FFT, auto.resolve(25, 1, 8, 128, 128));
+        assertEquals(ConvolutionAlgorithm.GEMM, auto.resolve(8, 1, 16, 28, 28));
+        assertEquals(ConvolutionAlgorithm.GEMM, auto.resolve(5, 1, 16, 64, 64));
+        assertEquals(ConvolutionAlgorithm.GEMM, auto.resolve(2, 1, 16, 28, 28));
+        assertEquals(ConvolutionAlgorithm.FFT, ConvolutionAlgorithm.FFT.resolve(3, 1, 8, 28, 28));
+
+        ConvLayer conv = new ConvLayer(5, 2, 0.05, 1);
+        assertThrows(IllegalArgumentException.class, () -> conv.setAlgorithm(ConvolutionAlgorithm.WINOGRAD));
+        ConvLayer strided = new ConvLayer(3, 2, 0.05, 2);
+        assertThrows(IllegalArgumentException.class, () -> strided.setAlgorithm(ConvolutionAlgorithm.FFT));
+    }
+
+    @Test
+    void testLayerAlgorithmsAgree() {
+        ConvolutionAlgorithm[] algorithms = ConvolutionAlgorithm.values();
+        for (int kernelSize : new int[]{3, 8}) {
+            ConvLayer[] layers = new ConvLayer[algorithms.length];
+            for (int a = 0; a < algorithms.length; a++) {
+                layers[a] = new ConvLayer(kernelSize, 5, 0.05, 1);
+                if (a > 0) {
+                    for (int k = 0; k < 5; k++) {
+                        for (int i = 0; i < kernelSize; i++) {
+                            System.arraycopy(layers[0].getKernels().get(k)[i], 0, layers[a].getKernels().get(k)[i], 0, kernelSize);
+                        }
+                    }
+                    layers[a].markKernelsModified();
+                }
+                if (algorithms[a].supports(kernelSize, 1)) {
+                    layers[a].setAlgorithm(algorithms[a]);
+                }
+            }
+
+            Random random = new Random(kernelSize);
+            for (int step = 0; step < 2; step++) {
+                Tensor input = new Tensor(2, 1, 20, 17);
+                for (int i = 0; i < input.size(); i++) {
+                    input.getData()[i] = random.nextDouble() - 0.5;
+                }
+                Tensor gradient = null;
+                double[] expectedOutput = null;
+                double[] expectedInputGradient = null;
+                for (ConvLayer layer : layers) {
+                    Tensor output = layer.forward(input);
+                    if (gradient == null) {
+                        expectedOutput = output.toArray();
+                        gradient = new Tensor(output.shape());
+                        for (int i = 0; i < gradient.size(); i++) {
+                            gradient.getData()[i] = random.nextDouble() - 0.5;
+                        }
+                    }
+                    assertArrayEquals(expectedOutput, output.getData(), 1e-9);
+
+                    // обратный проход идёт через im2col при любом алгоритме
+                    double[] inputGradient = layer.backward(gradient).toArray();
+                    if (expectedInputGradient == null) {
+                        expectedInputGradient = inputGradient;
+                    }
+                    assertArrayEquals(expectedInputGradient, inputGradient, 1e-9);
+
+                    // проход без состояния после шага оптимизатора
+                    Tensor single = input.narrow(0, 1);
+                    Tensor stateless = layer.forward(single, new Tensor(1, 5, 20 - kernelSize + 1, 17 - kernelSize + 1),
+                            new double[layer.scratchSize(20, 17)]);
+                    Tensor reference = layers[0].forward(single, new Tensor(stateless.shape()), new double[layers[0].scratchSize(20, 17)]);
+                    assertArrayEquals(reference.getData(), stateless.getData(), 1e-9);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.optimizer.impl.GradientAccumulator;
+import service.optimizer.impl.SGDOptimizer;
+import service.regularizer.GroupScope;
+import service.regularizer.impl.GroupLassoRegularizer;
+import service.regularizer.impl.L1Regularizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConvolutionalNeuralNetworkTest {
+
+    private static ConvolutionalNeuralNetwork createNetwork() {
+        return new ConvolutionalNeuralNetwork(12, 12, 3, 4, 5, 0.05, false, false, false);
+    }
+
+    // копирует веса source в target, чтобы две сети стартовали из одной точки
+    private static void copyWeights(ConvolutionalNeuralNetwork source, ConvolutionalNeuralNetwork target) {
+        for (int k = 0; k < source.convLayer.getNumKernels(); k++) {
+            double[][] from = source.convLayer.getKernels().get(k);
+            double[][] to = target.convLayer.getKernels().get(k);
+            for (int i = 0; i < from.length; i++) {
+                System.arraycopy(from[i], 0, to[i], 0, from[i].length);
+            }
+        }
+        target.convLayer.markKernelsModified();
+        double[] weights = source.fcLayer.getWeights();
+        System.arraycopy(weights, 0, target.fcLayer.getWeights(), 0, weights.length);
+        double[] biases = source.fcLayer.getBiases();
+        System.arraycopy(biases, 0, target.fcLayer.getBiases(), 0, biases.length);
+        target.fcLayer.markWeightsModified();
+    }
+
+    private static List<Pair<double[][], double[]>> randomBatch(Random random, int size) {
+        List<Pair<double[][], double[]>> batch = new ArrayList<>();
+        for (int n = 0; n < size; n++) {
+            double[][] image = new double[12][12];
+            for (double[] row : image) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = random.nextDouble();
+                }
+            }
+            double[] target = new double[5];
+            target[n % 5] = 1.0;
+            batch.add(new Pair<>(image, target));
+        }
+        return batch;
+    }
+
+    @Test
+    void testTrainBatchOfOneMatchesTrain() {
+        ConvolutionalNeuralNetwork single = createNetwork();
+        ConvolutionalNeuralNetwork batched = createNetwork();
+        copyWeights(single, batched);
+
+        Random random = new Random(4);
+        for (int step = 0; step < 5; step++) {
+            var sample = randomBatch(random, 1);
+            double expectedLoss = single.calculateLoss(single.forward(sample.getFirst().first()), sample.getFirst().second());
+            single.train(sample.getFirst().first(), sample.getFirst().second(), null);
+            assertEquals(expectedLoss, batched.trainBatch(sample), 1e-12);
+        }
+
+        double[][] probe = randomBatch(random, 1).getFirst().first();
+        assertArrayEquals(single.forward(probe), batched.forward(probe), 1e-12);
+        assertArrayEquals(single.fcLayer.getWeights(), batched.fcLayer.getWeights(), 1e-12);
+    }
+
+    @Test
+    void testTrainBatchRejectsEmptyBatch() {
+        ConvolutionalNeuralNetwork cnn = createNetwork();
+        assertThrows(IllegalArgumentException.class, () -> cnn.trainBatch(new ArrayList<>()));
+    }
+
+    @Test
+    void testTrainBatchReturnsMeanLossAndLearns() {
+        ConvolutionalNeuralNetwork cnn = createNetwork();
+        var batch = randomBatch(new Random(9), 8);
+
+        double expected = 0;
+        for (var sample : batch) {
+            expected += cnn.calculateLoss(cnn.forward(sample.first()), sample.second());
+        }
+        double first = cnn.trainBatch(batch);
+        assertEquals(expected / batch.size(), first, 1e-12);
+
+        double last = first;
+        for (int step = 0; step < 50; step++) {
+            last = cnn.trainBatch(batch);
+        }
+        assertTrue(last < first, "loss " + first + " -> " + last);
+    }
+
+    @Test
+    void testGradientAccumulationWithRegularizerMatchesLargeBatch() {
+        ConvolutionalNeuralNetwork large = createNetwork();
+        ConvolutionalNeuralNetwork accumulated = createNetwork();
+        copyWeights(large, accumulated);
+        large.convLayer.setOptimizer(new SGDOptimizer(new L1Regularizer(0.01)));
+        large.fcLayer.setOptimizer(new SGDOptimizer(new GroupLassoRegularizer(0.05, GroupScope.LAYER)));
+        accumulated.convLayer.setOptimizer(new GradientAccumulator(new SGDOptimizer(new L1Regularizer(0.01)), 4));
+        accumulated.fcLayer.setOptimizer(new GradientAccumulator(
+                new SGDOptimizer(new GroupLassoRegularizer(0.05, GroupScope.LAYER)), 4));
+
+        Random random = new Random(6);
+        for (int step = 0; step < 3; step++) {
+            var batch = randomBatch(random, 20);
+            large.trainBatch(batch);
+            for (int from = 0; from < 20; from += 5) {
+                accumulated.trainBatch(batch.subList(from, from + 5));
+            }
+        }
+
+        for (int k = 0; k < large.convLayer.getNumKernels(); k++) {
+            for (int i = 0; i < large.convLayer.getKernelSize(); i++) {
+                assertArrayEquals(large.convLayer.getKernels().get(k)[i], accumulated.convLayer.getKernels().get(k)[i], 1e-12);
+            }
+        }
+        assertArrayEquals(large.fcLayer.getWeights(), accumulated.fcLayer.getWeights(), 1e-12);
+    }
+}
@@ -0,0 +1,69 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FullyConnectedLayerTest {
+
+    private static Tensor randomTensor(Random random, int... shape) {
+        Tensor tensor = new Tensor(shape);
+        for (int i = 0; i < tensor.size(); i++) {
+            tensor.getData()[i] = random.nextDouble() - 0.5;
+        }
+        return tensor;
+    }
+
+    @Test
+    void testBuffersAreReused() {
+        Random random = new Random(1);
+        FullyConnectedLayer fc = new FullyConnectedLayer(5, 4, 0.1);
+        Tensor output = fc.forward(randomTensor(random, 3, 5));
+        Tensor inputGradient = fc.backward(randomTensor(random, 3, 4));
+
+        Tensor next = fc.forward(randomTensor(random, 3, 5));
+        assertSame(output, next);
+        double[] weights = fc.getWeights().clone();
+        double[] preActivation = fc.getLastPreActivation().clone();
+
+        // градиент входа не накапливается с прошлого вызова: dX = (dY * leakyReLU'(z)) * W по весам до шага
+        Tensor gradient = randomTensor(random, 3, 4);
+        assertSame(inputGradient, fc.backward(gradient));
+        for (int n = 0; n < 3; n++) {
+            for (int j = 0; j < 5; j++) {
+                double expected = 0.0;
+                for (int i = 0; i < 4; i++) {
+                    if (preActivation[n * 4 + i] > 0) {
+                        expected += gradient.get(n, i) * weights[i * 5 + j];
+                    }
+                }
+                assertEquals(expected, inputGradient.get(n, j), 1e-12);
+            }
+        }
+
+        // другой размер пакета — новые буферы
+        Tensor single = fc.forward(randomTensor(random, 1, 5));
+        assertTrue(single != output && single.hasShape(1, 4));
+        assertTrue(fc.backward(randomTensor(random, 1, 4)).hasShape(1, 5));
+    }
+
+    @Test
+    void testArrayOverloadsReturnCopies() {
+        FullyConnectedLayer fc = new FullyConnectedLayer(5, 4, 0.1);
+        double[] output = fc.forward(new double[]{0.1, -0.2, 0.3, 0.4, -0.5});
+        double[] expectedOutput = output.clone();
+        double[] inputGradient = fc.backward(new double[]{0.5, -0.5, 0.25, 1.0});
+        double[] expectedGradient = inputGradient.clone();
+
+        assertTrue(output != fc.getLastOutput().getData());
+        fc.forward(new double[]{0.9, 0.8, -0.7, 0.6, 0.5});
+        fc.backward(new double[]{-1.0, 2.0, 0.5, 0.1});
+        assertArrayEquals(expectedOutput, output, 0.0);
+        assertArrayEquals(expectedGradient, inputGradient, 0.0);
+    }
+}
@@ -0,0 +1,132 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.optimizer.impl.AMSGradOptimizer;
+import service.optimizer.impl.SGDOptimizer;
+import util.TestData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HogwildTrainerTest {
+
+    // гладкая цель в (0, 1): среднее соседних признаков
+    private static double[][] targetsFor(double[][] inputs) {
+        double[][] targets = new double[inputs.length][3];
+        for (int i = 0; i < inputs.length; i++) {
+            for (int k = 0; k < 3; k++) {
+                targets[i][k] = (inputs[i][k] + inputs[i][k + 1]) / 2;
+            }
+        }
+        return targets;
+    }
+
+    private static double meanSquaredError(NeuralNetwork network, double[][] inputs, double[][] targets) {
+        double sum = 0.0;
+        for (int i = 0; i < inputs.length; i++) {
+            double[] output = network.predict(inputs[i]);
+            for (int k = 0; k < output.length; k++) {
+                sum += (output[k] - targets[i][k]) * (output[k] - targets[i][k]);
+            }
+        }
+        return sum / inputs.length;
+    }
+
+    @Test
+    void testTrainingConverges() {
+        double[][] inputs = TestData.randomMatrix(new Random(3), 200, 4);
+        double[][] targets = targetsFor(inputs);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (HogwildTrainer.UpdateMode mode : HogwildTrainer.UpdateMode.values()) {
+                NeuralNetwork network = TestData.sigmoidNetwork(7, 16, 0.5);
+                double before = meanSquaredError(network, inputs, targets);
+                HogwildTrainer trainer = new HogwildTrainer(network, pool, 4, mode, new Random(1));
+                for (int epoch = 0; epoch < 100; epoch++) {
+                    trainer.trainEpoch(inputs, targets);
+                }
+                double after = meanSquaredError(network, inputs, targets);
+                assertTrue(after < before / 10, mode + ": " + before + " -> " + after);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAtomicUpdatesAreNotLost() {
+        int threads = 4;
+        int repeats = 20_000;
+        double[] weights = new double[8];
+        double[] biases = new double[1];
+        double[] gradient = {1, 2, 3, 4, 5, 6, 7, 8};
+        SGDOptimizer optimizer = new SGDOptimizer();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int r = 0; r < repeats; r++) {
+                        optimizer.updateShared(weights, 0, gradient, 0, gradient.length, biases, 0, 1.0, 0.5, true);
+                    }
+                }));
+            }
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } finally {
+            pool.shutdown();
+        }
+
+        // все слагаемые — точные двоичные дроби, поэтому сумма не зависит от порядка записей
+        double[] expected = new double[gradient.length];
+        for (int i = 0; i < gradient.length; i++) {
+            expected[i] = 0.5 * gradient[i] * threads * repeats;
+        }
+        assertArrayEquals(expected, weights, 0.0);
+        assertArrayEquals(new double[]{0.5 * threads * repeats}, biases, 0.0);
+    }
+
+    @Test
+    void testRejectsStatefulOptimizer() {
+        NeuralNetwork network = TestData.sigmoidNetwork(7, 16, 0.5);
+        network.setOptimizer(new AMSGradOptimizer(0.9, 0.999));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new HogwildTrainer(network, pool, HogwildTrainer.UpdateMode.RACY));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testMixedPrecisionWorkersSeeFreshWeights() {
+        double[][] inputs = TestData.randomMatrix(new Random(5), 100, 4);
+        double[][] targets = targetsFor(inputs);
+        NeuralNetwork reference = TestData.sigmoidNetwork(7, 16, 0.5);
+        NeuralNetwork mixed = TestData.sigmoidNetwork(7, 16, 0.5);
+        mixed.setMixedPrecision(true);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            // один поток и один порядок примеров: расхождение только от точности, если float-копия свежая
+            HogwildTrainer referenceTrainer = new HogwildTrainer(reference, pool, 1, HogwildTrainer.UpdateMode.RACY, new Random(2));
+            HogwildTrainer mixedTrainer = new HogwildTrainer(mixed, pool, 1, HogwildTrainer.UpdateMode.RACY, new Random(2));
+            for (int epoch = 0; epoch < 3; epoch++) {
+                referenceTrainer.trainEpoch(inputs, targets);
+                mixedTrainer.trainEpoch(inputs, targets);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (double[] input : inputs) {
+            assertArrayEquals(reference.predict(input), mixed.predict(input), 1e-4);
+        }
+    }
+}
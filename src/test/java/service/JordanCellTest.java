@@ -0,0 +1,58 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JordanCellTest {
+
+    @Test
+    void testFloatPrecisionMatchesDouble() {
+        JordanCell cell = new JordanCell(4, 6, 3);
+        Random random = new Random(5);
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> targets = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            double[] input = new double[4];
+            for (int j = 0; j < input.length; j++) {
+                input[j] = random.nextDouble() - 0.5;
+            }
+            inputs.add(input);
+            targets.add(new double[]{random.nextDouble(), random.nextDouble(), random.nextDouble()});
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (Precision precision : new Precision[]{Precision.FLOAT, Precision.FLOAT_DOUBLE_ACCUMULATION}) {
+                float[] hidden = new float[6];
+                float[] output = new float[3];
+                for (double[] input : inputs) {
+                    float[] context = toFloat(cell.getContextState());
+                    double[] expected = cell.forward(input);
+                    cell.forward(toFloat(input), context, hidden, output, precision);
+                    for (int i = 0; i < 3; i++) {
+                        assertEquals(expected[i], output[i], 1e-5);
+                    }
+                }
+                cell.getHiddenHistory().clear();
+                cell.getContextHistory().clear();
+            }
+            // после шага обучения float-копия весов обновляется
+            for (double[] input : inputs) {
+                cell.forward(input);
+            }
+            cell.backward(inputs, targets, 0.5);
+        }
+    }
+
+    private static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+}
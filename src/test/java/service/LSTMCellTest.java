@@ -0,0 +1,51 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LSTMCellTest {
+
+    @Test
+    void testFloatPrecisionMatchesDouble() {
+        LSTMCell cell = new LSTMCell(6, 5);
+        Random random = new Random(11);
+        double[][] inputs = new double[4][6];
+        for (double[] input : inputs) {
+            for (int j = 0; j < input.length; j++) {
+                input[j] = random.nextDouble() - 0.5;
+            }
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (Precision precision : new Precision[]{Precision.FLOAT, Precision.FLOAT_DOUBLE_ACCUMULATION}) {
+                double[] h = new double[5];
+                double[] c = new double[5];
+                float[] hf = new float[5];
+                float[] cf = new float[5];
+                float[] gates = new float[20];
+                for (double[] input : inputs) {
+                    h = cell.forward(input, h, c);
+                    c = cell.getHistory().get(cell.getHistory().size() - 1).c_t();
+                    cell.forward(toFloat(input), hf, cf, gates, precision);
+                    for (int i = 0; i < 5; i++) {
+                        assertEquals(h[i], hf[i], 1e-5);
+                        assertEquals(c[i], cf[i], 1e-5);
+                    }
+                }
+            }
+            // после шага обучения float-копия весов обновляется
+            cell.backward(new double[]{1, -1, 0.5, 0, 0.25}, 0.5);
+        }
+    }
+
+    private static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.activationfunction.impl.Sigmoid;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LayerTest {
+
+    @Test
+    void testForwardReturnsFreshArray() {
+        Layer layer = new Layer(3, 2, new Sigmoid(), new Random(1));
+        double[] first = layer.forward(new double[]{0.1, 0.2});
+        double[] expected = first.clone();
+        double[] second = layer.forward(new double[]{-0.5, 0.9});
+
+        assertTrue(first != second);
+        assertArrayEquals(expected, first, 0.0);
+    }
+
+    @Test
+    void testSetNeuronsCopiesParameters() {
+        Random random = new Random(2);
+        Layer layer = new Layer(2, 3, new Sigmoid(), random);
+        Neuron[] neurons = {new Neuron(3, new Sigmoid(), random), new Neuron(3, new Sigmoid(), random)};
+        layer.setNeurons(neurons);
+
+        double[] input = {0.3, -0.2, 0.7};
+        double[] output = layer.forward(input);
+        for (int j = 0; j < neurons.length; j++) {
+            assertEquals(neurons[j].forward(input), output[j], 1e-12);
+        }
+        assertThrows(IllegalArgumentException.class, () -> layer.setNeurons(new Neuron[]{neurons[0]}));
+    }
+}
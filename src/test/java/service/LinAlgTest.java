@@ -0,0 +1,205 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import utility.linalg.FastActivations;
+import utility.linalg.LinAlg;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LinAlgTest {
+
+    private static double[] randomArray(Random random, int size) {
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = random.nextDouble() - 0.5;
+        }
+        return result;
+    }
+
+    private static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    @Test
+    void testGemmMatchesNaive() {
+        Random random = new Random(1);
+        for (int t = 0; t < 100; t++) {
+            int m = 1 + random.nextInt(70);
+            int n = 1 + random.nextInt(t % 2 == 0 ? 70 : 1100);
+            int k = 1 + random.nextInt(300);
+            boolean transA = random.nextBoolean();
+            boolean transB = random.nextBoolean();
+            int lda = transA ? m : k;
+            int ldb = transB ? k : n;
+            double alpha = random.nextDouble();
+            double beta = random.nextInt(3) * 0.5;
+
+            double[] a = randomArray(random, m * k);
+            double[] b = randomArray(random, k * n);
+            double[] c = randomArray(random, m * n);
+            double[] expected = new double[m * n];
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    double sum = 0.0;
+                    for (int p = 0; p < k; p++) {
+                        double aip = transA ? a[p * lda + i] : a[i * lda + p];
+                        double bpj = transB ? b[j * ldb + p] : b[p * ldb + j];
+                        sum += aip * bpj;
+                    }
+                    expected[i * n + j] = alpha * sum + beta * c[i * n + j];
+                }
+            }
+
+            float[] cFloat = toFloat(c);
+            LinAlg.gemm(transA, transB, m, n, k, alpha, a, 0, lda, b, 0, ldb, beta, c, 0, n);
+            LinAlg.gemm(transA, transB, m, n, k, (float) alpha, toFloat(a), 0, lda, toFloat(b), 0, ldb,
+                    (float) beta, cFloat, 0, n);
+
+            for (int i = 0; i < m * n; i++) {
+                assertEquals(expected[i], c[i], 1e-10);
+                assertEquals(expected[i], cFloat[i], 1e-3);
+            }
+        }
+    }
+
+    @Test
+    void testGemmRowIsIndependentOfTiling() {
+        Random random = new Random(2);
+        int m = 11, n = 37, k = 300;
+        for (boolean transA : new boolean[]{false, true}) {
+            int lda = transA ? m : k;
+            double[] a = randomArray(random, m * k);
+            double[] b = randomArray(random, k * n);
+            double[] c = randomArray(random, m * n);
+            float[] aFloat = toFloat(a);
+            float[] bFloat = toFloat(b);
+            float[] cFloat = toFloat(c);
+            double[] rows = c.clone();
+            float[] rowsFloat = cFloat.clone();
+
+            // все строки сразу — плитки по четыре строки и остаток; затем каждая строка отдельно
+            LinAlg.gemm(transA, false, m, n, k, 0.7, a, 0, lda, b, 0, n, 1.0, c, 0, n);
+            LinAlg.gemm(transA, false, m, n, k, 0.7f, aFloat, 0, lda, bFloat, 0, n, 1f, cFloat, 0, n);
+            for (int i = 0; i < m; i++) {
+                int aRow = transA ? i : i * lda;
+                LinAlg.gemm(transA, false, 1, n, k, 0.7, a, aRow, lda, b, 0, n, 1.0, rows, i * n, n);
+                LinAlg.gemm(transA, false, 1, n, k, 0.7f, aFloat, aRow, lda, bFloat, 0, n, 1f, rowsFloat, i * n, n);
+            }
+            for (int i = 0; i < m * n; i++) {
+                assertEquals(rows[i], c[i], 0.0);
+                assertEquals(rowsFloat[i], cFloat[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    void testGemvMatchesNaive() {
+        Random random = new Random(2);
+        for (int t = 0; t < 50; t++) {
+            int m = 1 + random.nextInt(40);
+            int n = 1 + random.nextInt(40);
+            double[] a = randomArray(random, m * n);
+            double[] x = randomArray(random, n);
+            double[] xt = randomArray(random, m);
+            double[] y = randomArray(random, m);
+            double[] yt = randomArray(random, n);
+            double[] expected = new double[m];
+            double[] expectedT = new double[n];
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    expected[i] += a[i * n + j] * x[j];
+                    expectedT[j] += a[i * n + j] * xt[i];
+                }
+            }
+            for (int i = 0; i < m; i++) {
+                expected[i] += 0.5 * y[i];
+            }
+            for (int j = 0; j < n; j++) {
+                expectedT[j] += yt[j];
+            }
+
+            LinAlg.gemv(m, n, a, 0, n, x, 0, 0.5, y, 0);
+            LinAlg.gemvT(m, n, a, 0, n, xt, 0, 1.0, yt, 0);
+
+            for (int i = 0; i < m; i++) {
+                assertEquals(expected[i], y[i], 1e-12);
+            }
+            for (int j = 0; j < n; j++) {
+                assertEquals(expectedT[j], yt[j], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void testVectorOpsMatchScalar() {
+        Random random = new Random(3);
+        for (int n = 1; n < 200; n += 7) {
+            double[] x = randomArray(random, n);
+            double[] y = randomArray(random, n);
+            int off = random.nextInt(3);
+            double[] yShifted = new double[n + off];
+            System.arraycopy(y, 0, yShifted, off, n);
+
+            double dot = 0.0;
+            for (int i = 0; i < n; i++) {
+                dot += x[i] * y[i];
+            }
+            assertEquals(dot, LinAlg.dot(x, 0, yShifted, off, n), 1e-12);
+            assertEquals(dot, LinAlg.dot(toFloat(x), toFloat(y), n), 1e-4);
+            float[] xFloat = toFloat(x);
+            float[] yFloat = toFloat(y);
+            double wideDot = 0.0;
+            for (int i = 0; i < n; i++) {
+                wideDot += (double) xFloat[i] * yFloat[i];
+            }
+            assertEquals(wideDot, LinAlg.dsdot(xFloat, 0, yFloat, 0, n), 1e-12);
+
+            LinAlg.axpy(n, 0.75, x, 0, yShifted, off);
+            for (int i = 0; i < n; i++) {
+                assertEquals(y[i] + 0.75 * x[i], yShifted[off + i], 1e-15);
+            }
+
+            double[] sigmoid = x.clone();
+            double[] tanh = x.clone();
+            double[] relu = x.clone();
+            float[] sigmoidFloat = toFloat(x);
+            float[] tanhFloat = toFloat(x);
+            LinAlg.sigmoid(sigmoid, 0, n);
+            LinAlg.tanh(tanh, 0, n);
+            LinAlg.relu(relu, 0, n, 0.0);
+            LinAlg.sigmoid(sigmoidFloat, 0, n);
+            LinAlg.tanh(tanhFloat, 0, n);
+            for (int i = 0; i < n; i++) {
+                assertEquals(1.0 / (1.0 + Math.exp(-x[i])), sigmoid[i], 1e-14);
+                assertEquals(Math.tanh(x[i]), tanh[i], 1e-14);
+                assertEquals(Math.max(0.0, x[i]), relu[i], 0.0);
+                assertEquals(1.0 / (1.0 + Math.exp(-x[i])), sigmoidFloat[i], 1e-6);
+                assertEquals(Math.tanh(x[i]), tanhFloat[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void testFastActivationsWithinDocumentedError() {
+        double tanhError = 0.0;
+        double sigmoidError = 0.0;
+        for (double x = -30.0; x <= 30.0; x += 1.0 / 4099) {
+            tanhError = Math.max(tanhError, Math.abs(FastActivations.tanh(x) - Math.tanh(x)));
+            sigmoidError = Math.max(sigmoidError, Math.abs(FastActivations.sigmoid(x) - 1.0 / (1.0 + Math.exp(-x))));
+            float xFloat = (float) x;
+            assertEquals(Math.tanh(xFloat), FastActivations.tanh(xFloat), FastActivations.TANH_MAX_ERROR + 6e-8);
+        }
+        assertTrue(tanhError <= FastActivations.TANH_MAX_ERROR, "tanh error " + tanhError);
+        assertTrue(sigmoidError <= FastActivations.SIGMOID_MAX_ERROR, "sigmoid error " + sigmoidError);
+        assertEquals(0.0, FastActivations.tanh(0.0), 0.0);
+        assertEquals(-1.0, FastActivations.tanh(Double.NEGATIVE_INFINITY), 0.0);
+        assertTrue(Double.isNaN(FastActivations.sigmoid(Double.NaN)));
+    }
+}
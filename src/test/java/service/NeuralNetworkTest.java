@@ -0,0 +1,229 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.activationfunction.impl.Sigmoid;
+import service.optimizer.Optimizer;
+import service.optimizer.impl.AMSGradOptimizer;
+import service.optimizer.impl.GradientAccumulator;
+import service.optimizer.impl.RmspropGravesOptimizer;
+import service.optimizer.impl.SGDOptimizer;
+import service.regularizer.impl.GroupLassoRegularizer;
+import service.regularizer.impl.L1Regularizer;
+import util.TestData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NeuralNetworkTest {
+
+    @Test
+    void testPredictBatchMatchesPredict() {
+        NeuralNetwork network = TestData.sigmoidNetwork(42, 8, 0.1);
+        double[][] inputs = TestData.randomMatrix(new Random(1), 10, 4);
+
+        double[][] batchOutputs = network.predictBatch(inputs);
+        for (int b = 0; b < inputs.length; b++) {
+            assertArrayEquals(network.predict(inputs[b]), batchOutputs[b], 1e-12);
+        }
+    }
+
+    @Test
+    void testTrainBatchOfOneMatchesTrain() {
+        List<Supplier<Optimizer>> optimizers = List.of(
+                SGDOptimizer::new,
+                () -> new AMSGradOptimizer(0.9, 0.999),
+                () -> new RmspropGravesOptimizer(0.95),
+                () -> new SGDOptimizer(new GroupLassoRegularizer(0.05)),
+                () -> new AMSGradOptimizer(new L1Regularizer(0.01), 0.9, 0.999));
+        for (Supplier<Optimizer> optimizer : optimizers) {
+            NeuralNetwork single = TestData.sigmoidNetwork(42, 8, 0.1);
+            NeuralNetwork batched = TestData.sigmoidNetwork(42, 8, 0.1);
+            single.setOptimizer(optimizer.get());
+            batched.setOptimizer(optimizer.get());
+            Random random = new Random(1);
+            double[][] inputs = TestData.randomMatrix(random, 20, 4);
+            double[][] targets = TestData.randomMatrix(random, 20, 3);
+
+            for (int b = 0; b < inputs.length; b++) {
+                single.train(inputs[b], targets[b]);
+                batched.trainBatch(new double[][]{inputs[b]}, new double[][]{targets[b]});
+            }
+
+            assertEquals(4 * 8 + 8 + 8 * 3 + 3, single.getParameterCount());
+            for (double[] input : inputs) {
+                assertArrayEquals(single.predict(input), batched.predict(input), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void testTrainBatchRejectsMalformedBatch() {
+        NeuralNetwork network = TestData.sigmoidNetwork(42, 8, 0.1);
+        double[][] inputs = TestData.randomMatrix(new Random(1), 2, 4);
+        double[] before = network.predict(inputs[0]);
+
+        assertThrows(IllegalArgumentException.class, () -> network.trainBatch(new double[0][], new double[0][]));
+        assertThrows(IllegalArgumentException.class, () -> network.trainBatch(inputs, new double[1][3]));
+        assertThrows(IllegalArgumentException.class, () -> network.trainBatch(new double[][]{new double[5]}, new double[1][3]));
+        assertThrows(IllegalArgumentException.class, () -> network.trainBatch(new double[][]{new double[3]}, new double[1][3]));
+        assertThrows(IllegalArgumentException.class, () -> network.trainBatch(new double[][]{new double[4]}, new double[1][2]));
+        assertArrayEquals(before, network.predict(inputs[0]), 0.0);
+    }
+
+    @Test
+    void testPredictDoesNotMutateModel() {
+        NeuralNetwork network = TestData.sigmoidNetwork(42, 8, 0.1);
+        double[][] inputs = TestData.randomMatrix(new Random(1), 2, 4);
+        network.train(inputs[0], new double[]{1, 0, 0});
+
+        DenseLayer outputLayer = network.getLayers().getLast();
+        double[] outputsBefore = outputLayer.getOutputs().clone();
+        double[] deltasBefore = outputLayer.getDeltas().clone();
+
+        network.predict(inputs[1]);
+        network.predictBatch(inputs);
+
+        assertArrayEquals(outputsBefore, outputLayer.getOutputs(), 0.0);
+        assertArrayEquals(deltasBefore, outputLayer.getDeltas(), 0.0);
+    }
+
+    @Test
+    void testConcurrentPredict() throws Exception {
+        NeuralNetwork network = TestData.sigmoidNetwork(42, 8, 0.1);
+        double[][] inputs = TestData.randomMatrix(new Random(1), 200, 4);
+        double[][] expected = new double[inputs.length][];
+        for (int b = 0; b < inputs.length; b++) {
+            expected[b] = network.predict(inputs[b]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    int checked = 0;
+                    for (int repeat = 0; repeat < 50; repeat++) {
+                        for (int b = 0; b < inputs.length; b++) {
+                            assertArrayEquals(expected[b], network.predict(inputs[b]), 0.0);
+                            checked++;
+                        }
+                    }
+                    return checked;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(50 * inputs.length, (int) future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFloatPrecisionMatchesDouble() {
+        NeuralNetwork network = TestData.sigmoidNetwork(42, 8, 0.1);
+        Random random = new Random(1);
+        double[][] inputs = TestData.randomMatrix(random, 20, 4);
+        double[][] targets = TestData.randomMatrix(random, 20, 3);
+        double[][] expected = network.predictBatch(inputs);
+
+        for (Precision precision : new Precision[]{Precision.FLOAT, Precision.FLOAT_DOUBLE_ACCUMULATION}) {
+            network.setPrecision(precision);
+            double[][] actual = network.predictBatch(inputs);
+            for (int b = 0; b < inputs.length; b++) {
+                assertArrayEquals(expected[b], actual[b], 1e-6);
+            }
+        }
+
+        // после обучения float-копия весов должна обновиться
+        network.trainBatch(inputs, targets);
+        network.setPrecision(Precision.DOUBLE);
+        double[] trained = network.predict(inputs[0]);
+        network.setPrecision(Precision.FLOAT);
+        assertArrayEquals(trained, network.predict(inputs[0]), 1e-6);
+    }
+
+    @Test
+    void testBuilderInfersShapes() {
+        NeuralNetwork network = NeuralNetwork.builder(120)
+                .layer(32, new Sigmoid())
+                .layer(5, new Sigmoid())
+                .random(new Random(1))
+                .optimizer(new SGDOptimizer())
+                .batchSize(16)
+                .build();
+
+        assertEquals(120, network.getLayers().getFirst().getInputSize());
+        assertEquals(32, network.getLayers().get(1).getInputSize());
+        assertEquals(5, network.getOutputSize());
+        assertEquals(5, network.predict(new double[120]).length);
+        assertThrows(IllegalArgumentException.class, () -> network.predict(new double[4]));
+        assertThrows(IllegalStateException.class, () -> NeuralNetwork.builder(4).build());
+        assertThrows(IllegalArgumentException.class, () -> NeuralNetwork.builder(4).layer(0, new Sigmoid()));
+    }
+
+    @Test
+    void testMixedPrecisionTrainingTracksDouble() {
+        NeuralNetwork reference = TestData.sigmoidNetwork(42, 8, 0.1);
+        NeuralNetwork mixed = TestData.sigmoidNetwork(42, 8, 0.1);
+        reference.setOptimizer(new AMSGradOptimizer(0.9, 0.999));
+        mixed.setOptimizer(new AMSGradOptimizer(0.9, 0.999));
+        mixed.setMixedPrecision(true);
+        Random random = new Random(1);
+        double[][] inputs = TestData.randomMatrix(random, 40, 4);
+        double[][] targets = TestData.randomMatrix(random, 40, 3);
+
+        for (int epoch = 0; epoch < 5; epoch++) {
+            for (int from = 0; from < inputs.length; from += 8) {
+                reference.trainBatch(Arrays.copyOfRange(inputs, from, from + 8), Arrays.copyOfRange(targets, from, from + 8));
+                mixed.trainBatch(Arrays.copyOfRange(inputs, from, from + 8), Arrays.copyOfRange(targets, from, from + 8));
+            }
+        }
+
+        for (double[] input : inputs) {
+            assertArrayEquals(reference.predict(input), mixed.predict(input), 1e-4);
+        }
+    }
+
+    @Test
+    void testGradientAccumulationMatchesLargeBatch() {
+        List<Supplier<Optimizer>> optimizers = List.of(
+                SGDOptimizer::new,
+                () -> new AMSGradOptimizer(0.9, 0.999),
+                () -> new SGDOptimizer(new L1Regularizer(0.01)),
+                () -> new SGDOptimizer(new GroupLassoRegularizer(0.05)));
+        for (Supplier<Optimizer> optimizer : optimizers) {
+            NeuralNetwork large = TestData.sigmoidNetwork(42, 8, 0.1);
+            NeuralNetwork accumulated = TestData.sigmoidNetwork(42, 8, 0.1);
+            large.setOptimizer(optimizer.get());
+            accumulated.setOptimizer(new GradientAccumulator(optimizer.get(), 4));
+            Random random = new Random(1);
+            double[][] inputs = TestData.randomMatrix(random, 40, 4);
+            double[][] targets = TestData.randomMatrix(random, 40, 3);
+
+            // с регуляризатором проксимальный шаг — один на настоящий шаг, а не на каждый микропакет
+            for (int from = 0; from < inputs.length; from += 20) {
+                large.trainBatch(Arrays.copyOfRange(inputs, from, from + 20),
+                        Arrays.copyOfRange(targets, from, from + 20));
+                for (int micro = from; micro < from + 20; micro += 5) {
+                    accumulated.trainBatch(Arrays.copyOfRange(inputs, micro, micro + 5),
+                            Arrays.copyOfRange(targets, micro, micro + 5));
+                }
+            }
+
+            for (double[] input : inputs) {
+                assertArrayEquals(large.predict(input), accumulated.predict(input), 1e-12);
+            }
+        }
+    }
+}
@@ -5,7 +5,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import service.activationfunction.impl.Sigmoid;
+import service.optimizer.Optimizer;
 import service.optimizer.impl.AMSGradOptimizer;
+import service.optimizer.impl.GradientAccumulator;
 import service.optimizer.impl.RmspropGravesOptimizer;
 import service.optimizer.impl.SGDOptimizer;
 import util.Exec;
@@ -14,7 +16,10 @@ import util.Timer;
 import utility.IrisDataReader;
 
 import java.util.List;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -80,4 +85,100 @@ public class OptimizerTest {
         timer.stop();
         assertTrue(result);
     }
+
+    @Test
+    void testSparseStepRejectsStateOutOfBounds() {
+        Optimizer[] optimizers = {
+                new AMSGradOptimizer(0.9, 0.999),
+                new RmspropGravesOptimizer(0.95),
+                new GradientAccumulator(new RmspropGravesOptimizer(0.95), 2)};
+        for (Optimizer optimizer : optimizers) {
+            optimizer.bind(10);
+            double[] row = new double[6];
+            double[] gradient = new double[6];
+            int[] indices = {0, 2, 5};
+            optimizer.step(row, 0, gradient, 0, indices, 0, 3, 4, 0.1);
+            assertThrows(IllegalStateException.class, () -> optimizer.step(row, 0, gradient, 0, indices, 0, 3, 5, 0.1));
+        }
+    }
+
+    @Test
+    void testStandaloneNeuronMatchesBoundNeuron() {
+        Optimizer[][] pairs = {
+                {new AMSGradOptimizer(0.9, 0.999), new AMSGradOptimizer(0.9, 0.999)},
+                {new RmspropGravesOptimizer(0.95), new RmspropGravesOptimizer(0.95)}};
+        for (Optimizer[] pair : pairs) {
+            // DenseLayer и Neuron берут bias и веса из генератора в одном порядке
+            Layer layer = new Layer(1, 3, new Sigmoid(), new Random(5));
+            Neuron standalone = new Neuron(3, new Sigmoid(), new Random(5));
+            pair[0].bind(layer.getParameterCount());
+            for (int step = 0; step < 3; step++) {
+                double[] gradients = {0.5 - step, 0.25 * step, -0.75};
+                pair[0].update(layer.getNeurons()[0], gradients, 0, 0.1 * step, 0.05);
+                pair[1].update(standalone, gradients, 0, 0.1 * step, 0.05);
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(layer.getNeurons()[0].getWeights()[i], standalone.getWeights()[i], 1e-12);
+            }
+            assertEquals(layer.getNeurons()[0].getBias(), standalone.getBias(), 1e-12);
+        }
+    }
+
+    @Test
+    void testPrunedWeightsStaySparse() {
+        FullyConnectedLayer fc = new FullyConnectedLayer(12, 6, 0.01);
+        fc.setOptimizer(new AMSGradOptimizer(0.9, 0.999));
+        ConvLayer conv = new ConvLayer(3, 2, 0.01, 1);
+        conv.setOptimizer(new RmspropGravesOptimizer(0.95));
+        fc.pruneWeights(0.5);
+        conv.pruneKernels(0.5);
+
+        SparsityMask fcMask = fc.getSparsityMask();
+        SparsityMask convMask = conv.getSparsityMask();
+        assertTrue(fcMask.density() < 0.6);
+        assertTrue(convMask.density() < 0.6);
+        double[] fcBefore = fc.getWeights().clone();
+
+        Random random = new Random(5);
+        for (int step = 0; step < 20; step++) {
+            double[] input = new double[12];
+            double[] gradient = new double[6];
+            for (int j = 0; j < 12; j++) {
+                input[j] = random.nextDouble();
+            }
+            for (int i = 0; i < 6; i++) {
+                gradient[i] = random.nextDouble() - 0.5;
+            }
+            fc.forward(input);
+            fc.backward(gradient);
+
+            Tensor image = new Tensor(1, 1, 6, 6);
+            for (int j = 0; j < image.size(); j++) {
+                image.getData()[j] = random.nextDouble();
+            }
+            Tensor maps = conv.forward(image);
+            conv.backward(maps);
+        }
+
+        int changed = 0;
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 12; j++) {
+                if (!fcMask.isLive(i, j)) {
+                    assertEquals(0.0, fc.getWeights()[i * 12 + j]);
+                } else if (fc.getWeights()[i * 12 + j] != fcBefore[i * 12 + j]) {
+                    changed++;
+                }
+            }
+        }
+        assertTrue(changed > 0);
+        for (int k = 0; k < 2; k++) {
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    if (!convMask.isLive(k * 3 + i, j)) {
+                        assertEquals(0.0, conv.getKernels().get(k)[i][j]);
+                    }
+                }
+            }
+        }
+    }
 }
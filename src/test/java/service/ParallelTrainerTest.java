@@ -0,0 +1,77 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import util.TestData;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelTrainerTest {
+
+    @Test
+    void testParallelMatchesSequentialBatch() {
+        Random random = new Random(3);
+        double[][] inputs = TestData.randomMatrix(random, 256, 4);
+        double[][] targets = TestData.randomMatrix(random, 256, 3);
+
+        NeuralNetwork sequential = TestData.sigmoidNetwork(7, 16, 0.5);
+        NeuralNetwork parallel = TestData.sigmoidNetwork(7, 16, 0.5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelTrainer trainer = new ParallelTrainer(parallel, pool);
+            for (int epoch = 0; epoch < 5; epoch++) {
+                for (int from = 0; from < inputs.length; from += 64) {
+                    double[][] batchInputs = Arrays.copyOfRange(inputs, from, from + 64);
+                    double[][] batchTargets = Arrays.copyOfRange(targets, from, from + 64);
+                    sequential.trainBatch(batchInputs, batchTargets);
+                }
+                trainer.trainEpoch(inputs, targets, 64);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (double[] input : inputs) {
+            assertArrayEquals(sequential.predict(input), parallel.predict(input), 1e-9);
+        }
+    }
+
+    @Test
+    void testParallelIsDeterministic() {
+        Random random = new Random(3);
+        double[][] inputs = TestData.randomMatrix(random, 300, 4);
+        double[][] targets = TestData.randomMatrix(random, 300, 3);
+
+        NeuralNetwork first = TestData.sigmoidNetwork(7, 16, 0.5);
+        NeuralNetwork second = TestData.sigmoidNetwork(7, 16, 0.5);
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            for (int epoch = 0; epoch < 5; epoch++) {
+                new ParallelTrainer(first, pool).trainEpoch(inputs, targets, 50);
+                new ParallelTrainer(second, pool).trainEpoch(inputs, targets, 50);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (double[] input : inputs) {
+            assertArrayEquals(first.predict(input), second.predict(input), 0.0);
+        }
+    }
+
+    @Test
+    void testRejectsMalformedBatch() {
+        ParallelTrainer trainer = new ParallelTrainer(TestData.sigmoidNetwork(7, 16, 0.5));
+        double[][] inputs = TestData.randomMatrix(new Random(3), 4, 4);
+        double[][] targets = TestData.randomMatrix(new Random(4), 4, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> trainer.trainBatch(new double[0][], new double[0][]));
+        assertThrows(IllegalArgumentException.class, () -> trainer.trainBatch(inputs, new double[3][3]));
+        assertThrows(IllegalArgumentException.class, () -> trainer.trainBatch(new double[][]{new double[2]}, new double[1][3]));
+        assertThrows(IllegalArgumentException.class, () -> trainer.trainEpoch(inputs, targets, 0));
+    }
+}
@@ -0,0 +1,132 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PoolingLayerTest {
+
+    private static Tensor randomTensor(Random random, int... shape) {
+        Tensor tensor = new Tensor(shape);
+        for (int i = 0; i < tensor.size(); i++) {
+            tensor.getData()[i] = random.nextDouble() - 0.5;
+        }
+        return tensor;
+    }
+
+    // окно выхода (i, j) по определению: строки [i * stride, min(i * stride + filter, H)), так же по столбцам
+    private static double window(Tensor input, int n, int c, int x0, int x1, int y0, int y1, PoolingMode mode) {
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0.0;
+        for (int x = x0; x < x1; x++) {
+            for (int y = y0; y < y1; y++) {
+                max = Math.max(max, input.get(n, c, x, y));
+                sum += input.get(n, c, x, y);
+            }
+        }
+        return mode == PoolingMode.MAX ? max : sum / ((x1 - x0) * (y1 - y0));
+    }
+
+    @Test
+    void testWindowsCoverNonDivisibleInput() {
+        Random random = new Random(5);
+        Tensor input = randomTensor(random, 2, 3, 7, 5);
+        for (PoolingMode mode : PoolingMode.values()) {
+            for (boolean ceilMode : new boolean[]{false, true}) {
+                PoolingLayer pooling = new PoolingLayer(2, 2, mode, ceilMode);
+                int outH = pooling.outputSize(7);
+                int outW = pooling.outputSize(5);
+                // без ceilMode последняя строка и столбец не попадают ни в одно окно
+                assertTrue(outH == (ceilMode ? 4 : 3) && outW == (ceilMode ? 3 : 2));
+
+                Tensor output = pooling.forward(input);
+                assertTrue(output.hasShape(2, 3, outH, outW));
+                for (int n = 0; n < 2; n++) {
+                    for (int c = 0; c < 3; c++) {
+                        for (int i = 0; i < outH; i++) {
+                            for (int j = 0; j < outW; j++) {
+                                double expected = window(input, n, c, 2 * i, Math.min(2 * i + 2, 7), 2 * j, Math.min(2 * j + 2, 5), mode);
+                                assertEquals(expected, output.get(n, c, i, j), 1e-12);
+                            }
+                        }
+                    }
+                }
+
+                // выход линеен по входу внутри окна, поэтому градиент суммы out * g равен производной по каждому элементу
+                Tensor gradient = randomTensor(random, output.shape());
+                Tensor inputGradient = pooling.backward(gradient);
+                assertTrue(inputGradient.hasShape(input.shape()));
+                double epsilon = 1e-6;
+                for (int index = 0; index < input.size(); index++) {
+                    double saved = input.getData()[index];
+                    input.getData()[index] = saved + epsilon;
+                    double plus = dot(pooling.forward(input, new Tensor(output.shape())), gradient);
+                    input.getData()[index] = saved - epsilon;
+                    double minus = dot(pooling.forward(input, new Tensor(output.shape())), gradient);
+                    input.getData()[index] = saved;
+                    assertEquals((plus - minus) / (2 * epsilon), inputGradient.getData()[index], 1e-6);
+                }
+            }
+        }
+    }
+
+    private static double dot(Tensor a, Tensor b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.size(); i++) {
+            sum += a.getData()[i] * b.getData()[i];
+        }
+        return sum;
+    }
+
+    @Test
+    void testGlobalPooling() {
+        Random random = new Random(9);
+        Tensor input = randomTensor(random, 2, 4, 5, 6);
+        for (PoolingMode mode : PoolingMode.values()) {
+            PoolingLayer pooling = PoolingLayer.global(mode);
+            Tensor output = pooling.forward(input);
+            assertTrue(output.hasShape(2, 4, 1, 1));
+            for (int n = 0; n < 2; n++) {
+                for (int c = 0; c < 4; c++) {
+                    assertEquals(window(input, n, c, 0, 5, 0, 6, mode), output.get(n, c, 0, 0), 1e-12);
+                }
+            }
+            Tensor gradient = randomTensor(random, 2, 4, 1, 1);
+            Tensor inputGradient = pooling.backward(gradient);
+            double total = 0.0;
+            for (int i = 0; i < inputGradient.size(); i++) {
+                total += inputGradient.getData()[i];
+            }
+            double expected = 0.0;
+            for (int i = 0; i < gradient.size(); i++) {
+                expected += gradient.getData()[i];
+            }
+            assertEquals(expected, total, 1e-12);
+        }
+    }
+
+    @Test
+    void testBuffersAreReused() {
+        Random random = new Random(1);
+        PoolingLayer pooling = new PoolingLayer(3, 2);
+        Tensor output = pooling.forward(randomTensor(random, 1, 2, 9, 9));
+        Tensor inputGradient = pooling.backward(randomTensor(random, output.shape()));
+        Tensor next = pooling.forward(randomTensor(random, 1, 2, 9, 9));
+        assertSame(output, next);
+        // перекрывающиеся окна: сумма градиентов входа равна сумме градиентов выхода
+        Tensor gradient = randomTensor(random, output.shape());
+        assertSame(inputGradient, pooling.backward(gradient));
+        double total = 0.0, expected = 0.0;
+        for (int i = 0; i < inputGradient.size(); i++) {
+            total += inputGradient.getData()[i];
+        }
+        for (int i = 0; i < gradient.size(); i++) {
+            expected += gradient.getData()[i];
+        }
+        assertEquals(expected, total, 1e-12);
+    }
+}
@@ -8,7 +8,12 @@ import service.activationfunction.impl.Sigmoid;
 import service.optimizer.impl.AMSGradOptimizer;
 import service.optimizer.impl.RmspropGravesOptimizer;
 import service.optimizer.impl.SGDOptimizer;
+import service.regularizer.GroupScope;
+import service.regularizer.Regularizer;
+import service.regularizer.impl.ElasticNetRegularizer;
 import service.regularizer.impl.GroupLassoRegularizer;
+import service.regularizer.impl.L1Regularizer;
+import service.regularizer.impl.L2Regularizer;
 import util.Exec;
 import util.Fixtures;
 import util.Timer;
@@ -16,6 +21,8 @@ import utility.IrisDataReader;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -84,4 +91,54 @@ public class RegularizerTest {
         timer.stop();
         assertTrue(result);
     }
+
+    @Test
+    void testProximalSteps() {
+        double[] l1 = {0.5, -0.05, 0.1, -0.3};
+        new L1Regularizer(1.0).proximalStep(l1, 1, 3, 0.1);
+        assertArrayEquals(new double[]{0.5, 0.0, 0.0, -0.2}, l1, 1e-15);
+
+        double[] l2 = {1.0, -2.0};
+        new L2Regularizer(1.0).proximalStep(l2, 0, 2, 1.0);
+        assertArrayEquals(new double[]{0.5, -1.0}, l2, 1e-15);
+
+        double[] elastic = {1.0, -0.05};
+        new ElasticNetRegularizer(1.0, 1.0).proximalStep(elastic, 0, 2, 0.1);
+        assertArrayEquals(new double[]{0.9 / 1.1, 0.0}, elastic, 1e-15);
+
+        // норма группы 5: сжатие на 1 - 1/5, малая группа зануляется целиком
+        double[] group = {3.0, 4.0, 0.3, 0.4};
+        GroupLassoRegularizer lasso = new GroupLassoRegularizer(1.0);
+        lasso.proximalStep(group, 0, 2, 1.0);
+        lasso.proximalStep(group, 2, 2, 1.0);
+        assertArrayEquals(new double[]{2.4, 3.2, 0.0, 0.0}, group, 1e-15);
+        assertEquals(GroupScope.NEURON, lasso.getScope());
+    }
+
+    @Test
+    void testGroupLassoRowsMatchFlat() {
+        double[] flat = {0.3, -0.2, 0.1, 0.4, -0.5, 0.6};
+        double[][] rows = {{0.3, -0.2, 0.1}, {0.4, -0.5, 0.6}};
+        Regularizer lasso = new GroupLassoRegularizer(0.5, GroupScope.LAYER);
+        lasso.proximalStep(flat, 0, flat.length, 0.2);
+        lasso.proximalStep(rows, 0, rows.length, 0.2);
+        for (int i = 0; i < flat.length; i++) {
+            assertEquals(flat[i], rows[i / 3][i % 3], 1e-15);
+        }
+        assertEquals(GroupScope.LAYER.groupLength(3, 6), 6);
+        assertEquals(GroupScope.KERNEL.groupLength(3, 6), 3);
+    }
+
+    @Test
+    void testAccumulateGradientInPlace() {
+        double[] weights = {9.0, 1.0, -2.0};
+        double[] gradient = {0.5, 0.5, 0.5, 0.5};
+        new L2Regularizer(0.1).accumulateGradient(weights, 1, 2, gradient, 2, -1.0);
+        assertArrayEquals(new double[]{0.5, 0.5, 0.4, 0.7}, gradient, 1e-15);
+
+        new L1Regularizer(0.1).accumulateGradient(weights, 1, 2, gradient, 0, 1.0);
+        assertArrayEquals(new double[]{0.6, 0.4, 0.4, 0.7}, gradient, 1e-15);
+        assertEquals(0.3, new L1Regularizer(0.1).penalty(weights, 1, 2), 1e-15);
+        assertEquals(0.25, new L2Regularizer(0.1).penalty(weights, 1, 2), 1e-15);
+    }
 }
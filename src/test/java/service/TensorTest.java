@@ -0,0 +1,48 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TensorTest {
+
+    @Test
+    void testViewsShareData() {
+        Tensor tensor = new Tensor(2, 3, 2, 2);
+        for (int i = 0; i < tensor.size(); i++) {
+            tensor.getData()[i] = i;
+        }
+        assertEquals(1 * 12 + 2 * 4 + 1 * 2 + 1.0, tensor.get(1, 2, 1, 1));
+
+        Tensor flat = tensor.reshape(2, -1);
+        assertTrue(flat.hasShape(2, 12));
+        assertSame(tensor.getData(), flat.getData());
+        flat.set(-1.0, 1, 0);
+        assertEquals(-1.0, tensor.get(1, 0, 0, 0));
+
+        Tensor second = tensor.slice(1);
+        assertTrue(second.hasShape(3, 2, 2));
+        assertEquals(12, second.getOffset());
+        assertEquals(tensor.get(1, 2, 0, 1), second.get(2, 0, 1));
+
+        Tensor tail = tensor.narrow(1, 2).reshape(12);
+        assertEquals(-1.0, tail.get(0));
+        assertArrayEquals(tensor.slice(1).toArray(), tail.toArray(), 0.0);
+
+        tensor.slice(0).fill(7.0);
+        assertEquals(7.0, flat.get(0, 11));
+        assertTrue(second.isContiguous());
+    }
+
+    @Test
+    void testInvalidShapesAreRejected() {
+        Tensor tensor = new Tensor(2, 3);
+        assertThrows(IllegalArgumentException.class, () -> tensor.reshape(4, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> tensor.get(2, 0));
+        assertThrows(IllegalArgumentException.class, () -> Tensor.wrap(new double[5], 2, 3));
+    }
+}
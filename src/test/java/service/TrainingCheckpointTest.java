@@ -0,0 +1,214 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.activationfunction.impl.Sigmoid;
+import service.optimizer.Optimizer;
+import service.optimizer.impl.AMSGradOptimizer;
+import service.optimizer.impl.GradientAccumulator;
+import service.optimizer.impl.RmspropGravesOptimizer;
+import service.optimizer.impl.SGDOptimizer;
+import util.TestData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrainingCheckpointTest {
+
+    @Test
+    void testResumeMatchesUninterruptedTraining() throws IOException {
+        List<Supplier<Optimizer>> optimizers = List.of(
+                () -> new AMSGradOptimizer(0.9, 0.999),
+                () -> new RmspropGravesOptimizer(0.95),
+                () -> new GradientAccumulator(new AMSGradOptimizer(0.9, 0.999), 3));
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            for (Supplier<Optimizer> optimizer : optimizers) {
+                NeuralNetwork original = TestData.sigmoidNetwork(42, 8, optimizer.get(), 0.1);
+                Random data = new Random(1);
+                double[][] inputs = TestData.randomMatrix(data, 40, 4);
+                double[][] targets = TestData.randomMatrix(data, 40, 3);
+                for (int b = 0; b < 20; b += 4) {
+                    original.trainBatch(slice(inputs, b), slice(targets, b));
+                }
+                original.getRandom().nextInt();
+                TrainingCheckpoint.save(path, original, 3, 5);
+
+                NeuralNetwork resumed = TestData.sigmoidNetwork(7, 8, optimizer.get(), 0.1);
+                TrainingCheckpoint checkpoint = TrainingCheckpoint.restore(path, resumed);
+                assertEquals(3, checkpoint.getEpoch());
+                assertEquals(5, checkpoint.getStep());
+                assertEquals(original.getRandom().nextLong(), resumed.getRandom().nextLong());
+
+                for (int b = 20; b < 40; b += 4) {
+                    original.trainBatch(slice(inputs, b), slice(targets, b));
+                    resumed.trainBatch(slice(inputs, b), slice(targets, b));
+                }
+                for (double[] input : inputs) {
+                    assertArrayEquals(original.predict(input), resumed.predict(input), 0.0);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testRestoreRejectsMismatchedModel() throws IOException {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            TrainingCheckpoint.save(path, TestData.sigmoidNetwork(42, 8, new SGDOptimizer(), 0.1), 0, 0);
+            NeuralNetwork wider = NeuralNetwork.builder(4)
+                    .layer(9, new Sigmoid())
+                    .layer(3, new Sigmoid())
+                    .optimizer(new SGDOptimizer())
+                    .build();
+            assertThrows(IllegalArgumentException.class, () -> TrainingCheckpoint.restore(path, wider));
+            assertThrows(IllegalArgumentException.class,
+                    () -> TrainingCheckpoint.restore(path, TestData.sigmoidNetwork(42, 8, new RmspropGravesOptimizer(0.95), 0.1)));
+
+            Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+            assertThrows(IOException.class, () -> TrainingCheckpoint.restore(path, TestData.sigmoidNetwork(42, 8, new SGDOptimizer(), 0.1)));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testRestoreRejectsMismatchedOptimizerSettings() throws IOException {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            TrainingCheckpoint.save(path, TestData.sigmoidNetwork(42, 8, new GradientAccumulator(new SGDOptimizer(), 3), 0.1), 0, 0);
+            List<Supplier<Optimizer>> others = List.of(
+                    () -> new GradientAccumulator(new AMSGradOptimizer(0.9, 0.999), 3),
+                    () -> new GradientAccumulator(new SGDOptimizer(), 2));
+            for (Supplier<Optimizer> other : others) {
+                assertThrows(IllegalArgumentException.class,
+                        () -> TrainingCheckpoint.restore(path, TestData.sigmoidNetwork(42, 8, other.get(), 0.1)));
+            }
+
+            TrainingCheckpoint.save(path, TestData.sigmoidNetwork(42, 8, new AMSGradOptimizer(0.9, 0.999), 0.1), 0, 0);
+            assertThrows(IllegalArgumentException.class, () -> TrainingCheckpoint.restore(path,
+                    TestData.sigmoidNetwork(42, 8, new AMSGradOptimizer(0.8, 0.999), 0.1)));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testFailedRestoreLeavesNetworkUntouched() throws IOException {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            Random data = new Random(1);
+            double[][] inputs = TestData.randomMatrix(data, 8, 4);
+            double[][] targets = TestData.randomMatrix(data, 8, 3);
+
+            NeuralNetwork source = TestData.sigmoidNetwork(42, 8, new GradientAccumulator(new AMSGradOptimizer(0.9, 0.999), 3), 0.1);
+            source.trainBatch(slice(inputs, 0), slice(targets, 0));
+            TrainingCheckpoint.save(path, source, 1, 1);
+            byte[] saved = Files.readAllBytes(path);
+
+            int parameters = source.getParameterCount();
+            int stateEnd = saved.length - serialize(new Random()).length - Integer.BYTES;
+            int stateStart = stateEnd - source.getOptimizer().stateSize();
+            int layersStart = 4 * Integer.BYTES + 3 * Long.BYTES
+                    + source.getOptimizer().descriptor().getBytes(StandardCharsets.UTF_8).length;
+            // моменты AMSGrad и сумма градиентов уже прочитаны, когда падает длина счётчиков
+            int countsStart = stateStart + 3 * (Integer.BYTES + parameters * Double.BYTES) + Integer.BYTES + parameters * Double.BYTES;
+
+            List<byte[]> corrupted = new ArrayList<>();
+            corrupted.add(withInt(saved, countsStart, 1));
+            corrupted.add(withInt(saved, layersStart + 2 * Integer.BYTES, 0));
+            corrupted.add(withInt(saved, layersStart + 2 * Integer.BYTES, 1 << 28));
+            corrupted.add(Arrays.copyOf(saved, saved.length - 10));
+            corrupted.add(Arrays.copyOf(saved, layersStart + 20));
+            byte[] header = saved.clone();
+            for (int k = stateEnd; k + 1 < header.length; k++) {
+                if (header[k] == (byte) 0xAC && header[k + 1] == (byte) 0xED) {
+                    header[k] = 0;
+                    header[k + 1] = 0;
+                }
+            }
+            corrupted.add(header);
+            // вместо генератора — другой сериализованный объект: фильтр не даёт его прочитать
+            byte[] foreign = serialize(new ArrayList<>(List.of(1, 2, 3)));
+            ByteBuffer replaced = ByteBuffer.allocate(stateEnd + Integer.BYTES + foreign.length).order(ByteOrder.LITTLE_ENDIAN);
+            replaced.put(saved, 0, stateEnd).putInt(foreign.length).put(foreign);
+            corrupted.add(replaced.array());
+
+            for (int c = 0; c < corrupted.size(); c++) {
+                Files.write(path, corrupted.get(c));
+                NeuralNetwork target = TestData.sigmoidNetwork(7, 8, new GradientAccumulator(new AMSGradOptimizer(0.9, 0.999), 3), 0.1);
+                target.trainBatch(slice(inputs, 4), slice(targets, 4));
+                double[] before = target.predict(inputs[0]);
+                byte[] state = optimizerState(target.getOptimizer());
+                long seed = TestData.sigmoidNetwork(7, 8, 0.1).getRandom().nextLong();
+
+                Class<? extends Exception> expected = c == 0 ? IllegalArgumentException.class : IOException.class;
+                assertThrows(expected, () -> TrainingCheckpoint.restore(path, target));
+                assertArrayEquals(before, target.predict(inputs[0]), 0.0);
+                assertTrue(Arrays.equals(state, optimizerState(target.getOptimizer())), "optimizer state, case " + c);
+                assertEquals(seed, target.getRandom().nextLong());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testEmptyStateZeroesBoundOptimizer() {
+        AMSGradOptimizer unbound = new AMSGradOptimizer(0.9, 0.999);
+        ByteBuffer buffer = ByteBuffer.allocate(unbound.stateSize());
+        unbound.writeState(buffer);
+        buffer.flip();
+
+        NeuralNetwork network = TestData.sigmoidNetwork(42, 8, new AMSGradOptimizer(0.9, 0.999), 0.1);
+        Random data = new Random(1);
+        network.trainBatch(TestData.randomMatrix(data, 4, 4), TestData.randomMatrix(data, 4, 3));
+        network.getOptimizer().readState(buffer);
+
+        NeuralNetwork fresh = TestData.sigmoidNetwork(42, 8, new AMSGradOptimizer(0.9, 0.999), 0.1);
+        assertTrue(Arrays.equals(optimizerState(fresh.getOptimizer()), optimizerState(network.getOptimizer())));
+    }
+
+    private static byte[] withInt(byte[] bytes, int position, int value) {
+        byte[] result = bytes.clone();
+        ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        return result;
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] optimizerState(Optimizer optimizer) {
+        ByteBuffer buffer = ByteBuffer.allocate(optimizer.stateSize());
+        optimizer.writeState(buffer);
+        return buffer.array();
+    }
+
+    private static double[][] slice(double[][] rows, int from) {
+        double[][] result = new double[4][];
+        System.arraycopy(rows, from, result, 0, 4);
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VersionedCopyTest {
+
+    @Test
+    void testUpdateDuringCopyIsNotLost() {
+        double[] source = {1.0};
+        AtomicInteger copies = new AtomicInteger();
+        VersionedCopy<?>[] holder = new VersionedCopy<?>[1];
+        VersionedCopy<double[]> copy = new VersionedCopy<>(() -> {
+            double[] value = source.clone();
+            // запись в исходные параметры, пока идёт первое копирование
+            if (copies.getAndIncrement() == 0) {
+                source[0] = 2.0;
+                holder[0].invalidate();
+            }
+            return value;
+        });
+        holder[0] = copy;
+
+        assertEquals(1.0, copy.get()[0], 0.0);
+        assertEquals(2.0, copy.get()[0], 0.0);
+        assertEquals(2, copies.get());
+    }
+
+    @Test
+    void testPublishedCopyIsNeverRewritten() {
+        double[] source = {1.0, 2.0};
+        VersionedCopy<double[]> copy = new VersionedCopy<>(source::clone);
+        double[] first = copy.get();
+        assertSame(first, copy.get());
+
+        source[0] = 5.0;
+        copy.invalidate();
+        double[] second = copy.get();
+        assertTrue(first != second);
+        assertEquals(1.0, first[0], 0.0);
+        assertEquals(5.0, second[0], 0.0);
+        assertSame(second, copy.current());
+    }
+}
@@ -13,6 +13,8 @@ import java.util.Random;
 @Slf4j
 public class Exec {
 
+    private static final int BATCH_SIZE = 8;
+
     public boolean test(List<Iris> dataset,
                         Optimizer optimizer,
                         ActivationFunction activationFunction,
@@ -49,19 +51,28 @@ public class Exec {
             double totalLoss = 0.0;
             int correct = 0;
 
-            for (Iris sample : trainSet) {
-                network.train(sample.features, sample.label);
+            for (int from = 0; from < trainSet.size(); from += BATCH_SIZE) {
+                List<Iris> batch = trainSet.subList(from, Math.min(trainSet.size(), from + BATCH_SIZE));
+                double[][] inputs = new double[batch.size()][];
+                double[][] targets = new double[batch.size()][];
+                for (int b = 0; b < batch.size(); b++) {
+                    inputs[b] = batch.get(b).features;
+                    targets[b] = batch.get(b).label;
+                }
 
-                double[] prediction = network.predict(sample.features);
+                network.trainBatch(inputs, targets);
 
-                //вычисляем ошибку
-                for (int i = 0; i < prediction.length; i++) {
-                    totalLoss += Math.pow(sample.label[i] - prediction[i], 2);
-                }
+                double[][] predictions = network.predictBatch(inputs);
+                for (int b = 0; b < predictions.length; b++) {
+                    //вычисляем ошибку
+                    for (int i = 0; i < predictions[b].length; i++) {
+                        totalLoss += Math.pow(targets[b][i] - predictions[b][i], 2);
+                    }
 
-                //подсчёт правильных предсказаний на обучении
-                if (argMax(prediction) == argMax(sample.label)) {
-                    correct++;
+                    //подсчёт правильных предсказаний на обучении
+                    if (argMax(predictions[b]) == argMax(targets[b])) {
+                        correct++;
+                    }
                 }
             }
 
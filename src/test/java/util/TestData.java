@@ -0,0 +1,53 @@
+package util;
+
+import service.NeuralNetwork;
+import service.activationfunction.impl.Sigmoid;
+import service.optimizer.Optimizer;
+import service.optimizer.impl.SGDOptimizer;
+
+import java.util.Random;
+
+/**
+ * Общие тестовые данные: случайные матрицы и небольшая сеть 4 -> hidden -> 3 на сигмоидах.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    // значения в [0, 1)
+    public static double[][] randomMatrix(Random random, int rows, int cols) {
+        double[][] result = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = random.nextDouble();
+            }
+        }
+        return result;
+    }
+
+    // значения в [-0.5, 0.5)
+    public static double[][] centeredMatrix(Random random, int rows, int cols) {
+        double[][] result = randomMatrix(random, rows, cols);
+        for (double[] row : result) {
+            for (int j = 0; j < cols; j++) {
+                row[j] -= 0.5;
+            }
+        }
+        return result;
+    }
+
+    public static NeuralNetwork sigmoidNetwork(long seed, int hiddenSize, double learningRate) {
+        return sigmoidNetwork(seed, hiddenSize, new SGDOptimizer(), learningRate);
+    }
+
+    public static NeuralNetwork sigmoidNetwork(long seed, int hiddenSize, Optimizer optimizer, double learningRate) {
+        NeuralNetwork network = new NeuralNetwork();
+        network.setRandom(new Random(seed));
+        network.addLayer(hiddenSize, new Sigmoid());
+        network.addLayer(3, new Sigmoid());
+        network.setOptimizer(optimizer);
+        network.setLearningRate(learningRate);
+        return network;
+    }
+}